@@ -0,0 +1,155 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.repository.stats.DailyEmployeePartialsRepository;
+import com.example.demo.service.EmployeeStatisticsCalculator;
+import com.example.demo.service.stats.*;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*  EmployeeStatisticsCalculator on synthetic data, without a database.
+
+    - Assignments are generated once per parameter set and handed out by an in-memory AssignmentColumnsLoader.
+    - Daily partials are kept in memory (StatsWriter + DailyEmployeePartialsRepository stand-ins),
+      so monthly/yearly measure: scoring every day of the period + rolling the partials up.
+    - Run: mvn -Pjmh -DskipTests verify (JSON results in target/jmh-result.json)  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StatisticsCalculatorBenchmark {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 10);
+    private static final YearMonth MONTH = YearMonth.from(DAY);
+    private static final Year YEAR = Year.from(DAY);
+
+    @Param({"10", "200", "2000"})
+    int employees;
+
+    @Param({"300", "3000"})
+    int activitiesPerDay;
+
+    @Param({"0.3"})
+    double groupShare;
+
+    private EmployeeStatisticsCalculator calculator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        var data = new SyntheticAssignments(employees, activitiesPerDay, groupShare, 42L);
+        var loader = new InMemoryColumnsLoader();
+        loader.put(DAY, DAY, data);
+        loader.put(MONTH.atDay(1), MONTH.atEndOfMonth(), data);
+        loader.put(YEAR.atDay(1), YEAR.atMonth(12).atEndOfMonth(), data);
+
+        var partials = new TreeMap<LocalDate, Map<Integer, ScorePartials>>();
+        calculator = new EmployeeStatisticsCalculator(
+                new JvmScoreCalculationStrategy(loader, new EmployeeScoreEngine()),
+                inMemoryPartialsRepository(partials),
+                new InMemoryStatsWriter(partials));
+    }
+
+    @Benchmark
+    public Map<Integer, Double> daily() {
+        return calculator.calculateDailyScores(DAY);
+    }
+
+    @Benchmark
+    public void monthly() {
+        calculator.refreshDailyPartials(MONTH.atDay(1), MONTH.atEndOfMonth());
+        calculator.calculateMonthlyScores(MONTH);
+    }
+
+    @Benchmark
+    public void yearly() {
+        calculator.refreshDailyPartials(YEAR.atDay(1), YEAR.atMonth(12).atEndOfMonth());
+        calculator.calculateYearlyScores(YEAR);
+    }
+
+    //Returns pre-generated columns for the ranges used by the benchmarks
+    private static final class InMemoryColumnsLoader extends AssignmentColumnsLoader {
+        private final Map<List<LocalDateTime>, AssignmentColumns> columnsByRange = new HashMap<>();
+
+        InMemoryColumnsLoader() {
+            super(new JdbcTemplate());
+        }
+
+        void put(LocalDate from, LocalDate to, SyntheticAssignments data) {
+            columnsByRange.put(List.of(from.atStartOfDay(), to.plusDays(1).atStartOfDay()), data.generate(from, to));
+        }
+
+        @Override
+        public AssignmentColumns load(LocalDateTime start, LocalDateTime end) {
+            var columns = columnsByRange.get(List.of(start, end));
+            if (columns == null) {
+                throw new IllegalStateException("No synthetic data for " + start + " - " + end);
+            }
+            return columns;
+        }
+    }
+
+    private static final class InMemoryStatsWriter extends StatsWriter {
+        private final NavigableMap<LocalDate, Map<Integer, ScorePartials>> partials;
+
+        InMemoryStatsWriter(NavigableMap<LocalDate, Map<Integer, ScorePartials>> partials) {
+            super(new JdbcTemplate(), new StatsGeneration(), 500);
+            this.partials = partials;
+        }
+
+        @Override
+        public WriteResult writeScores(StatsTable table, Object periodKey, Map<Integer, Double> scores) {
+            return new WriteResult(scores.size(), 0, 0);
+        }
+
+        @Override
+        public WriteResult writePartials(Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay) {
+            partials.putAll(partialsByDay);
+            return new WriteResult(partialsByDay.values().stream().mapToInt(Map::size).sum(), 0, 0);
+        }
+
+        @Override
+        public WriteResult replacePartials(LocalDate from, LocalDate to, Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay) {
+            partials.subMap(from, true, to, true).clear();
+            return writePartials(partialsByDay);
+        }
+    }
+
+    //Only the query used by the calculator, backed by the map filled by InMemoryStatsWriter
+    private static DailyEmployeePartialsRepository inMemoryPartialsRepository(
+            NavigableMap<LocalDate, Map<Integer, ScorePartials>> partials) {
+        return (DailyEmployeePartialsRepository) Proxy.newProxyInstance(
+                DailyEmployeePartialsRepository.class.getClassLoader(),
+                new Class<?>[]{DailyEmployeePartialsRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "sumByEmployeeBetween" -> {
+                        Map<Integer, double[]> sums = new HashMap<>();
+                        partials.subMap((LocalDate) args[0], (LocalDate) args[1]).values().forEach(day ->
+                                day.forEach((empId, p) -> {
+                                    double[] sum = sums.computeIfAbsent(empId, id -> new double[2]);
+                                    sum[0] += p.numerator();
+                                    sum[1] += p.denominator();
+                                }));
+                        List<EmployeePartialsSum> result = new ArrayList<>();
+                        sums.forEach((empId, sum) -> result.add(new EmployeePartialsSum(empId, sum[0], sum[1])));
+                        yield result;
+                    }
+                    case "toString" -> "InMemoryPartialsRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.stats.AssignmentColumns;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/*  Generates assignments shaped like the ones AssignmentColumnsLoader reads from Firebird.
+
+    - Every employee has one schedule a day (ids unique per day, 480 minutes).
+    - 'groupShare' of the activities are F/B group procedures with 2-4 assignees, the rest are
+      S (timed) or U (counted) procedures with a single assignee.
+    - Rows are ordered by day and activity id, like the SQL result.
+    - Fixed seed - every run and every version of the code scores the same data.  */
+public final class SyntheticAssignments {
+
+    private static final String[] SINGLE_MODES = {"S", "S", "S", "U"};
+    private static final String[] GROUP_MODES = {"F", "B"};
+
+    private final int employees;
+    private final int activitiesPerDay;
+    private final double groupShare;
+    private final long seed;
+
+    public SyntheticAssignments(int employees, int activitiesPerDay, double groupShare, long seed) {
+        if (employees < 1 || activitiesPerDay < 1 || groupShare < 0 || groupShare > 1) {
+            throw new IllegalArgumentException("Invalid synthetic data parameters: employees=" + employees +
+                    ", activitiesPerDay=" + activitiesPerDay + ", groupShare=" + groupShare);
+        }
+        this.employees = employees;
+        this.activitiesPerDay = activitiesPerDay;
+        this.groupShare = groupShare;
+        this.seed = seed;
+    }
+
+    //Assignments of days [from, to]
+    public AssignmentColumns generate(LocalDate from, LocalDate to) {
+        var random = new Random(seed);
+        var columns = new AssignmentColumns(activitiesPerDay * (int) (to.toEpochDay() - from.toEpochDay() + 1));
+        int activityId = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            int epochDay = (int) day.toEpochDay();
+            for (int i = 0; i < activitiesPerDay; i++) {
+                activityId++;
+                boolean group = random.nextDouble() < groupShare;
+                String mode = group ? GROUP_MODES[random.nextInt(GROUP_MODES.length)]
+                        : SINGLE_MODES[random.nextInt(SINGLE_MODES.length)];
+                int minutes = 15 + 15 * random.nextInt(6);
+                int assignees = group ? 2 + random.nextInt(3) : 1;
+                int firstEmployee = random.nextInt(employees);
+                for (int a = 0; a < Math.min(assignees, employees); a++) {
+                    int employeeId = 1 + (firstEmployee + a) % employees;
+                    columns.add(epochDay, activityId, employeeId, mode, minutes, scheduleId(epochDay, employeeId), 480);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private int scheduleId(int epochDay, int employeeId) {
+        return epochDay * (employees + 1) + employeeId;
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.bsn_logic_dto.ActivityCursorPageDto;
 import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import com.example.demo.dto.bsn_logic_dto.BulkAssignmentDto;
 import com.example.demo.service.ActivityService;
+import com.example.demo.service.EtagService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -9,9 +12,12 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import static com.example.demo.controller.StatisticsController.REVALIDATE;
 import static com.example.demo.util.AuthUtil.userFromSecurityContext;
 
 @RestController
@@ -21,6 +27,7 @@ import static com.example.demo.util.AuthUtil.userFromSecurityContext;
 public class ActivityController {
 
     private final ActivityService activityService;
+    private final EtagService etagService;
 
     @GetMapping
     public ResponseEntity<Page<ActivityDto>> getAllActivities(
@@ -29,11 +36,41 @@ public class ActivityController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) String month,
-            @RequestParam(defaultValue = "asc") String sortDirection) {
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            WebRequest webRequest) {
 
         String username = userFromSecurityContext();
-        return ResponseEntity.ok(activityService.findAllActivities(page, size, username, startDate,
-                endDate, month, sortDirection));
+        String etag = etagService.activitiesEtag(username, page, size, startDate, endDate, month, sortDirection);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(activityService.findAllActivities(page, size, username,
+                startDate, endDate, month, sortDirection));
+    }
+
+    //Same filters as above, but paged by cursor (nextCursor/prevCursor of the previous response)
+    @GetMapping("/seek")
+    public ResponseEntity<ActivityCursorPageDto> getActivitiesByCursor(
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String month,
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withCount,
+            WebRequest webRequest) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive, got " + size);
+        }
+        String username = userFromSecurityContext();
+        String etag = etagService.activitiesEtag(username, "seek", size, startDate, endDate, month, sortDirection,
+                cursor, withCount);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(activityService.findActivitiesByCursor(size, username,
+                startDate, endDate, month, sortDirection, cursor, withCount));
     }
 
 
@@ -53,4 +90,12 @@ public class ActivityController {
     }
 
 
+    //Claims or restores all listed activities at once, returns them in the order of the request
+    @PostMapping("/bulk")
+    public ResponseEntity<List<ActivityDto>> bulkReassign(@RequestBody BulkAssignmentDto request) {
+        String username = userFromSecurityContext();
+        return ResponseEntity.ok(activityService.bulkReassign(request, username));
+    }
+
+
 }
\ No newline at end of file
@@ -2,13 +2,38 @@ package com.example.demo.controller;
 
 
 import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
+import com.example.demo.dto.stats_dtos.StatisticsQuery;
+import com.example.demo.service.EtagService;
 import com.example.demo.service.StatisticsService;
+import com.example.demo.service.StatsSnapshotService;
+import com.example.demo.service.UpdateStreamService;
+import com.example.demo.service.stats.StatsTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static com.example.demo.util.AuthUtil.userFromSecurityContext;
 
 @RestController
 @RequestMapping("/api/statistics")
@@ -16,13 +41,69 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class StatisticsController {
 
+    //cached by the browser, but always revalidated with If-None-Match
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    //snapshot has currentUser=false for everyone, the client marks the employee with this code
+    public static final String CURRENT_EMPLOYEE_HEADER = "X-Current-Employee-Code";
+
     private final StatisticsService statisticsService;
+    private final EtagService etagService;
+    private final StatsSnapshotService snapshotService;
+    private final UpdateStreamService updateStream;
 
+    //without parameters all series of all employees are returned
     @GetMapping
-    public ResponseEntity<StatisticsDto> getStatistics() {
-        StatisticsDto statistics = statisticsService.getStatistics();
-        return ResponseEntity.ok(statistics);
+    public ResponseEntity<StatisticsDto> getStatistics(
+            @RequestParam(required = false) Set<StatsTable> granularity,
+            @RequestParam(required = false) List<Integer> employeeIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+
+        var query = new StatisticsQuery(granularity, employeeIds, from, to, page, size);
+        String etag = etagService.statisticsEtag(userFromSecurityContext(), query.granularities(), query.employeeIds(),
+                query.from(), query.to(), query.page(), query.size());
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        StatisticsDto statistics = statisticsService.getStatistics(query);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(statistics);
     }
 
+    //Statistics of the last scheduler run, sent as stored (gzipped JSON) without touching the database
+    @GetMapping("/snapshot")
+    public ResponseEntity<Resource> getSnapshot(WebRequest webRequest) throws IOException {
+        var snapshot = snapshotService.latest();
+        String currentUser = userFromSecurityContext();
+        if (webRequest.checkNotModified(etagService.snapshotEtag(currentUser, snapshot.generation()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(REVALIDATE)
+                    .header(CURRENT_EMPLOYEE_HEADER, currentUser)
+                    .build();
+        }
 
-}
\ No newline at end of file
+        var response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(CURRENT_EMPLOYEE_HEADER, currentUser)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(snapshot.size())
+                    .body(new FileSystemResource(snapshot.path()));
+        }
+        return response.body(new InputStreamResource(new GZIPInputStream(Files.newInputStream(snapshot.path()))));
+    }
+
+    //Change notifications (UpdateEventDto) instead of polling; 503 when too many clients are connected
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        return updateStream.subscribe(userFromSecurityContext())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/*  Change notification pushed through GET /api/statistics/stream - tells the client what to refetch.
+    - stats: new stats generation (see StatsGeneration)
+    - assignment: activity claimed or restored, with its day
+    - import: schedule import of a month finished and its assignments are created
+    - assignments: assignments of many activities changed (assignment job, bulk claim/restore)  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UpdateEventDto(String type, Long generation, Integer activityId, LocalDate day, String month) {
+
+    public static UpdateEventDto stats(long generation) {
+        return new UpdateEventDto("stats", generation, null, null, null);
+    }
+
+    public static UpdateEventDto assignment(Integer activityId, LocalDate day) {
+        return new UpdateEventDto("assignment", null, activityId, day, null);
+    }
+
+    public static UpdateEventDto scheduleImport(String month) {
+        return new UpdateEventDto("import", null, null, null, month);
+    }
+
+    public static UpdateEventDto assignments() {
+        return new UpdateEventDto("assignments", null, null, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto.bsn_logic_dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//Keyset page of activities - cursors are null at the ends, totalElements only when requested
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityCursorPageDto {
+    private List<ActivityDto> content;
+    private String nextCursor;
+    private String prevCursor;
+    private Long totalElements;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.dto.bsn_logic_dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAssignmentDto {
+
+    private List<Integer> activityIds;
+
+    private Operation operation;
+
+    //CLAIM: same as PATCH /api/procedures, RESTORE: same as POST /api/procedures/old
+    public enum Operation {
+        CLAIM, RESTORE
+    }
+}
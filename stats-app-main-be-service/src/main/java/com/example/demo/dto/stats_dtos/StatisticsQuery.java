@@ -0,0 +1,55 @@
+package com.example.demo.dto.stats_dtos;
+
+import com.example.demo.service.stats.StatsTable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/*  Optional filters of GET /api/statistics:
+    - granularities: series to return (DAY, WEEK, MONTH, YEAR), others are sent as empty lists
+    - employeeIds: only these employees
+    - from/to: only periods containing days of this window
+    - page/size: page of employees (current user first, then by name)
+    Without any filter the full, cached response is returned.  */
+public record StatisticsQuery(
+        Set<StatsTable> granularities,
+        List<Integer> employeeIds,
+        LocalDate from,
+        LocalDate to,
+        Integer page,
+        Integer size
+) {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static final StatisticsQuery UNFILTERED = new StatisticsQuery(null, null, null, null, null, null);
+
+    public StatisticsQuery {
+        granularities = granularities == null ? Set.of() : Set.copyOf(granularities);
+        employeeIds = employeeIds == null ? List.of() : List.copyOf(employeeIds);
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Statistics window ends (" + to + ") before it starts (" + from + ")");
+        }
+        if (page != null && page < 0) {
+            throw new IllegalArgumentException("Page must not be negative, got " + page);
+        }
+        if (size != null && (size < 1 || size > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ", got " + size);
+        }
+    }
+
+    public boolean isUnfiltered() {
+        return granularities.isEmpty() && employeeIds.isEmpty() && from == null && to == null
+                && page == null && size == null;
+    }
+
+    public boolean includes(StatsTable table) {
+        return granularities.isEmpty() || granularities.contains(table);
+    }
+
+    public boolean isPaged() {
+        return page != null || size != null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.entity.stats;
+
+import com.example.demo.entity.id_class.EmployeeDateKey;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "emp_day_partials")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(EmployeeDateKey.class)
+public class EmployeeDayPartialsEntity {
+
+    @Id
+    @Column(name = "emp_id")
+    private Integer employeeId;
+
+    @Id
+    @Column(name = "stat_day")
+    private LocalDate startDay;
+
+    @Column(name = "numerator", nullable = false)
+    private Double numerator;
+
+    @Column(name = "denominator", nullable = false)
+    private Double denominator;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.entity.stats;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stats_watermark")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsWatermarkEntity {
+
+    @Id
+    @Column(name = "wm_name")
+    private String name;
+
+    @Column(name = "wm_value", nullable = false)
+    private Integer value;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,7 +1,6 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.ActivityEmployeeEntity;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -29,21 +28,5 @@ public interface ActivityEmployeeRepository extends JpaRepository<ActivityEmploy
     int deleteAllByActivityDateRangeAndUserModifiedFalse(@Param("from") LocalDateTime from,
                                                          @Param("to") LocalDateTime to);
 
-    @EntityGraph(attributePaths = {
-            "activity",
-            "activity.procedure",
-            "workSchedule",
-            "employee"
-    })
-    @Query("""
-                SELECT ae FROM ActivityEmployeeEntity ae
-                WHERE ae.activity.activityDate >= :startOfDay
-                  AND ae.activity.activityDate < :endOfDay
-            """)
-    List<ActivityEmployeeEntity> findWithGraphByActivityDate(
-            @Param("startOfDay") LocalDateTime startOfDay,
-            @Param("endOfDay") LocalDateTime endOfDay
-    );
-
 
 }
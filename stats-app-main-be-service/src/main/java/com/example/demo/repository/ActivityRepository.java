@@ -13,4 +13,5 @@ public interface ActivityRepository extends JpaRepository<ActivityEntity, Intege
 
     Page<ActivityEntity> findByActivityDateBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
 
+    long countByActivityDateBetween(LocalDateTime start, LocalDateTime end);
 }
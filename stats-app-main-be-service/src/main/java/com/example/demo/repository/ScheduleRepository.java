@@ -1,19 +1,31 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.WorkSchedule;
+import com.example.demo.service.ScheduledDay;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ScheduleRepository extends JpaRepository<WorkSchedule, Integer> {
 
     @Transactional
     void deleteByYearMonth(String yearMonth);
 
-    boolean existsByEmployee_IdAndYearMonthAndDayOfMonth(Integer employeeId, String yearMonth, Integer dayOfMonth);
+    @Query("""
+                SELECT DISTINCT new com.example.demo.service.ScheduledDay(ws.yearMonth, ws.dayOfMonth)
+                FROM WorkSchedule ws
+                WHERE ws.employee.id = :employeeId
+                  AND ws.yearMonth IN :yearMonths
+            """)
+    List<ScheduledDay> findScheduledDays(@Param("employeeId") Integer employeeId,
+                                         @Param("yearMonths") Collection<String> yearMonths);
 
     @Query("""
                 SELECT COUNT(ws.id) > 0
@@ -0,0 +1,33 @@
+package com.example.demo.repository.stats;
+
+import com.example.demo.entity.id_class.EmployeeDateKey;
+import com.example.demo.entity.stats.EmployeeDayPartialsEntity;
+import com.example.demo.service.stats.EmployeePartialsSum;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyEmployeePartialsRepository extends JpaRepository<EmployeeDayPartialsEntity, EmployeeDateKey> {
+
+    @Modifying
+    @Query("""
+                DELETE FROM EmployeeDayPartialsEntity p
+                WHERE p.startDay BETWEEN :from AND :to
+            """)
+    int deleteByStartDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+                SELECT new com.example.demo.service.stats.EmployeePartialsSum(p.employeeId, SUM(p.numerator), SUM(p.denominator))
+                FROM EmployeeDayPartialsEntity p
+                WHERE p.startDay >= :from
+                  AND p.startDay < :to
+                GROUP BY p.employeeId
+            """)
+    List<EmployeePartialsSum> sumByEmployeeBetween(@Param("from") LocalDate from, @Param("to") LocalDate toExclusive);
+}
@@ -0,0 +1,9 @@
+package com.example.demo.repository.stats;
+
+import com.example.demo.entity.stats.StatsWatermarkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StatsWatermarkRepository extends JpaRepository<StatsWatermarkEntity, String> {
+}
@@ -3,10 +3,6 @@ package com.example.demo.schedule.processor;
 import com.example.demo.exception.ScheduleValidationException;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -15,11 +11,11 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
 
 import static com.example.demo.schedule.processor.ReportCreator.writeLogFile;
 import static com.example.demo.schedule.processor.ScheduleReader.MODE_SET;
-import static com.example.demo.util.ExcelUtil.getCellValueAsString;
+import static com.example.demo.schedule.processor.ScheduleReaderHelper.isEmployeeRow;
 
 @Slf4j
 @Component
@@ -61,10 +57,9 @@ public class ExcelValidateUtil {
         throw new ScheduleValidationException(message + ": " + e.getMessage());
     }
 
-    void validateFile(Sheet sheet, Set<String> employeesCodes, Set<String> roomCodes, List<Integer> employeesRowsIndexes) {
-        validateFirstColumnEntries(sheet, employeesCodes, roomCodes);
-        validateEmployeeRowEntries(sheet, employeesRowsIndexes, employeesCodes);
-        validateRoomRows(sheet, employeesCodes, roomCodes);
+    //Validation of a streamed sheet - rows are checked as they come, finish() reports once the sheet was read
+    SheetValidation sheetValidation(ScheduleReferenceData reference) {
+        return new SheetValidation(reference);
     }
 
     boolean isValidDay(YearMonth yearMonth, int day) {
@@ -76,13 +71,46 @@ public class ExcelValidateUtil {
         }
     }
 
-    protected boolean validateFirstColumnEntries(Sheet sheet, Set<String> employeesCodes, Set<String> roomNames) {
-        DataFormatter dataFormatter = new DataFormatter();
-        boolean headerFound = false;
+    class SheetValidation implements Consumer<ScheduleSheetRow> {
+        private final ScheduleReferenceData reference;
+        private final List<Integer> employeesRowsIndexes = new ArrayList<>();
+        //kept apart so that errors are reported grouped by check, in sheet order within a check
+        private final List<String> employeeRowErrors = new ArrayList<>();
+        private final List<String> roomRowErrors = new ArrayList<>();
+        private boolean headerFound = false;
 
-        for (Row row : sheet) {
-            Cell firstCell = row.getCell(0);
-            String cellValue = (firstCell == null) ? "" : dataFormatter.formatCellValue(firstCell).trim();
+        private SheetValidation(ScheduleReferenceData reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public void accept(ScheduleSheetRow row) {
+            validateFirstColumnEntry(row);
+            if (isEmployeeRow(row, reference)) {
+                employeesRowsIndexes.add(row.rowNum());
+                validateEmployeeRowEntries(row);
+            }
+            if (reference.isRoomCode(row.cell(0).toUpperCase())) {
+                validateRoomRow(row);
+            }
+        }
+
+        //Indexes of the employee rows, in sheet order
+        List<Integer> finish() {
+            if (!headerFound) {
+                throw new IllegalStateException("❌ Header 'Kod pracownika' not found in the first column.");
+            }
+            if (employeesRowsIndexes.isEmpty()) {
+                String errorMsg = "No rows with employees codes were found. Schedule file is invalid.";
+                addValidationError(errorMsg);
+            }
+            employeeRowErrors.forEach(ExcelValidateUtil.this::addValidationError);
+            roomRowErrors.forEach(ExcelValidateUtil.this::addValidationError);
+            return employeesRowsIndexes;
+        }
+
+        private void validateFirstColumnEntry(ScheduleSheetRow row) {
+            String cellValue = row.cell(0);
 
             boolean headerJustFound = false;
             if (!headerFound && cellValue.equalsIgnoreCase(ScheduleReader.EMPLOYEE_CODE_HEADER)) {
@@ -92,72 +120,45 @@ public class ExcelValidateUtil {
 
             if (!headerFound || headerJustFound ||
                     cellValue.isBlank() ||
-                    employeesCodes.contains(cellValue.toUpperCase()) ||
+                    reference.isEmployeeCode(cellValue) ||
                     cellValue.equalsIgnoreCase("OK") ||
-                    roomNames.contains(cellValue.toUpperCase())) {
-                continue;
+                    reference.isRoomCode(cellValue.toUpperCase())) {
+                return;
             }
 
             String errorMsg = String.format(
                     "❌ Invalid entry in first column at row %d: '%s' is not an employee code or a room name.",
-                    row.getRowNum() + 1, cellValue);
+                    row.rowNum() + 1, cellValue);
             addValidationError(errorMsg);
             throw new IllegalStateException(errorMsg);
         }
 
-        if (!headerFound) {
-            throw new IllegalStateException("❌ Header 'Kod pracownika' not found in the first column.");
-        }
-        return true;
-    }
-
-    protected void validateEmployeeRowEntries(Sheet sheet, List<Integer> employeesRowsIndexes, Set<String> employeesCodes) {
-        if (employeesRowsIndexes.isEmpty()) {
-            String errorMsg = "No rows with employees codes were found. Schedule file is invalid.";
-            addValidationError(errorMsg);
-        }
-        for (Integer rowIndex : employeesRowsIndexes) {
-            Row row = sheet.getRow(rowIndex);
-            if (row == null) continue;
-
-            for (int colIndex = 1; colIndex < row.getLastCellNum(); colIndex++) {
-                Cell cell = row.getCell(colIndex);
-                String cellValue = getCellValueAsString(cell).trim().toUpperCase();
+        private void validateEmployeeRowEntries(ScheduleSheetRow row) {
+            for (int colIndex = 1; colIndex < row.lastCellNum(); colIndex++) {
+                String cellValue = row.cell(colIndex).toUpperCase();
 
                 if (cellValue.isEmpty()) continue;
 
-                if (!employeesCodes.contains(cellValue) && !MODE_SET.contains(cellValue)) {
+                if (!reference.isEmployeeCode(cellValue) && !MODE_SET.contains(cellValue)) {
                     String errorMsg = String.format("❌ Invalid value at row %d, column %d: '%s'. It is neither a valid employee code nor a valid mode.",
-                            rowIndex + 1, colIndex + 1, cellValue);
+                            row.rowNum() + 1, colIndex + 1, cellValue);
                     log.error(errorMsg);
-                    addValidationError(errorMsg);
+                    employeeRowErrors.add(errorMsg);
                 }
             }
         }
-    }
-
-    public void validateRoomRows(Sheet sheet, Set<String> employeesCodes, Set<String> roomNames) {
-        for (Row row : sheet) {
-            Cell firstCell = row.getCell(0);
-            if (firstCell == null) continue;
-
-            String cellValue = getCellValueAsString(firstCell).trim().toUpperCase();
 
-            if (roomNames.contains(cellValue)) {
-                for (int colIndex = 1; colIndex < row.getLastCellNum(); colIndex++) {
-                    Cell cell = row.getCell(colIndex);
-                    String value = getCellValueAsString(cell).trim().toUpperCase();
+        private void validateRoomRow(ScheduleSheetRow row) {
+            for (int colIndex = 1; colIndex < row.lastCellNum(); colIndex++) {
+                String value = row.cell(colIndex).toUpperCase();
 
-                    if (!value.isEmpty() && !employeesCodes.contains(value)) {
-                        String errorMessage = String.format("❌ Invalid value in room row %d, column %d: '%s'. " +
-                                "Only employee codes are allowed.", row.getRowNum() + 1, colIndex + 1, value);
-                        addValidationError(errorMessage);
-                        log.error(errorMessage);
-                    }
+                if (!value.isEmpty() && !reference.isEmployeeCode(value)) {
+                    String errorMessage = String.format("❌ Invalid value in room row %d, column %d: '%s'. " +
+                            "Only employee codes are allowed.", row.rowNum() + 1, colIndex + 1, value);
+                    roomRowErrors.add(errorMessage);
+                    log.error(errorMessage);
                 }
             }
         }
     }
-
-
 }
@@ -3,29 +3,26 @@ package com.example.demo.schedule.processor;
 import com.example.demo.entity.UserEntity;
 import com.example.demo.entity.WorkSchedule;
 import com.example.demo.exception.ScheduleValidationException;
-import com.example.demo.repository.ScheduleRepository;
 import com.example.demo.service.ScheduleAssignmentJobQueue;
 import com.example.demo.service.ActivityEmployeeAssignmentsCreator;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.IntStream;
 
 import static com.example.demo.schedule.processor.ScheduleReaderHelper.*;
-import static com.example.demo.util.ExcelUtil.getCellValueAsString;
 import static com.example.demo.util.TimeUtil.*;
 
 @Slf4j
@@ -40,7 +37,7 @@ public class ScheduleReader {
     private volatile boolean processing = false;
 
     private final LateWorkSchedulesHandler lateSchedulesHandler;
-    private final ScheduleRepository scheduleRepository;
+    private final WorkScheduleWriter workScheduleWriter;
     private final ScheduleAssignmentJobQueue jobQueue;
     private final ScheduleReaderHelper helper;
     private final LogUtil logUtil;
@@ -55,14 +52,13 @@ public class ScheduleReader {
         var workSchedules = new ArrayList<WorkSchedule>();
         File excelFile = new File(filePath);
 
-        try (var fis = new FileInputStream(excelFile)) {
-            var sheet = loadAndValidateExcelSheet(fis, excelFile, filePath);
-            Set<String> employeesCodes = helper.employeesCodes();
-            var employeesRowsIndexes = getRowsWithEmployees(sheet, employeesCodes);
+        try {
+            var reference = helper.loadReferenceData();
+            var employeesRowsIndexes = loadAndValidateExcelSheet(excelFile, filePath, reference);
 
             logUtil.logEmployeesRowPositions(employeesRowsIndexes);
 
-            processAllEmployees(sheet, employeesRowsIndexes, employeesCodes, workSchedules);
+            processAllEmployees(excelFile, employeesRowsIndexes, reference, workSchedules);
 
             helper.cleanOverwrittenTables(yearMonth);
             lateSchedulesHandler.addLateWorkSchedulesForLatestEndTime(workSchedules, yearMonth);
@@ -75,7 +71,7 @@ public class ScheduleReader {
             processing = false;
         }
 
-        scheduleRepository.saveAll(workSchedules);
+        workScheduleWriter.insertAll(workSchedules);
 
 //        async grpc service invocation
         helper.sendSchedulesToReportCreator(workSchedules, jwt);
@@ -96,22 +92,18 @@ public class ScheduleReader {
     }
 
 
-    private Sheet loadAndValidateExcelSheet(FileInputStream fis, File excelFile, String filePath) throws IOException {
+    //First pass over the sheet - returns the indexes of the employee rows
+    private List<Integer> loadAndValidateExcelSheet(File excelFile, String filePath, ScheduleReferenceData reference) throws IOException {
         validateUtil.checkFileExists(excelFile, filePath);
-        try (XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
-            var sheet = workbook.getSheetAt(0);
+        yearMonth = parseYearMonthFromFileName(excelFile.getName());
 
-            yearMonth = parseYearMonthFromFileName(excelFile.getName());
+        var validation = validateUtil.sheetValidation(reference);
+        ScheduleSheetReader.read(excelFile, validation);
+        var employeesRowsIndexes = validation.finish();
 
-            Set<String> employeesCodes = helper.employeesCodes();
-            Set<String> roomCodes = helper.getAllRoomCodes();
-            var employeesRowsIndexes = getRowsWithEmployees(sheet, employeesCodes);
+        validateUtil.handleValidationErrors(filePath, excelFile.getName());
 
-            validateUtil.validateFile(sheet, employeesCodes, roomCodes, employeesRowsIndexes);
-            validateUtil.handleValidationErrors(filePath, excelFile.getName());
-
-            return sheet;
-        }
+        return employeesRowsIndexes;
     }
 
     private void checkAndSetProcessing() {
@@ -120,40 +112,50 @@ public class ScheduleReader {
         cancelled = false;
     }
 
+    /*  Second pass over the sheet. An employee row needs the row above it (days) and the two below it (start, end),
+        so only the last 4 rows are kept and an employee row is processed once the row two below it was read.
+        Rows missing in the file are null, as with Sheet.getRow.  */
     private void processAllEmployees(
-            Sheet sheet,
+            File excelFile,
             List<Integer> employeesRowsIndexes,
-            Set<String> employeesCodes,
+            ScheduleReferenceData reference,
             List<WorkSchedule> workSchedules
-    ) {
-        for (var rowIndex : employeesRowsIndexes) {
-            if (cancelled) throwCancelled();
-            processEmployeeRow(sheet, rowIndex, yearMonth, workSchedules, employeesCodes);
-        }
+    ) throws IOException {
+        var employeeRows = new HashSet<>(employeesRowsIndexes);
+        var window = new HashMap<Integer, ScheduleSheetRow>();
+        ScheduleSheetReader.read(excelFile, row -> {
+            int rowNum = row.rowNum();
+            window.put(rowNum, row);
+            window.keySet().removeIf(windowRowNum -> windowRowNum < rowNum - 3);
+
+            var workModeRow = window.get(rowNum - 2);
+            if (workModeRow != null && employeeRows.contains(workModeRow.rowNum())) {
+                if (cancelled) throwCancelled();
+                processEmployeeRow(window.get(rowNum - 3), workModeRow, window.get(rowNum - 1), row,
+                        yearMonth, workSchedules, reference);
+            }
+        });
     }
 
     private void processEmployeeRow(
-            Sheet sheet,
-            int rowIndex,
+            ScheduleSheetRow daysRow,
+            ScheduleSheetRow workModeRow,
+            ScheduleSheetRow startTimeRow,
+            ScheduleSheetRow endTimeRow,
             YearMonth yearMonth,
             List<WorkSchedule> workSchedules,
-            Set<String> employeesCodes
+            ScheduleReferenceData reference
     ) {
         //Variable setup
-        var workModeRow = sheet.getRow(rowIndex);
-        if (workModeRow == null) return;
-        var daysRow = (rowIndex > 0) ? sheet.getRow(rowIndex - 1) : null;
         var roomSymbol = extractRoomSymbol(daysRow);
-        var startTimeRow = sheet.getRow(rowIndex + 1);
-        var endTimeRow = sheet.getRow(rowIndex + 2);
-        var employeeName = getCellValueAsString(workModeRow.getCell(0)).trim();
+        var employeeName = workModeRow.cell(0);
 
         //Creating schedule row objects
-        if (startTimeRow != null && endTimeRow != null) {
+        if (startTimeRow != null) {
             IntStream.range(1, 32)
                     .filter(day -> validateUtil.isValidDay(yearMonth, day))
                     .mapToObj(day ->
-                            WorkScheduleRow.of(daysRow, workModeRow, startTimeRow, endTimeRow, day, employeesCodes))
+                            WorkScheduleRow.of(daysRow, workModeRow, startTimeRow, endTimeRow, day, reference))
                     .filter(Objects::nonNull)
                     .forEach(row -> addWorkSchedule(row, yearMonth, employeeName, roomSymbol, workSchedules));
         }
@@ -171,7 +173,7 @@ public class ScheduleReader {
         var cleanedEnd = formatTime(row.endVal());
         if (cleanedStart == null || cleanedEnd == null) return;
 
-        UserEntity employee = helper.findEmployeeByCode(employeeName);
+        UserEntity employee = row.reference().employee(employeeName);
 
         var builder = getWorkScheduleBuilder(row, yearMonth, roomSymbol, cleanedStart, cleanedEnd, employee);
 
@@ -197,14 +199,14 @@ public class ScheduleReader {
                 .roomSymbol(roomSymbol);
 
         if (row.dayBasedSubCode() != null) {
-            builder.substituteEmployee(helper.findEmployeeByCode(row.dayBasedSubCode()));
+            builder.substituteEmployee(row.reference().employee(row.dayBasedSubCode()));
         }
 
         String infoVal = row.infoVal();
         if (MODE_SET.contains(infoVal)) {
             builder.workMode(infoVal);
-        } else if (row.employeesCodes().contains(infoVal)) {
-            builder.substituteEmployee(helper.findEmployeeByCode(infoVal));
+        } else if (row.reference().isEmployeeCode(infoVal)) {
+            builder.substituteEmployee(row.reference().employee(infoVal));
             builder.workMode("S");
         } else {
             builder.workMode("S");
@@ -1,7 +1,5 @@
 package com.example.demo.schedule.processor;
 
-import com.example.demo.entity.RoomEntity;
-import com.example.demo.entity.UserEntity;
 import com.example.demo.entity.WorkSchedule;
 import com.example.demo.exception.InvalidAuthHeaderException;
 import com.example.demo.exception.ProcessCancelledException;
@@ -14,23 +12,16 @@ import com.example.demo.repository.stats.DailyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.MonthlyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.WeeklyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.YearlyEmployeeStatisticRepository;
+import com.example.demo.service.stats.StatsGeneration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.time.YearMonth;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static com.example.demo.schedule.processor.ScheduleReader.EMPLOYEE_CODE_HEADER;
-import static com.example.demo.util.ExcelUtil.getCellValueAsString;
 
 @Component
 @Slf4j
@@ -45,23 +36,12 @@ public class ScheduleReaderHelper {
     private final ScheduleRepository scheduleRepository;
     private final ProtoObjectsMapping protoObjectsMapping;
     private final GrpcSendSchedulesClient grpcClient;
+    private final StatsGeneration statsGeneration;
 
 
-    Set<String> employeesCodes() {
-        Set<UserEntity> allEmployees = new HashSet<>(userRepository.findAll());
-        return allEmployees.stream()
-                .map(e -> e.getEmployeeCode().toUpperCase())
-                .collect(Collectors.toSet());
-    }
-
-    Set<String> getAllRoomCodes() {
-        return roomRepository.findAll().stream()
-                .map(RoomEntity::getRoomCode)
-                .collect(Collectors.toSet());
-    }
-
-    UserEntity findEmployeeByCode(String employeeCode) {
-        return userRepository.findByEmployeeCode(employeeCode.toUpperCase()).orElseThrow();
+    //Employees and rooms for one import - all lookups of the import go through it
+    ScheduleReferenceData loadReferenceData() {
+        return ScheduleReferenceData.of(userRepository.findAll(), roomRepository.findAll());
     }
 
     void cleanOverwrittenTables(YearMonth yearMonth) {
@@ -71,6 +51,7 @@ public class ScheduleReaderHelper {
         deleteWeeklyStatsForMonth(yearMonth);
         deleteDailyStatsForMonth(yearMonth);
         yearlyEmployeeStatisticRepository.deleteByYear(yearMonth.getYear());
+        statsGeneration.bump("SCHEDULE_IMPORT");
     }
 
     void deleteDailyStatsForMonth(YearMonth yearMonth) {
@@ -86,36 +67,13 @@ public class ScheduleReaderHelper {
     }
 
     //util static methods
-    static List<Integer> getRowsWithEmployees(Sheet sheet, Set<String> employeesCodes) {
-        var lastPopulatedRow = getLastPopulatedRow(sheet);
-        return IntStream.rangeClosed(0, lastPopulatedRow)
-                .filter(rowIndex -> {
-                    var row = sheet.getRow(rowIndex);
-                    if (row == null) return false;
-                    var cell = row.getCell(0);
-                    if (cell == null) return false;
-                    var cellValue = getCellValueAsString(cell).toUpperCase();
-                    return employeesCodes.contains(cellValue);
-                })
-                .boxed()
-                .toList();
-    }
-
-    static int getLastPopulatedRow(Sheet sheet) {
-        var lastRowNum = sheet.getLastRowNum();
-        while (lastRowNum >= 0) {
-            var row = sheet.getRow(lastRowNum);
-            if (row != null && row.getCell(0) != null && row.getCell(0).getCellType() != CellType.BLANK) {
-                return lastRowNum;
-            }
-            lastRowNum--;
-        }
-        return -1;
+    static boolean isEmployeeRow(ScheduleSheetRow row, ScheduleReferenceData reference) {
+        return reference.isEmployeeCode(row.cell(0));
     }
 
-    static String extractRoomSymbol(Row aboveRow) {
+    static String extractRoomSymbol(ScheduleSheetRow aboveRow) {
         if (aboveRow == null) return null;
-        var val = getCellValueAsString(aboveRow.getCell(0)).trim();
+        var val = aboveRow.cell(0);
         if (!val.equalsIgnoreCase("OK") && !val.isEmpty() && !val.equalsIgnoreCase(EMPLOYEE_CODE_HEADER)) {
             return val;
         }
@@ -0,0 +1,37 @@
+package com.example.demo.schedule.processor;
+
+import com.example.demo.entity.RoomEntity;
+import com.example.demo.entity.UserEntity;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*  Employees and rooms of one schedule import, loaded once when the import starts. Validation and schedule
+    building look codes up here instead of querying per cell. Employee codes are upper case, room codes as stored.  */
+public record ScheduleReferenceData(Map<String, UserEntity> employeesByCode, Map<String, RoomEntity> roomsByCode) {
+
+    static ScheduleReferenceData of(Collection<UserEntity> employees, Collection<RoomEntity> rooms) {
+        return new ScheduleReferenceData(
+                employees.stream().collect(Collectors.toMap(
+                        e -> e.getEmployeeCode().toUpperCase(), Function.identity(), (first, duplicate) -> first)),
+                rooms.stream().collect(Collectors.toMap(
+                        RoomEntity::getRoomCode, Function.identity(), (first, duplicate) -> first)));
+    }
+
+    boolean isEmployeeCode(String code) {
+        return employeesByCode.containsKey(code.toUpperCase());
+    }
+
+    boolean isRoomCode(String code) {
+        return roomsByCode.containsKey(code);
+    }
+
+    UserEntity employee(String employeeCode) {
+        var employee = employeesByCode.get(employeeCode.toUpperCase());
+        if (employee == null) throw new NoSuchElementException("No employee with code " + employeeCode);
+        return employee;
+    }
+}
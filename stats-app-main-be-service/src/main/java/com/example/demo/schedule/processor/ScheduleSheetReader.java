@@ -0,0 +1,79 @@
+package com.example.demo.schedule.processor;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*  Reads the first sheet of an xlsx file with the SAX event API - rows are handed over one by one as they are
+    parsed, the sheet is never built in memory. Cell texts are the ones ExcelUtil.getCellValueAsString gives
+    for the same cells (formatted numbers, formula text instead of its result).  */
+public final class ScheduleSheetReader {
+
+    //Preventing class instantiation
+    private ScheduleSheetReader() {
+    }
+
+    static void read(File excelFile, Consumer<ScheduleSheetRow> rowConsumer) throws IOException {
+        try (var pkg = OPCPackage.open(excelFile, PackageAccess.READ)) {
+            var reader = new XSSFReader(pkg);
+            var sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalStateException("❌ The file has no sheets.");
+            }
+            var handler = new XSSFSheetXMLHandler(reader.getStylesTable(), null,
+                    new ReadOnlySharedStringsTable(pkg), new RowCollector(rowConsumer), new DataFormatter(), true);
+            var parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            try (var sheet = sheets.next()) {
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read xlsx file " + excelFile.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final Consumer<ScheduleSheetRow> rowConsumer;
+        private List<String> cells;
+
+        RowCollector(Consumer<ScheduleSheetRow> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new ArrayList<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            rowConsumer.accept(new ScheduleSheetRow(rowNum, cells));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            //cells without a value are not reported, the ones skipped before this one are blank
+            int colIndex = new CellReference(cellReference).getCol();
+            while (cells.size() < colIndex) {
+                cells.add("");
+            }
+            cells.add(formattedValue == null ? "" : formattedValue.trim());
+        }
+    }
+}
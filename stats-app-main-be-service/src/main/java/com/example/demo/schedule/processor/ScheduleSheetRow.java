@@ -0,0 +1,15 @@
+package com.example.demo.schedule.processor;
+
+import java.util.List;
+
+//One row of a schedule sheet as trimmed cell texts, cells missing in the file are ""
+public record ScheduleSheetRow(int rowNum, List<String> cells) {
+
+    String cell(int colIndex) {
+        return colIndex < cells.size() ? cells.get(colIndex) : "";
+    }
+
+    int lastCellNum() {
+        return cells.size();
+    }
+}
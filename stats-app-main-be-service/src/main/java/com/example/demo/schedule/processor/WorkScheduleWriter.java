@@ -0,0 +1,94 @@
+package com.example.demo.schedule.processor;
+
+import com.example.demo.entity.UserEntity;
+import com.example.demo.entity.WorkSchedule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*  Inserts imported schedules in JDBC batches instead of scheduleRepository.saveAll - WorkSchedule ids are
+    IDENTITY, so Hibernate sends one INSERT and one key fetch per row.
+
+    Ids of a batch are reserved up front with one GEN_ID(gen_work_schedule_id4, n) call, the batch takes
+    the n values ending at the returned one. bi_work_schedule only sets ids that are null, so it leaves
+    them as they are, and rows inserted elsewhere get generator values after the reserved ones.  */
+@Component
+@Slf4j
+public class WorkScheduleWriter {
+
+    //%d: number of ids to reserve
+    static final String RESERVE_IDS_SQL = "SELECT GEN_ID(gen_work_schedule_id4, %d) FROM RDB$DATABASE";
+    static final String INSERT_SQL = """
+            INSERT INTO work_schedule (id, year_month, day_of_month, employee_id, substitute_employee_id, room_symbol,
+                                       work_mode, work_start_time, work_end_time, work_duration_minutes, processed)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public WorkScheduleWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${schedule.import.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("schedule.import.batch-size must be positive, got " + batchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    //Sets the ids of the inserted schedules - they stay detached, as after saveAll outside a persistence context
+    public void insertAll(List<WorkSchedule> workSchedules) {
+        if (workSchedules.isEmpty()) return;
+        //pending JPA changes of the import (deleted schedules of the month) go first
+        entityManager.flush();
+
+        for (int from = 0; from < workSchedules.size(); from += batchSize) {
+            var batch = workSchedules.subList(from, Math.min(from + batchSize, workSchedules.size()));
+            int id = reserveIds(batch.size());
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (var workSchedule : batch) {
+                workSchedule.setId(id++);
+                rows.add(toRow(workSchedule));
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+        log.info("Inserted {} work schedules", workSchedules.size());
+    }
+
+    //First of count consecutive ids no one else gets from the generator
+    private int reserveIds(int count) {
+        long last = Objects.requireNonNull(jdbcTemplate.queryForObject(RESERVE_IDS_SQL.formatted(count), Long.class));
+        return Math.toIntExact(last - count + 1);
+    }
+
+    private static Object[] toRow(WorkSchedule workSchedule) {
+        return new Object[]{
+                workSchedule.getId(),
+                workSchedule.getYearMonth(),
+                workSchedule.getDayOfMonth(),
+                workSchedule.getEmployee().getId(),
+                employeeId(workSchedule.getSubstituteEmployee()),
+                workSchedule.getRoomSymbol(),
+                workSchedule.getWorkMode(),
+                workSchedule.getWorkStartTime(),
+                workSchedule.getWorkEndTime(),
+                workSchedule.getWorkDurationMinutes(),
+                //as BooleanToSmallIntConverter writes it
+                Boolean.TRUE.equals(workSchedule.getProcessed()) ? 1 : 0
+        };
+    }
+
+    private static Integer employeeId(UserEntity employee) {
+        return employee == null ? null : employee.getId();
+    }
+}
@@ -34,7 +34,7 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers("/api/login", "/api/register", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                        .requestMatchers("/api/procedures").hasAnyAuthority("ADMIN", "REASSIGN_ALLOWED")
+                        .requestMatchers("/api/procedures", "/api/procedures/bulk").hasAnyAuthority("ADMIN", "REASSIGN_ALLOWED")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -64,6 +64,7 @@ public class SecurityConfig {
                         .allowedOriginPatterns(frontendUrls)
                         .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("ETag", "X-Current-Employee-Code")
                         .allowCredentials(true);
             }
         };
@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static com.example.demo.service.ActivityServiceHelper.KEYSET_NO_TIME;
+
+/*  Opaque position in keyset paged activities: key (activityDate, activityTime, activityId) of the last row
+    of a page (next) or of the first row (prev), encoded as base64url text.  */
+record ActivityCursor(boolean backward, LocalDateTime date, Timestamp time, int activityId) {
+
+    static ActivityCursor next(ActivityDto last) {
+        return of(false, last);
+    }
+
+    static ActivityCursor prev(ActivityDto first) {
+        return of(true, first);
+    }
+
+    private static ActivityCursor of(boolean backward, ActivityDto activity) {
+        Timestamp time = activity.getActivityTime() != null ? activity.getActivityTime() : KEYSET_NO_TIME;
+        return new ActivityCursor(backward, activity.getActivityDate().toLocalDateTime(), time, activity.getActivityId());
+    }
+
+    String encode() {
+        String raw = (backward ? "P" : "N") + "|" + date + "|" + time.getTime() + "|" + activityId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ActivityCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 4 || !(parts[0].equals("N") || parts[0].equals("P"))) {
+                throw new IllegalArgumentException("unexpected format");
+            }
+            return new ActivityCursor(parts[0].equals("P"), LocalDateTime.parse(parts[1]),
+                    new Timestamp(Long.parseLong(parts[2])), Integer.parseInt(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid activities cursor: " + cursor, e);
+        }
+    }
+}
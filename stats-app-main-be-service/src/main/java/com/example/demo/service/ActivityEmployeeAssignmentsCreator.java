@@ -1,8 +1,10 @@
 package com.example.demo.service;
 
 
+import com.example.demo.dto.UpdateEventDto;
 import com.example.demo.repository.ActivityEmployeeRepository;
 import com.example.demo.repository.ScheduleRepository;
+import com.example.demo.service.stats.DirtyPeriodTracker;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +35,8 @@ public class ActivityEmployeeAssignmentsCreator {
 
     private final ActivityEmployeeRepository activityEmployeeRepository;
     private final ScheduleRepository scheduleRepository;
+    private final DirtyPeriodTracker dirtyPeriodTracker;
+    private final UpdateStreamService updateStream;
 
     @Transactional
     public void createActivityEmployeeAssignments(boolean fromScheduleImport, String yearMonth) throws IOException {
@@ -63,6 +67,12 @@ public class ActivityEmployeeAssignmentsCreator {
         if (fromScheduleImport) {
             log.info("Setting processed for rows with current schedule's period");
             scheduleRepository.setProcessedByYearMonth(yearMonth);
+            YearMonth ym = YearMonth.parse(yearMonth);
+            dirtyPeriodTracker.markDirty(ym.atDay(1), ym.atEndOfMonth(), "SCHEDULE_IMPORT");
+            updateStream.publish(UpdateEventDto.scheduleImport(yearMonth));
+        } else {
+            dirtyPeriodTracker.markDirtyForAssignmentBatch(createdAt);
+            updateStream.publish(UpdateEventDto.assignments());
         }
         log.info("New ActivityEmployee assignments have been created.");
     }
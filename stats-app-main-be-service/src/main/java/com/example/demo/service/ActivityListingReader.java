@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.example.demo.service.ActivityServiceHelper.KEYSET_NO_TIME;
+
+/*  Pages of GET /api/procedures (offset and keyset) read straight into ActivityDto - no entities, no persistence context.
+
+    The page is cut in a derived table (FIRST/SKIP) and joined with its assignees there, so one query returns
+    the activity columns, the history flag and one row per assignee. Rows of an activity are merged in Java.  */
+@Component
+@RequiredArgsConstructor
+public class ActivityListingReader {
+
+    //%1$s: page size, %2$s: offset, %3$s: date filter, %4$s: sort direction
+    static final String SELECT_PAGE_SQL = """
+            SELECT a.ZAJECIE_ID, a.ZAJECIE_DATA, a.ZAJECIE_GODZ, a.ZABIEG_NAZWA, a.ZABIEG_NAZWA2, a.ZABIEG_UWAGI,
+                   a.HAS_HISTORY, e.EMPLOYEE_ID, e.EMPLOYEE_FULLNAME
+            FROM (SELECT FIRST %1$s SKIP %2$s z.ZAJECIE_ID, z.ZAJECIE_DATA, z.ZAJECIE_GODZ,
+                         p.ZABIEG_NAZWA, p.ZABIEG_NAZWA2, p.ZABIEG_UWAGI,
+                         CASE WHEN EXISTS (SELECT 1 FROM activity_assignment_log l WHERE l.activity_id = z.ZAJECIE_ID)
+                              THEN 1 ELSE 0 END AS HAS_HISTORY
+                  FROM ZAJECIE z
+                           LEFT JOIN ZABIEG p ON p.ZABIEG_ID = z.zabieg_id
+                  %3$s
+                  ORDER BY z.ZAJECIE_DATA %4$s, z.ZAJECIE_GODZ %4$s, z.ZAJECIE_ID %4$s) a
+                     LEFT JOIN activity_employee ae ON ae.activity_id = a.ZAJECIE_ID
+                     LEFT JOIN EMPLOYEE e ON e.EMPLOYEE_ID = ae.employee_id
+            ORDER BY a.ZAJECIE_DATA %4$s, a.ZAJECIE_GODZ %4$s, a.ZAJECIE_ID %4$s
+            """;
+
+    /*  Keyset page: the activities following a key (activityDate, activityTime, activityId). The callers clamp the
+        date range to the date of the key, so the rest of the key only applies to rows of that date. A missing
+        activityTime is compared as KEYSET_NO_TIME, as Firebird sorts NULLs first ascending and last descending.
+        %1$s: number of activities, %2$s: '>' after the key or '<' before it, %3$s: matching sort direction  */
+    static final String SELECT_KEYSET_SQL = """
+            SELECT a.ZAJECIE_ID, a.ZAJECIE_DATA, a.ZAJECIE_GODZ, a.ZABIEG_NAZWA, a.ZABIEG_NAZWA2, a.ZABIEG_UWAGI,
+                   a.HAS_HISTORY, e.EMPLOYEE_ID, e.EMPLOYEE_FULLNAME
+            FROM (SELECT FIRST %1$s z.ZAJECIE_ID, z.ZAJECIE_DATA, z.ZAJECIE_GODZ,
+                         p.ZABIEG_NAZWA, p.ZABIEG_NAZWA2, p.ZABIEG_UWAGI,
+                         CASE WHEN EXISTS (SELECT 1 FROM activity_assignment_log l WHERE l.activity_id = z.ZAJECIE_ID)
+                              THEN 1 ELSE 0 END AS HAS_HISTORY
+                  FROM ZAJECIE z
+                           LEFT JOIN ZABIEG p ON p.ZABIEG_ID = z.zabieg_id
+                  WHERE z.ZAJECIE_DATA BETWEEN ? AND ?
+                    AND (z.ZAJECIE_DATA %2$s ?
+                         OR COALESCE(z.ZAJECIE_GODZ, ?) %2$s ?
+                         OR (COALESCE(z.ZAJECIE_GODZ, ?) = ? AND z.ZAJECIE_ID %2$s ?))
+                  ORDER BY z.ZAJECIE_DATA %3$s, z.ZAJECIE_GODZ %3$s, z.ZAJECIE_ID %3$s) a
+                     LEFT JOIN activity_employee ae ON ae.activity_id = a.ZAJECIE_ID
+                     LEFT JOIN EMPLOYEE e ON e.EMPLOYEE_ID = ae.employee_id
+            ORDER BY a.ZAJECIE_DATA %3$s, a.ZAJECIE_GODZ %3$s, a.ZAJECIE_ID %3$s
+            """;
+
+    //activities of the bulk endpoints, %s: id placeholders
+    static final String SELECT_BY_IDS_SQL = """
+            SELECT z.ZAJECIE_ID, z.ZAJECIE_DATA, z.ZAJECIE_GODZ, p.ZABIEG_NAZWA, p.ZABIEG_NAZWA2, p.ZABIEG_UWAGI,
+                   CASE WHEN EXISTS (SELECT 1 FROM activity_assignment_log l WHERE l.activity_id = z.ZAJECIE_ID)
+                        THEN 1 ELSE 0 END AS HAS_HISTORY,
+                   e.EMPLOYEE_ID, e.EMPLOYEE_FULLNAME
+            FROM ZAJECIE z
+                     LEFT JOIN ZABIEG p ON p.ZABIEG_ID = z.zabieg_id
+                     LEFT JOIN activity_employee ae ON ae.activity_id = z.ZAJECIE_ID
+                     LEFT JOIN EMPLOYEE e ON e.EMPLOYEE_ID = ae.employee_id
+            WHERE z.ZAJECIE_ID IN (%s)
+            """;
+
+    static final String COUNT_SQL = "SELECT COUNT(*) FROM ZAJECIE z %s";
+
+    private static final String DATE_FILTER = "WHERE z.ZAJECIE_DATA BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /*  Activities dated within [from, to], all activities when both are null. Sorted by activityDate in the
+        direction of the pageable sort. The COUNT is skipped when the page alone tells the total.  */
+    public Page<ActivityDto> readPage(LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        boolean filtered = from != null && to != null;
+        String filter = filtered ? DATE_FILTER : "";
+        Object[] params = filtered ? new Object[]{Timestamp.valueOf(from), Timestamp.valueOf(to)} : new Object[0];
+
+        String sql = SELECT_PAGE_SQL.formatted(pageable.getPageSize(), pageable.getOffset(), filter, direction(pageable));
+        Map<Integer, ActivityDto> activities = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, (ResultSet rs) -> readRow(rs, activities), params);
+
+        return PageableExecutionUtils.getPage(new ArrayList<>(activities.values()), pageable,
+                () -> Objects.requireNonNull(jdbcTemplate.queryForObject(COUNT_SQL.formatted(filter), Long.class, params)));
+    }
+
+    //'limit' activities dated within [from, to] after (or before) the key, in the order they were read
+    public List<ActivityDto> readKeyset(LocalDateTime from, LocalDateTime to, ActivityCursor key, boolean after, int limit) {
+        String sql = SELECT_KEYSET_SQL.formatted(limit, after ? ">" : "<", after ? "ASC" : "DESC");
+        Map<Integer, ActivityDto> activities = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, (ResultSet rs) -> readRow(rs, activities),
+                Timestamp.valueOf(from), Timestamp.valueOf(to), Timestamp.valueOf(key.date()),
+                KEYSET_NO_TIME, key.time(), KEYSET_NO_TIME, key.time(), key.activityId());
+        return new ArrayList<>(activities.values());
+    }
+
+    //Activities by id, with the same columns as a page - ids without an activity are left out
+    public Map<Integer, ActivityDto> readActivities(Collection<Integer> activityIds) {
+        Map<Integer, ActivityDto> activities = new LinkedHashMap<>();
+        if (activityIds.isEmpty()) {
+            return activities;
+        }
+        String sql = SELECT_BY_IDS_SQL.formatted(String.join(", ", Collections.nCopies(activityIds.size(), "?")));
+        jdbcTemplate.query(sql, (ResultSet rs) -> readRow(rs, activities), activityIds.toArray());
+        return activities;
+    }
+
+    //Appends the current row of a SELECT_PAGE_SQL, SELECT_KEYSET_SQL or SELECT_BY_IDS_SQL result - the first row of an activity creates its dto
+    static void readRow(ResultSet rs, Map<Integer, ActivityDto> activities) throws SQLException {
+        ActivityDto dto = activities.get(rs.getInt(1));
+        if (dto == null) {
+            dto = new ActivityDto();
+            dto.setActivityId(rs.getInt(1));
+            dto.setActivityDate(rs.getTimestamp(2));
+            dto.setActivityTime(rs.getTimestamp(3));
+            dto.setProcedureName(rs.getString(4));
+            dto.setProcedureType(rs.getString(5));
+            dto.setWorkMode(rs.getString(6));
+            dto.setHasHistory(rs.getInt(7) == 1);
+            dto.setEmployeesAssigned(new HashSet<>());
+            dto.setEmployeeIdsAssigned(new HashSet<>());
+            activities.put(dto.getActivityId(), dto);
+        }
+        Integer employeeId = rs.getObject(8, Integer.class);
+        if (employeeId != null) {
+            dto.getEmployeeIdsAssigned().add(employeeId);
+            dto.getEmployeesAssigned().add(rs.getString(9));
+        }
+    }
+
+    private static String direction(Pageable pageable) {
+        Sort.Order order = pageable.getSort().getOrderFor("activityDate");
+        return order != null && order.isDescending() ? "DESC" : "ASC";
+    }
+}
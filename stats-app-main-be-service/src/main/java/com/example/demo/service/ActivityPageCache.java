@@ -0,0 +1,239 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/*  LRU cache of month pages of GET /api/procedures?month= - the part that is the same for every user
+    (activities, assignees, history flags). Callers get copies and set the per-user flags on them.
+
+    Invalidation:
+    - ActivityService claims/restores evict the month of the activity after commit
+    - the highest ids of ZMIANY_ZAJ, stats_dirty_range and activity_employee (the version of the activities ETag,
+      handed over by EtagService) are compared with the last seen ones; rows added since then evict their months.
+      At most one lookup per sync-interval runs these queries, outside of any lock - until it is done, lookups
+      under a newer version than the seen one load their page without the cache
+    - AssignmentLogBuffer evicts the months of history rows once it has written them
+    A page loaded while its month was evicted is not stored, it may have been read before the change.
+    Ids are taken from generators before commit, so a transaction may commit rows below the seen ids. It still
+    moves the commit count of the version, and then 'activities.page-cache.look-back-ids' below the seen ids
+    are read again. Pages older than activities.page-cache.ttl are loaded again in any case.  */
+@Component
+@Slf4j
+public class ActivityPageCache {
+
+    static final String SELECT_ACTIVITY_MONTHS_SQL = """
+            SELECT DISTINCT EXTRACT(YEAR FROM a.ZAJECIE_DATA), EXTRACT(MONTH FROM a.ZAJECIE_DATA)
+            FROM ZMIANY_ZAJ z
+                     JOIN ZAJECIE a ON a.ZAJECIE_ID = z.ZMIENIONO_ID
+            WHERE z.ZMIANY_ZAB_ID > ? AND z.ZMIANY_ZAB_ID <= ?
+            """;
+    //deleted activities are not in ZAJECIE any more - trg_zajecie_del_stats_dirty records their dates here
+    static final String SELECT_DIRTY_RANGES_SQL = """
+            SELECT dirty_from, dirty_to
+            FROM stats_dirty_range
+            WHERE id > ? AND id <= ?
+            """;
+    static final String SELECT_ASSIGNMENT_MONTHS_SQL = """
+            SELECT DISTINCT EXTRACT(YEAR FROM a.ZAJECIE_DATA), EXTRACT(MONTH FROM a.ZAJECIE_DATA)
+            FROM activity_employee ae
+                     JOIN ZAJECIE a ON a.ZAJECIE_ID = ae.activity_id
+            WHERE ae.id > ? AND ae.id <= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long syncIntervalNanos;
+    private final long ttlNanos;
+    private final int lookBackIds;
+    private final Map<Key, Entry> pages;
+    private final AtomicReference<ActivityVersion> seen = new AtomicReference<>();
+    private final AtomicLong nextSyncAt = new AtomicLong(System.nanoTime());
+    private volatile VersionRead lastRead;
+
+    //guarded by pages
+    private long evictions;
+
+    public ActivityPageCache(JdbcTemplate jdbcTemplate,
+                             @Value("${activities.page-cache.max-pages:500}") int maxPages,
+                             @Value("${activities.page-cache.sync-interval:1s}") Duration syncInterval,
+                             @Value("${activities.page-cache.ttl:1m}") Duration ttl,
+                             @Value("${activities.page-cache.look-back-ids:1000}") int lookBackIds) {
+        if (lookBackIds < 0) {
+            throw new IllegalArgumentException("activities.page-cache.look-back-ids must not be negative, got " + lookBackIds);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.lookBackIds = lookBackIds;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.ttlNanos = ttl.toNanos();
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    //Page of the month from the cache, loaded and stored when missing
+    public Page<ActivityDto> page(YearMonth month, Pageable pageable, Supplier<Page<ActivityDto>> loader) {
+        if (!syncWithDatabase()) {
+            return loader.get();
+        }
+        var key = new Key(month, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+        Entry entry;
+        long evictionsBeforeLoad;
+        synchronized (pages) {
+            entry = pages.get(key);
+            evictionsBeforeLoad = evictions;
+        }
+        if (entry == null || System.nanoTime() - entry.loadedAt() >= ttlNanos) {
+            entry = new Entry(loader.get(), System.nanoTime());
+            synchronized (pages) {
+                if (evictions == evictionsBeforeLoad) {
+                    pages.put(key, entry);
+                }
+            }
+        }
+        return entry.page().map(ActivityPageCache::copy);
+    }
+
+    //Version the activities ETag of the current request was built from
+    public void versionRead(ActivityVersion version) {
+        if (version != null) {
+            lastRead = new VersionRead(version, System.nanoTime());
+        }
+    }
+
+    //Evicts the month of the day once the current transaction commits
+    public void evictAfterCommit(LocalDate day) {
+        if (day == null) return;
+        YearMonth month = YearMonth.from(day);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(Set.of(month));
+                }
+            });
+        } else {
+            evict(Set.of(month));
+        }
+    }
+
+    int size() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    //false when the cache may be older than the version of the request and another lookup is syncing it
+    private boolean syncWithDatabase() {
+        long now = System.nanoTime();
+        long due = nextSyncAt.get();
+        if (now - due < 0 || !nextSyncAt.compareAndSet(due, now + syncIntervalNanos)) {
+            VersionRead read = lastRead;
+            return read == null || read.version().equals(seen.get());
+        }
+        ActivityVersion previous = seen.get();
+        ActivityVersion current = currentVersion(now);
+        if (current == null || current.equals(previous)) {
+            return true;
+        }
+        //nothing is cached before the first lookup
+        if (previous != null) {
+            evict(changedMonths(previous, current));
+            //a request may have read its version before the one already seen
+            current = new ActivityVersion(Math.max(previous.activityChanges(), current.activityChanges()),
+                    Math.max(previous.dirtyRanges(), current.dirtyRanges()),
+                    Math.max(previous.assignments(), current.assignments()),
+                    Math.max(previous.commits(), current.commits()));
+        }
+        seen.compareAndSet(previous, current);
+        return true;
+    }
+
+    //the version read for the ETag of this request, unless it is older than the sync interval
+    private ActivityVersion currentVersion(long now) {
+        VersionRead read = lastRead;
+        if (read != null && now - read.readAt() < syncIntervalNanos) {
+            return read.version();
+        }
+        return jdbcTemplate.queryForObject(EtagService.SELECT_ACTIVITY_VERSION_SQL, EtagService.ACTIVITY_VERSION_MAPPER);
+    }
+
+    private Set<YearMonth> changedMonths(ActivityVersion seen, ActivityVersion current) {
+        //new commits may have rows below the seen ids
+        int lookBack = current.commits() > seen.commits() ? lookBackIds : 0;
+        long activityChangesFrom = Math.max(0, seen.activityChanges() - lookBack);
+        long dirtyRangesFrom = Math.max(0, seen.dirtyRanges() - lookBack);
+        long assignmentsFrom = Math.max(0, seen.assignments() - lookBack);
+
+        var months = new HashSet<YearMonth>();
+        if (current.activityChanges() > activityChangesFrom) {
+            jdbcTemplate.query(SELECT_ACTIVITY_MONTHS_SQL, rs -> {
+                months.add(YearMonth.of(rs.getInt(1), rs.getInt(2)));
+            }, activityChangesFrom, current.activityChanges());
+        }
+        if (current.dirtyRanges() > dirtyRangesFrom) {
+            jdbcTemplate.query(SELECT_DIRTY_RANGES_SQL, rs -> {
+                YearMonth to = YearMonth.from(rs.getTimestamp(2).toLocalDateTime());
+                for (var m = YearMonth.from(rs.getTimestamp(1).toLocalDateTime()); !m.isAfter(to); m = m.plusMonths(1)) {
+                    months.add(m);
+                }
+            }, dirtyRangesFrom, current.dirtyRanges());
+        }
+        if (current.assignments() > assignmentsFrom) {
+            jdbcTemplate.query(SELECT_ASSIGNMENT_MONTHS_SQL, rs -> {
+                months.add(YearMonth.of(rs.getInt(1), rs.getInt(2)));
+            }, assignmentsFrom, current.assignments());
+        }
+        return months;
+    }
+
+    void evict(Set<YearMonth> months) {
+        if (months.isEmpty()) return;
+        synchronized (pages) {
+            evictions++;
+            pages.keySet().removeIf(key -> months.contains(key.month()));
+        }
+        log.debug("Activity pages of {} evicted", months);
+    }
+
+    //Assignee sets are shared with the cached page - per-user flags only read them
+    private static ActivityDto copy(ActivityDto cached) {
+        var dto = new ActivityDto();
+        dto.setActivityId(cached.getActivityId());
+        dto.setActivityDate(cached.getActivityDate());
+        dto.setActivityTime(cached.getActivityTime());
+        dto.setProcedureName(cached.getProcedureName());
+        dto.setProcedureType(cached.getProcedureType());
+        dto.setWorkMode(cached.getWorkMode());
+        dto.setRoomCode(cached.getRoomCode());
+        dto.setHasHistory(cached.isHasHistory());
+        dto.setEmployeesAssigned(cached.getEmployeesAssigned());
+        dto.setEmployeeIdsAssigned(cached.getEmployeeIdsAssigned());
+        return dto;
+    }
+
+    private record Key(YearMonth month, int page, int size, String sort) {
+    }
+
+    private record Entry(Page<ActivityDto> page, long loadedAt) {
+    }
+
+    private record VersionRead(ActivityVersion version, long readAt) {
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.UpdateEventDto;
+import com.example.demo.dto.bsn_logic_dto.ActivityCursorPageDto;
 import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import com.example.demo.dto.bsn_logic_dto.BulkAssignmentDto;
 import com.example.demo.entity.ActivityEmployeeEntity;
 import com.example.demo.entity.ActivityEntity;
 import com.example.demo.entity.UserEntity;
@@ -8,27 +11,36 @@ import com.example.demo.mapper.ActivityMapper;
 import com.example.demo.repository.ActivityAssignmentLogRepository;
 import com.example.demo.repository.ActivityEmployeeRepository;
 import com.example.demo.repository.ActivityRepository;
+import com.example.demo.service.stats.DirtyPeriodTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Set;
+import java.time.YearMonth;
+import java.util.*;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ActivityService {
 
+    //the ids go as one IN list to ActivityListingReader.readActivities, BulkAssignmentWriter.loggedEmployees
+    //and BulkAssignmentWriter.deleteAssignments
+    static final int MAX_BULK_SIZE = BulkAssignmentWriter.MAX_IN_LIST_VALUES;
+
     private final ActivityRepository activityRepository;
     private final ActivityAssignmentLogRepository activityAssignmentLogRepository;
     private final ActivityMapper activityMapper;
     private final ActivityServiceHelper helper;
     private final ActivityEmployeeRepository activityEmployeeRepository;
+    private final DirtyPeriodTracker dirtyPeriodTracker;
+    private final UpdateStreamService updateStream;
+    private final ActivityPageCache pageCache;
+    private final ActivityListingReader listingReader;
+    private final BulkAssignmentWriter bulkWriter;
 
     @Transactional
     public Page<ActivityDto> findAllActivities(int page, int size, String username,
@@ -36,17 +48,60 @@ public class ActivityService {
                                                String monthFromRequest, String sortDirection) {
 
         var sortedPageable = helper.getSortedPageable(page, size, sortDirection);
-        var activityPage = helper.fetchActivityEntities(startDateFromRequest, endDateFromRequest, monthFromRequest, sortedPageable);
-        Page<ActivityDto> dtoPage = activityPage.map(activityMapper::activityEntityToDto);
-
-        List<ActivityDto> updatedDtos = helper.mapActivityEmployeeToDtos(dtoPage);
+        //assignees and history flag come with the page (cached for months), only the per-user flags are set here
+        Page<ActivityDto> dtoPage = monthFromRequest != null
+                ? pageCache.page(YearMonth.parse(monthFromRequest), sortedPageable,
+                        () -> helper.fetchActivityDtos(null, null, monthFromRequest, sortedPageable))
+                : helper.fetchActivityDtos(startDateFromRequest, endDateFromRequest, monthFromRequest, sortedPageable);
+        List<ActivityDto> dtos = dtoPage.getContent();
 
         UserEntity user = helper.getUserByEmployeeCode(username);
-        helper.setWorkdayFlag(activityPage, updatedDtos, user.getId());
-        helper.markAssignedForUser(updatedDtos, user.getId());
-        helper.markHistoryFlag(updatedDtos);
+        helper.setWorkdayFlag(dtos, user.getId());
+        helper.markAssignedForUser(dtos, user.getId());
+        helper.markPendingHistory(dtos);
+        return dtoPage;
+    }
+
+    /*  Keyset paging: cost of a page does not depend on how deep it is and no COUNT is run unless
+        withCount is set. 'cursor' is nextCursor or prevCursor of a previous page, null for the first one.  */
+    @Transactional
+    public ActivityCursorPageDto findActivitiesByCursor(int size, String username,
+                                                        LocalDate startDateFromRequest, LocalDate endDateFromRequest,
+                                                        String monthFromRequest, String sortDirection,
+                                                        String cursor, boolean withCount) {
+        boolean descending = "desc".equalsIgnoreCase(sortDirection);
+        ActivityCursor position = cursor == null || cursor.isBlank() ? null : ActivityCursor.decode(cursor);
+        boolean backward = position != null && position.backward();
+
+        //one row more than the page shows whether there is a further page in this direction
+        List<ActivityDto> rows = helper.fetchActivityDtosFrom(startDateFromRequest, endDateFromRequest,
+                monthFromRequest, descending, position, size + 1);
+        boolean more = rows.size() > size;
+        List<ActivityDto> dtos = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+        if (backward) {
+            Collections.reverse(dtos);
+        }
 
-        return new PageImpl<>(updatedDtos, sortedPageable, dtoPage.getTotalElements());
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!dtos.isEmpty()) {
+            if (backward || more) {
+                nextCursor = ActivityCursor.next(dtos.get(dtos.size() - 1)).encode();
+            }
+            if (backward ? more : position != null) {
+                prevCursor = ActivityCursor.prev(dtos.get(0)).encode();
+            }
+        }
+        Long total = withCount
+                ? helper.countActivities(startDateFromRequest, endDateFromRequest, monthFromRequest)
+                : null;
+
+        //assignees and history flag come with the rows, only the per-user flags are set here
+        UserEntity user = helper.getUserByEmployeeCode(username);
+        helper.setWorkdayFlag(dtos, user.getId());
+        helper.markAssignedForUser(dtos, user.getId());
+        helper.markPendingHistory(dtos);
+        return new ActivityCursorPageDto(dtos, nextCursor, prevCursor, total);
     }
 
 
@@ -65,6 +120,7 @@ public class ActivityService {
         newAssignment.setEmployee(user);
         newAssignment.setUserModified(true);
         activityEmployeeRepository.save(newAssignment);
+        assignmentChanged(activityEntity, "ACTIVITY_CLAIM");
 
         ActivityDto dto = activityMapper.activityEntityToDto(activityEntity);
         dto.setAssignedToLoggedUser(true);
@@ -89,15 +145,16 @@ public class ActivityService {
                 .findByActivity_ActivityIdOrderByAssignedAtDesc(activityDto.getActivityId());
 
         activityEmployeeRepository.deleteByActivityActivityId(activityEntity.getActivityId());
+        assignmentChanged(activityEntity, "ACTIVITY_RESTORE");
 
         ActivityDto dto = activityMapper.activityEntityToDto(activityEntity);
 
-        if (assignmentHistoryEntries.isEmpty()) {
+        //includes employees of history rows not written yet
+        var uniqueLatestEmployees = helper.getUniqueLatestEmployees(activityEntity.getActivityId(), assignmentHistoryEntries);
+        if (assignmentHistoryEntries.isEmpty() && uniqueLatestEmployees.isEmpty()) {
             return helper.removeAssignment(activityEntity, dto, user);
         }
 
-        var uniqueLatestEmployees = helper.getUniqueLatestEmployees(assignmentHistoryEntries);
-
         var restoredAssignments = uniqueLatestEmployees.values().stream()
                 .map(employee -> {
                     ActivityEmployeeEntity assignment = new ActivityEmployeeEntity();
@@ -113,5 +170,89 @@ public class ActivityService {
         return helper.mapToDto(dto, restoredAssignments, activityEntity, user);
     }
 
+    /*  Claims or restores many activities in one transaction, with the same result per activity as
+        markActivityAsOwn/returnToOldAssignment: activities with their assignees and the assignment history
+        are read with one query each, assignments are written in JDBC batches and log rows go through
+        AssignmentLogBuffer.  */
+    @Transactional
+    public List<ActivityDto> bulkReassign(BulkAssignmentDto request, String username) {
+        List<Integer> activityIds = Optional.ofNullable(request.getActivityIds()).orElse(List.of()).stream()
+                .filter(Objects::nonNull).distinct().toList();
+        if (request.getOperation() == null || activityIds.isEmpty() || activityIds.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Bulk reassignment needs an operation and 1 to " + MAX_BULK_SIZE + " activity ids");
+        }
+        UserEntity user = helper.getUserByEmployeeCode(username);
+        Map<Integer, ActivityDto> activities = listingReader.readActivities(activityIds);
+        if (activities.size() < activityIds.size()) {
+            throw new RuntimeException("Activities not found: " + activityIds.stream().filter(id -> !activities.containsKey(id)).toList());
+        }
+        List<ActivityDto> dtos = activityIds.stream().map(activities::get).toList();
 
+        if (request.getOperation() == BulkAssignmentDto.Operation.CLAIM) {
+            claimAll(dtos, user);
+        } else {
+            restoreAll(dtos);
+        }
+        helper.setWorkdayFlag(dtos, user.getId());
+        helper.markAssignedForUser(dtos, user.getId());
+        bulkAssignmentsChanged(dtos, request.getOperation() == BulkAssignmentDto.Operation.CLAIM ? "ACTIVITY_CLAIM" : "ACTIVITY_RESTORE");
+        log.info("Bulk {} of {} activities by {}", request.getOperation(), dtos.size(), username);
+        return dtos;
+    }
+
+    private void claimAll(List<ActivityDto> dtos, UserEntity user) {
+        helper.saveOldProcedureAssignments(dtos);
+        bulkWriter.deleteAssignments(dtos.stream().map(ActivityDto::getActivityId).toList());
+
+        Map<Integer, List<Integer>> claimed = new LinkedHashMap<>();
+        dtos.forEach(dto -> claimed.put(dto.getActivityId(), List.of(user.getId())));
+        bulkWriter.insertAssignments(claimed, true);
+
+        dtos.forEach(dto -> {
+            dto.setHasHistory(true);
+            dto.setEmployeesAssigned(Set.of(user.getFullName()));
+            dto.setEmployeeIdsAssigned(Set.of(user.getId()));
+        });
+    }
+
+    //Every employee found in the log of an activity gets it back, as in returnToOldAssignment
+    private void restoreAll(List<ActivityDto> dtos) {
+        List<Integer> activityIds = dtos.stream().map(ActivityDto::getActivityId).toList();
+        Map<Integer, Map<Integer, String>> logged = helper.withPendingLog(bulkWriter.loggedEmployees(activityIds), activityIds);
+        bulkWriter.deleteAssignments(activityIds);
+
+        Map<Integer, Set<Integer>> restored = new LinkedHashMap<>();
+        logged.forEach((activityId, employees) -> restored.put(activityId, employees.keySet()));
+        bulkWriter.insertAssignments(restored, false);
+
+        dtos.forEach(dto -> {
+            Map<Integer, String> employees = logged.getOrDefault(dto.getActivityId(), Map.of());
+            dto.setHasHistory(logged.containsKey(dto.getActivityId()));
+            dto.setEmployeesAssigned(new HashSet<>(employees.values()));
+            dto.setEmployeeIdsAssigned(new HashSet<>(employees.keySet()));
+        });
+    }
+
+    //One stats range and cache eviction per day and a single stream event instead of one per activity
+    private void bulkAssignmentsChanged(List<ActivityDto> dtos, String source) {
+        dtos.stream()
+                .map(ActivityDto::getActivityDate)
+                .filter(Objects::nonNull)
+                .map(date -> date.toLocalDateTime().toLocalDate())
+                .distinct()
+                .forEach(day -> {
+                    pageCache.evictAfterCommit(day);
+                    dirtyPeriodTracker.markDirty(day, day, source);
+                });
+        updateStream.publish(UpdateEventDto.assignments());
+    }
+
+    //activity_employee changes are not logged in ZMIANY_ZAJ, so the stats scheduler and the page cache have to be told explicitly
+    private void assignmentChanged(ActivityEntity activityEntity, String source) {
+        LocalDate day = activityEntity.getActivityDate() == null ? null : activityEntity.getActivityDate().toLocalDate();
+        updateStream.publish(UpdateEventDto.assignment(activityEntity.getActivityId(), day));
+        pageCache.evictAfterCommit(day);
+        if (day == null) return;
+        dirtyPeriodTracker.markDirty(day, day, source);
+    }
 }
@@ -12,8 +12,8 @@ import org.springframework.data.domain.*;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -23,28 +23,70 @@ import java.util.stream.IntStream;
 @Slf4j
 public class ActivityServiceHelper {
 
+    //keyset paging: bounds of an unfiltered date range and the time a missing activityTime is compared as
+    static final LocalDateTime KEYSET_MIN_DATE = LocalDateTime.of(1900, 1, 1, 0, 0);
+    static final LocalDateTime KEYSET_MAX_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    static final Timestamp KEYSET_NO_TIME = Timestamp.valueOf(KEYSET_MIN_DATE);
+    static final Timestamp KEYSET_MAX_TIME = Timestamp.valueOf(KEYSET_MAX_DATE);
+
     private final UserRepository userRepository;
     private final ActivityRepository activityRepository;
     private final ActivityAssignmentLogRepository activityAssignmentLogRepository;
     private final ScheduleRepository scheduleRepository;
     private final ActivityEmployeeRepository activityEmployeeRepository;
+    private final ActivityListingReader activityListingReader;
+    private final AssignmentLogBuffer assignmentLogBuffer;
 
-    Page<ActivityEntity> fetchActivityEntities(LocalDate startDate, LocalDate endDate,
-                                               String month, Pageable pageable) {
+    Page<ActivityDto> fetchActivityDtos(LocalDate startDate, LocalDate endDate,
+                                        String month, Pageable pageable) {
         if (month != null) {
             YearMonth ym = YearMonth.parse(month);
-            return activityRepository.findByActivityDateBetween(
+            return activityListingReader.readPage(
                     ym.atDay(1).atStartOfDay(),
                     ym.atEndOfMonth().atTime(LocalTime.MAX),
                     pageable);
         }
         if (startDate != null && endDate != null) {
-            return activityRepository.findByActivityDateBetween(
+            return activityListingReader.readPage(
                     startDate.atStartOfDay(),
                     endDate.atTime(LocalTime.MAX),
                     pageable);
         }
-        return activityRepository.findAll(pageable);
+        return activityListingReader.readPage(null, null, pageable);
+    }
+
+    /*  'limit' activities following the cursor in the page direction (first page without a cursor), in the
+        order they were read - rows of a backward page come in reverse and are turned by the caller.
+        Activities without a date are not part of keyset pages.  */
+    List<ActivityDto> fetchActivityDtosFrom(LocalDate startDate, LocalDate endDate, String month,
+                                            boolean descending, ActivityCursor cursor, int limit) {
+        LocalDateTime[] range = activityDateRange(startDate, endDate, month);
+        boolean backward = cursor != null && cursor.backward();
+        if (descending == backward) {
+            var key = cursor != null ? cursor : new ActivityCursor(false, range[0], KEYSET_NO_TIME, Integer.MIN_VALUE);
+            LocalDateTime from = key.date().isAfter(range[0]) ? key.date() : range[0];
+            return activityListingReader.readKeyset(from, range[1], key, true, limit);
+        }
+        var key = cursor != null ? cursor : new ActivityCursor(false, range[1], KEYSET_MAX_TIME, Integer.MAX_VALUE);
+        LocalDateTime to = key.date().isBefore(range[1]) ? key.date() : range[1];
+        return activityListingReader.readKeyset(range[0], to, key, false, limit);
+    }
+
+    long countActivities(LocalDate startDate, LocalDate endDate, String month) {
+        LocalDateTime[] range = activityDateRange(startDate, endDate, month);
+        return activityRepository.countByActivityDateBetween(range[0], range[1]);
+    }
+
+    //[from, to] of the month, of the start and end dates, or of all dates
+    private static LocalDateTime[] activityDateRange(LocalDate startDate, LocalDate endDate, String month) {
+        if (month != null) {
+            YearMonth ym = YearMonth.parse(month);
+            return new LocalDateTime[]{ym.atDay(1).atStartOfDay(), ym.atEndOfMonth().atTime(LocalTime.MAX)};
+        }
+        if (startDate != null && endDate != null) {
+            return new LocalDateTime[]{startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX)};
+        }
+        return new LocalDateTime[]{KEYSET_MIN_DATE, KEYSET_MAX_DATE};
     }
 
     UserEntity getUserByEmployeeCode(String username) {
@@ -52,15 +94,46 @@ public class ActivityServiceHelper {
                 .orElseThrow(() -> new RuntimeException("User not found for employee code: " + username));
     }
 
-    Map<Integer, UserEntity> getUniqueLatestEmployees(List<ActivityAssignmentLogEntity> assignmentHistoryEntries) {
-        return assignmentHistoryEntries.stream()
+    //History rows still waiting in AssignmentLogBuffer are newer than the stored ones, their employees come first
+    Map<Integer, UserEntity> getUniqueLatestEmployees(Integer activityId, List<ActivityAssignmentLogEntity> assignmentHistoryEntries) {
+        Map<Integer, UserEntity> employees = new LinkedHashMap<>();
+        List<Integer> pendingEmployeeIds = assignmentLogBuffer.pendingEmployeeIds(activityId);
+        if (!pendingEmployeeIds.isEmpty()) {
+            Map<Integer, UserEntity> pendingUsers = userRepository.findAllById(pendingEmployeeIds).stream()
+                    .collect(Collectors.toMap(UserEntity::getId, user -> user));
+            pendingEmployeeIds.stream()
+                    .map(pendingUsers::get)
+                    .filter(Objects::nonNull)
+                    .forEach(user -> employees.putIfAbsent(user.getId(), user));
+        }
+        assignmentHistoryEntries.stream()
                 .map(ActivityAssignmentLogEntity::getEmployee)
                 .filter(Objects::nonNull)
-                .collect(Collectors.toMap(
-                        UserEntity::getId,
-                        emp -> emp,
-                        (existing, duplicate) -> existing
-                ));
+                .forEach(user -> employees.putIfAbsent(user.getId(), user));
+        return employees;
+    }
+
+    //Adds employees of history rows still waiting in AssignmentLogBuffer to the logged employees of the activities
+    Map<Integer, Map<Integer, String>> withPendingLog(Map<Integer, Map<Integer, String>> logged, List<Integer> activityIds) {
+        Map<Integer, List<Integer>> pending = new HashMap<>();
+        activityIds.forEach(id -> {
+            List<Integer> employeeIds = assignmentLogBuffer.pendingEmployeeIds(id);
+            if (!employeeIds.isEmpty()) pending.put(id, employeeIds);
+        });
+        if (pending.isEmpty()) {
+            return logged;
+        }
+        Set<Integer> employeeIds = pending.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        Map<Integer, String> names = userRepository.findAllById(employeeIds).stream()
+                .collect(Collectors.toMap(UserEntity::getId, UserEntity::getFullName));
+        Map<Integer, Map<Integer, String>> merged = new HashMap<>(logged);
+        pending.forEach((activityId, ids) -> {
+            var employees = new LinkedHashMap<Integer, String>();
+            ids.forEach(id -> employees.putIfAbsent(id, names.get(id)));
+            employees.putAll(logged.getOrDefault(activityId, Map.of()));
+            merged.put(activityId, employees);
+        });
+        return merged;
     }
 
     Pageable getSortedPageable(int page, int size, String sortDirection) {
@@ -106,27 +179,55 @@ public class ActivityServiceHelper {
         List<Integer> activityIds = dtoList.stream().map(ActivityDto::getActivityId).toList();
         Set<Integer> historySet = new HashSet<>(activityAssignmentLogRepository
                 .findExistingActivityIdsInLog(activityIds));
-        dtoList.forEach(dto -> dto.setHasHistory(historySet.contains(dto.getActivityId())));
+        dtoList.forEach(dto -> dto.setHasHistory(historySet.contains(dto.getActivityId())
+                || assignmentLogBuffer.hasPending(dto.getActivityId())));
+    }
+
+    //For dtos read with their history flag - history rows not written yet count too
+    void markPendingHistory(List<ActivityDto> dtoList) {
+        dtoList.stream()
+                .filter(dto -> !dto.isHasHistory() && assignmentLogBuffer.hasPending(dto.getActivityId()))
+                .forEach(dto -> dto.setHasHistory(true));
     }
 
+    //One schedule query for the whole page instead of one per activity
     void setWorkdayFlag(Page<ActivityEntity> activityPage, List<ActivityDto> dtoList, Integer employeeId) {
         List<ActivityEntity> entities = activityPage.getContent();
+        ScheduledDays scheduledDays = scheduledDays(employeeId, entities.stream().map(ActivityEntity::getActivityDate).toList());
         IntStream.range(0, entities.size())
-                .filter(i -> entities.get(i).getActivityDate() != null)
-                .forEach(i -> setWorkdayFlagForSingleActivity(dtoList.get(i), entities.get(i), employeeId));
+                .forEach(i -> setWorkdayFlag(dtoList.get(i), entities.get(i).getActivityDate(), scheduledDays));
+    }
+
+    //Same for dtos read without entities
+    void setWorkdayFlag(List<ActivityDto> dtoList, Integer employeeId) {
+        List<LocalDateTime> dates = dtoList.stream()
+                .map(dto -> dto.getActivityDate() == null ? null : dto.getActivityDate().toLocalDateTime())
+                .toList();
+        ScheduledDays scheduledDays = scheduledDays(employeeId, dates);
+        IntStream.range(0, dtoList.size())
+                .forEach(i -> setWorkdayFlag(dtoList.get(i), dates.get(i), scheduledDays));
     }
 
     void setWorkdayFlagForSingleActivity(ActivityDto dto, ActivityEntity entity, Integer employeeId) {
-        if (entity.getActivityDate() == null) {
-            dto.setProcedureScheduledOnEmployeesWorkingDay(false);
-            return;
+        LocalDateTime activityDate = entity.getActivityDate();
+        setWorkdayFlag(dto, activityDate, scheduledDays(employeeId, Collections.singletonList(activityDate)));
+    }
+
+    //Scheduled days of the employee in all months of the activity dates
+    private ScheduledDays scheduledDays(Integer employeeId, List<LocalDateTime> activityDates) {
+        Set<String> yearMonths = activityDates.stream()
+                .filter(Objects::nonNull)
+                .map(date -> YearMonth.from(date).toString())
+                .collect(Collectors.toSet());
+        if (yearMonths.isEmpty()) {
+            return ScheduledDays.NONE;
         }
-        LocalDate date = entity.getActivityDate().toLocalDate();
-        String yearMonthStr = date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-        int dayOfMonth = date.getDayOfMonth();
-        boolean exists = scheduleRepository
-                .existsByEmployee_IdAndYearMonthAndDayOfMonth(employeeId, yearMonthStr, dayOfMonth);
-        dto.setProcedureScheduledOnEmployeesWorkingDay(exists);
+        return ScheduledDays.of(scheduleRepository.findScheduledDays(employeeId, yearMonths));
+    }
+
+    private static void setWorkdayFlag(ActivityDto dto, LocalDateTime activityDate, ScheduledDays scheduledDays) {
+        dto.setProcedureScheduledOnEmployeesWorkingDay(
+                activityDate != null && scheduledDays.contains(activityDate.toLocalDate()));
     }
 
     ActivityDto removeAssignment(ActivityEntity activityEntity, ActivityDto dto, UserEntity user) {
@@ -139,6 +240,7 @@ public class ActivityServiceHelper {
         return dto;
     }
 
+    //History rows are queued in AssignmentLogBuffer and written in batches after commit
     void saveOldProcedureAssignment(ActivityEntity activityEntity) {
         var existingAssignments = activityEmployeeRepository
                 .findByActivityActivityId(activityEntity.getActivityId());
@@ -155,21 +257,28 @@ public class ActivityServiceHelper {
             log.warn("No valid employee entities found for logging in activity {}", activityEntity.getActivityId());
             return;
         }
-        for (UserEntity employee : employees) {
-            ActivityAssignmentLogEntity logEntity = ActivityAssignmentLogEntity.builder()
-                    .activity(activityEntity)
-                    .employee(employee)
-                    .assignedAt(LocalDateTime.now())
-                    .build();
-            activityAssignmentLogRepository.save(logEntity);
-            log.debug("Saved assignment log: ACTIVITY ID={} -> EMPLOYEE ID={}",
-                    activityEntity.getActivityId(), employee.getId());
-        }
-        log.info("Finished saving {} assignment log entries for activity {}",
+        LocalDate day = activityEntity.getActivityDate() == null ? null : activityEntity.getActivityDate().toLocalDate();
+        LocalDateTime now = LocalDateTime.now();
+        assignmentLogBuffer.append(employees.stream()
+                .map(employee -> new AssignmentLogEntry(activityEntity.getActivityId(), employee.getId(), day, now))
+                .toList());
+        log.info("Queued {} assignment log entries for activity {}",
                 employees.size(), activityEntity.getActivityId());
     }
 
 
+    //Current assignees of the activities go to the history, as in saveOldProcedureAssignment
+    void saveOldProcedureAssignments(List<ActivityDto> dtoList) {
+        LocalDateTime now = LocalDateTime.now();
+        assignmentLogBuffer.append(dtoList.stream()
+                .flatMap(dto -> {
+                    LocalDate day = dto.getActivityDate() == null ? null : dto.getActivityDate().toLocalDateTime().toLocalDate();
+                    return dto.getEmployeeIdsAssigned().stream()
+                            .map(employeeId -> new AssignmentLogEntry(dto.getActivityId(), employeeId, day, now));
+                })
+                .toList());
+    }
+
     private List<ActivityDto> mapEmployeeDataToDtos(Page<ActivityDto> dtoPage, Map<Integer, List<UserEntity>> activityEmployeeMap) {
         List<ActivityDto> dtoList = dtoPage.getContent();
         dtoList.forEach(dto -> {
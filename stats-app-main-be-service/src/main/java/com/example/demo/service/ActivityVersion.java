@@ -0,0 +1,6 @@
+package com.example.demo.service;
+
+//Highest ids of ZMIANY_ZAJ, stats_dirty_range and activity_employee and the number of committed transactions
+//that changed activities, as read by EtagService.SELECT_ACTIVITY_VERSION_SQL
+public record ActivityVersion(long activityChanges, long dirtyRanges, long assignments, long commits) {
+}
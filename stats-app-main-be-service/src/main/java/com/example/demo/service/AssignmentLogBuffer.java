@@ -0,0 +1,243 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*  Write-behind writer of activity_assignment_log - reassignments only queue their history rows,
+    a background thread inserts them in batches of 'activities.assignment-log.batch-size' or every
+    'activities.assignment-log.flush-interval'.
+
+    - Entries are queued after the reassignment commits, a rollback drops them. Their room in the queue
+      ('activities.assignment-log.buffer-size') is reserved before, so a commit always finds it.
+    - When the queue has no room, or write-behind is off, the rows are written at once inside the
+      caller's transaction.
+    - Queued and in-flight entries stay visible through pendingEmployeeIds/hasPending until written,
+      so restores and history flags see them (read-your-writes).
+    - A failed batch is put back in front of the queue and retried. A constraint violation (e.g. the activity
+      was deleted meanwhile) or MAX_BATCH_ATTEMPTS failures in a row write it row by row instead, rows that
+      still fail are logged and dropped so they do not block the entries behind them.
+    - The queue is flushed on shutdown.  */
+@Component
+@Slf4j
+public class AssignmentLogBuffer {
+
+    static final int MAX_BATCH_ATTEMPTS = 5;
+
+    private final BulkAssignmentWriter writer;
+    private final ActivityPageCache pageCache;
+    private final boolean writeBehind;
+    private final int capacity;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+
+    //all guarded by this
+    private final Deque<AssignmentLogEntry> queue = new ArrayDeque<>();
+    private final Map<Integer, List<AssignmentLogEntry>> pendingByActivity = new HashMap<>();
+    //queued, in-flight and reserved by transactions not completed yet
+    private int pendingCount;
+    private boolean flushScheduled;
+    //failures in a row of the batch at the head of the queue
+    private int failedAttempts;
+
+    public AssignmentLogBuffer(BulkAssignmentWriter writer,
+                               ActivityPageCache pageCache,
+                               @Value("${activities.assignment-log.write-behind:true}") boolean writeBehind,
+                               @Value("${activities.assignment-log.buffer-size:1000}") int capacity,
+                               @Value("${activities.assignment-log.batch-size:200}") int batchSize,
+                               @Value("${activities.assignment-log.flush-interval:2s}") Duration flushInterval) {
+        this.writer = writer;
+        this.pageCache = pageCache;
+        this.writeBehind = writeBehind;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "assignment-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void append(List<AssignmentLogEntry> entries) {
+        if (entries.isEmpty()) return;
+        if (!writeBehind || !reserve(entries.size())) {
+            writer.writeLog(entries);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(entries);
+                    } else {
+                        release(entries.size());
+                    }
+                }
+            });
+        } else {
+            enqueue(entries);
+        }
+    }
+
+    //Employees of not yet written log rows of the activity, newest first
+    public synchronized List<Integer> pendingEmployeeIds(Integer activityId) {
+        List<AssignmentLogEntry> pending = pendingByActivity.getOrDefault(activityId, List.of());
+        List<Integer> employeeIds = new ArrayList<>();
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            employeeIds.add(pending.get(i).employeeId());
+        }
+        return employeeIds;
+    }
+
+    public synchronized boolean hasPending(Integer activityId) {
+        return pendingByActivity.containsKey(activityId);
+    }
+
+    synchronized int pendingCount() {
+        return pendingCount;
+    }
+
+    //Writes everything queued so far, batch by batch
+    void flush() {
+        List<AssignmentLogEntry> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            try {
+                writer.writeLog(batch);
+            } catch (DataIntegrityViolationException e) {
+                writeRowByRow(batch);
+                continue;
+            } catch (RuntimeException e) {
+                if (failed() < MAX_BATCH_ATTEMPTS) {
+                    putBack(batch);
+                    throw e;
+                }
+                writeRowByRow(batch);
+                continue;
+            }
+            written(batch);
+        }
+    }
+
+    private synchronized boolean reserve(int count) {
+        if (pendingCount + count > capacity) {
+            return false;
+        }
+        pendingCount += count;
+        return true;
+    }
+
+    private synchronized void release(int count) {
+        pendingCount -= count;
+    }
+
+    //room of the entries is already reserved
+    private void enqueue(List<AssignmentLogEntry> entries) {
+        boolean scheduleFlush;
+        synchronized (this) {
+            entries.forEach(entry -> {
+                queue.addLast(entry);
+                pendingByActivity.computeIfAbsent(entry.activityId(), id -> new ArrayList<>()).add(entry);
+            });
+            scheduleFlush = queue.size() >= batchSize && !flushScheduled;
+            flushScheduled |= scheduleFlush;
+        }
+        if (scheduleFlush) {
+            try {
+                flusher.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                log.debug("Assignment log flusher stopped, entries are flushed on shutdown");
+            }
+        }
+    }
+
+    private void flushSafely() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Writing assignment log entries failed, {} entries wait for the next attempt", pendingCount(), e);
+        }
+    }
+
+    private synchronized int failed() {
+        return ++failedAttempts;
+    }
+
+    private void writeRowByRow(List<AssignmentLogEntry> batch) {
+        for (AssignmentLogEntry entry : batch) {
+            try {
+                writer.writeLog(List.of(entry));
+            } catch (RuntimeException e) {
+                log.error("Assignment log entry {} dropped, it cannot be written", entry, e);
+            }
+        }
+        written(batch);
+    }
+
+    private synchronized List<AssignmentLogEntry> takeBatch() {
+        List<AssignmentLogEntry> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (batch.size() < batchSize && !queue.isEmpty()) {
+            batch.add(queue.pollFirst());
+        }
+        return batch;
+    }
+
+    private synchronized void putBack(List<AssignmentLogEntry> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            queue.addFirst(batch.get(i));
+        }
+    }
+
+    private void written(List<AssignmentLogEntry> batch) {
+        synchronized (this) {
+            batch.forEach(entry -> {
+                List<AssignmentLogEntry> pending = pendingByActivity.get(entry.activityId());
+                pending.remove(entry);
+                if (pending.isEmpty()) {
+                    pendingByActivity.remove(entry.activityId());
+                }
+            });
+            pendingCount -= batch.size();
+            failedAttempts = 0;
+        }
+        evictPages(batch);
+        log.debug("{} assignment log entries written", batch.size());
+    }
+
+    //cached pages read while the rows were pending may have a stale history flag
+    private void evictPages(List<AssignmentLogEntry> entries) {
+        pageCache.evict(entries.stream()
+                .map(AssignmentLogEntry::activityDay)
+                .filter(Objects::nonNull)
+                .map(YearMonth::from)
+                .collect(Collectors.toSet()));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("{} assignment log entries could not be written on shutdown", pendingCount(), e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//activity_assignment_log row waiting in AssignmentLogBuffer, activityDay tells which cached month page it changes
+public record AssignmentLogEntry(Integer activityId, Integer employeeId, LocalDate activityDay, LocalDateTime assignedAt) {
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/*  Set-based reads and JDBC batch writes of POST /api/procedures/bulk and of AssignmentLogBuffer.
+    Ids of activity_employee and activity_assignment_log rows are set by their BEFORE INSERT triggers.  */
+@Component
+@RequiredArgsConstructor
+public class BulkAssignmentWriter {
+
+    //Firebird allows at most 1500 values in an IN list
+    static final int MAX_IN_LIST_VALUES = 1500;
+
+    //%s: id placeholders
+    static final String SELECT_LOGGED_EMPLOYEES_SQL = """
+            SELECT l.activity_id, e.EMPLOYEE_ID, e.EMPLOYEE_FULLNAME
+            FROM activity_assignment_log l
+                     LEFT JOIN EMPLOYEE e ON e.EMPLOYEE_ID = l.employee_id
+            WHERE l.activity_id IN (%s)
+            """;
+    static final String DELETE_ASSIGNMENTS_SQL = "DELETE FROM activity_employee WHERE activity_id IN (%s)";
+    static final String INSERT_LOG_SQL = """
+            INSERT INTO activity_assignment_log (activity_id, employee_id, assigned_at)
+            VALUES (?, ?, ?)
+            """;
+    static final String INSERT_ASSIGNMENT_SQL = """
+            INSERT INTO activity_employee (activity_id, employee_id, user_modified)
+            VALUES (?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /*  Employees ever logged for each activity (id -> full name). An activity with log rows but no
+        employee left maps to an empty map, activities without log rows are missing.  */
+    public Map<Integer, Map<Integer, String>> loggedEmployees(Collection<Integer> activityIds) {
+        Map<Integer, Map<Integer, String>> logged = new HashMap<>();
+        jdbcTemplate.query(SELECT_LOGGED_EMPLOYEES_SQL.formatted(placeholders(activityIds)), rs -> {
+            var employees = logged.computeIfAbsent(rs.getInt(1), id -> new LinkedHashMap<>());
+            Integer employeeId = rs.getObject(2, Integer.class);
+            if (employeeId != null) {
+                employees.putIfAbsent(employeeId, rs.getString(3));
+            }
+        }, activityIds.toArray());
+        return logged;
+    }
+
+    //Rows of AssignmentLogBuffer, written in one JDBC batch
+    public void writeLog(List<AssignmentLogEntry> entries) {
+        List<Object[]> rows = entries.stream()
+                .map(entry -> new Object[]{entry.activityId(), entry.employeeId(), Timestamp.valueOf(entry.assignedAt())})
+                .toList();
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LOG_SQL, rows);
+        }
+    }
+
+    public void deleteAssignments(Collection<Integer> activityIds) {
+        jdbcTemplate.update(DELETE_ASSIGNMENTS_SQL.formatted(placeholders(activityIds)), activityIds.toArray());
+    }
+
+    public void insertAssignments(Map<Integer, ? extends Collection<Integer>> employeesByActivity, boolean userModified) {
+        List<Object[]> rows = new ArrayList<>();
+        employeesByActivity.forEach((activityId, employeeIds) ->
+                employeeIds.forEach(employeeId -> rows.add(new Object[]{activityId, employeeId, userModified ? 1 : 0})));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT_SQL, rows);
+        }
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+}
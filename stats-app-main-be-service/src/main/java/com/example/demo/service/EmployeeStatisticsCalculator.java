@@ -1,190 +1,98 @@
 package com.example.demo.service;
 
-import com.example.demo.entity.ActivityEmployeeEntity;
-import com.example.demo.entity.ProcedureEntity;
-import com.example.demo.entity.WorkSchedule;
-import com.example.demo.entity.stats.*;
-import com.example.demo.repository.ActivityEmployeeRepository;
-import com.example.demo.repository.stats.*;
+import com.example.demo.repository.stats.DailyEmployeePartialsRepository;
+import com.example.demo.service.stats.ScoreCalculationStrategy;
+import com.example.demo.service.stats.ScorePartials;
+import com.example.demo.service.stats.StatsTable;
+import com.example.demo.service.stats.StatsWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
 import java.util.*;
-import java.util.function.BiFunction;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmployeeStatisticsCalculator {
-    private final ActivityEmployeeRepository activityRepo;
-    private final DailyEmployeeStatisticRepository dailyRepo;
-    private final WeeklyEmployeeStatisticRepository weeklyRepo;
-    private final MonthlyEmployeeStatisticRepository monthlyRepo;
-    private final YearlyEmployeeStatisticRepository yearlyRepo;
+    private final ScoreCalculationStrategy scoreStrategy;
+    private final DailyEmployeePartialsRepository partialsRepo;
+    private final StatsWriter statsWriter;
 
+    @Transactional
     public Map<Integer, Double> calculateDailyScores(LocalDate date) {
+        var start = date.atStartOfDay();
+        var end = date.plusDays(1).atStartOfDay();
+        log.info("Calculating stats for period starting {} to {} (key={})", start, end, date);
 
-        BiFunction<Integer, Double, EmployeeDailyStatsEntity> dailyStatsEntityCreator =
-                (empId, score) ->
-                        new EmployeeDailyStatsEntity(empId, date, score, LocalDateTime.now());
-
-        return calculateAndSave(
-                date.atStartOfDay(),
-                date.plusDays(1).atStartOfDay(),
-                date,
-                dailyStatsEntityCreator,
-                dailyRepo::save
-        );
+        var partialsByEmployee = scoreStrategy.dayPartials(date);
+        replaceDailyPartials(date, date, Map.of(date, partialsByEmployee));
+
+        return saveScores(StatsTable.DAY, date, partialsByEmployee);
+    }
+
+    /*  Refreshes only the daily partials of a date range, without daily stats rows.
+        Used for days after today - they still belong to the current week/month/year sums.  */
+    @Transactional
+    public void refreshDailyPartials(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return;
+        log.info("Refreshing daily partials from {} to {}", from, to);
+
+        replaceDailyPartials(from, to, scoreStrategy.dailyPartials(from, to));
     }
 
+    @Transactional
     public void calculateWeeklyScores(LocalDate monday) {
-        var start = monday.atStartOfDay();
-        var end = start.plusWeeks(1);
-
-        BiFunction<Integer, Double, EmployeeWeeklyStatsEntity> weeklyStatsEntityCreator =
-                (empId, score) ->
-                        new EmployeeWeeklyStatsEntity(empId, monday, score, LocalDateTime.now());
-
-        calculateAndSave(
-                start,
-                end,
-                monday,
-                weeklyStatsEntityCreator,
-                weeklyRepo::save
-        );
+        rollUpAndSave(StatsTable.WEEK, monday, monday.plusWeeks(1), monday);
     }
 
+    @Transactional
     public void calculateMonthlyScores(YearMonth month) {
-        var start = month.atDay(1).atStartOfDay();
-        var end = month.plusMonths(1).atDay(1).atStartOfDay();
-
-        BiFunction<Integer, Double, EmployeeMonthlyStatsEntity> monthlyStatsEntityCreator =
-                (empId, score) ->
-                        new EmployeeMonthlyStatsEntity(empId, month.toString(), score, LocalDateTime.now());
-
-        calculateAndSave(
-                start,
-                end,
-                month.toString(),
-                monthlyStatsEntityCreator,
-                monthlyRepo::save
-        );
+        rollUpAndSave(StatsTable.MONTH, month.atDay(1), month.plusMonths(1).atDay(1), month.toString());
     }
 
+    @Transactional
     public void calculateYearlyScores(Year year) {
-        var start = year.atDay(1).atStartOfDay();
-        var end = start.plusYears(1);
-
-        BiFunction<Integer, Double, EmployeeYearlyStatsEntity> yearlyStatsEntityCreator =
-                (empId, score) ->
-                        new EmployeeYearlyStatsEntity(empId, year.getValue(), score, LocalDateTime.now());
-
-        calculateAndSave(
-                start,
-                end,
-                year.getValue(),
-                yearlyStatsEntityCreator,
-                yearlyRepo::save
-        );
+        rollUpAndSave(StatsTable.YEAR, year.atDay(1), year.plusYears(1).atDay(1), year.getValue());
     }
 
-    private <T> Map<Integer, Double> calculateAndSave(
-            LocalDateTime start,
-            LocalDateTime end,
-            Object periodKey,
-            BiFunction<Integer, Double, T> entityCreator,
-            java.util.function.Consumer<T> saver
-    ) {
-        log.info("Calculating stats for period starting {} to {} (key={})", start, end, periodKey);
+    /*  Coarser periods are not calculated from activities again - numerators and denominators
+        of the daily partials are summed. A WorkSchedule covers a single day, so counting it
+        once per employee per day is the same as counting it once in the whole period.  */
+    private void rollUpAndSave(StatsTable table, LocalDate start, LocalDate endExclusive, Object periodKey) {
+        log.info("Rolling up daily partials for period starting {} to {} (key={})", start, endExclusive, periodKey);
 
-        List<ActivityEmployeeEntity> allEmployeesActivities = getEntitiesBySelectedPeriod(start, end);
+        var partialsByEmployee = new HashMap<Integer, ScorePartials>();
+        partialsRepo.sumByEmployeeBetween(start, endExclusive)
+                .forEach(sum -> partialsByEmployee.put(sum.employeeId(), sum.toPartials()));
 
-        var entriesGroupedByEmployee = allEmployeesActivities.stream()
-                .collect(Collectors
-                        .groupingBy(ae -> ae.getEmployee().getId()));
+        saveScores(table, periodKey, partialsByEmployee);
+    }
 
-        // calculate & save
+    private Map<Integer, Double> saveScores(StatsTable table, Object periodKey, Map<Integer, ScorePartials> partialsByEmployee) {
         var result = new HashMap<Integer, Double>();
 
-        log.info("entires grouped size: {}",entriesGroupedByEmployee.size());
+        log.info("entires grouped size: {}", partialsByEmployee.size());
 
-        entriesGroupedByEmployee
-                .forEach((empId, activitiesForEmployee) -> {
-                    double score = computeScore(activitiesForEmployee, allEmployeesActivities);
+        partialsByEmployee
+                .forEach((empId, partials) -> {
+                    double score = partials.score();
                     log.info("Period key={} empId={} → score {}", periodKey, empId, score);
                     result.put(empId, score);
-                    saver.accept(entityCreator.apply(empId, score));
                 });
 
+        var written = statsWriter.writeScores(table, periodKey, result);
+        log.info("Period key={} saved to {}: {} changed, {} unchanged, {} skipped",
+                periodKey, table, written.written(), written.unchanged(), written.skipped());
         return result;
     }
 
-    private List<ActivityEmployeeEntity> getEntitiesBySelectedPeriod(LocalDateTime start, LocalDateTime end) {
-        List<ActivityEmployeeEntity> entitiesInSelectedPeriod = activityRepo.findWithGraphByActivityDate(start, end);
-
-        //filter leaving in the list only assignments with no schedule with no absence
-        return entitiesInSelectedPeriod
-                .stream()
-                .filter(ae -> {
-                    WorkSchedule ws = ae.getWorkSchedule();
-                    return ws == null
-                            || ws.getSubstituteEmployee() != null
-                            || Optional.ofNullable(ws.getWorkMode())
-                            .map(String::toUpperCase)
-                            .map(mode -> !Set.of("UW", "ZL").contains(mode))
-                            .orElse(true);
-                }).toList();
-    }
-
-    private double computeScore(List<ActivityEmployeeEntity> currentEmployeesActivities,
-                                List<ActivityEmployeeEntity> allActivities) {
-        double numerator = currentEmployeesActivities.stream()
-                .mapToDouble(currEmployeeActivity ->
-                        computeNumeratorFor(currEmployeeActivity, allActivities))
-                .sum();
-
-
-        log.info("current ae size: {}", currentEmployeesActivities.size());
-
-
-        double denominator = currentEmployeesActivities.stream()
-                .map(ActivityEmployeeEntity::getWorkSchedule)
-                .filter(Objects::nonNull)
-                .filter(ws -> ws.getId() != null)
-                .distinct()
-                .mapToDouble(ws -> Optional.ofNullable(ws.getWorkDurationMinutes())
-                        .orElse(0))
-                .sum();
-
-        log.info("NUMERATOR: {}", numerator);
-        log.info("DENOMINATOR: {}", denominator);
-
-        return denominator > 0 ? numerator / denominator : 0.0;
-    }
-
-    private double computeNumeratorFor(ActivityEmployeeEntity currentEmployeesActivity,
-                                       List<ActivityEmployeeEntity> allActivityEmployees) {
-        ProcedureEntity proc = currentEmployeesActivity.getActivity().getProcedure();
-        String workMode = proc.getWorkMode();
-        Integer procedureMinutes = proc.getProcedureActualTime();
-
-        long numEmployeesAssignedToActivity = allActivityEmployees.stream()
-                .filter(act ->
-                        act.getActivity().getActivityId()
-                                .equals(currentEmployeesActivity.getActivity().getActivityId()))
-                .count();
-
-        if ("F".equalsIgnoreCase(workMode) || "B".equalsIgnoreCase(workMode)) {
-            return (procedureMinutes != null && numEmployeesAssignedToActivity > 0) ?
-                    (double) procedureMinutes / numEmployeesAssignedToActivity : 0.0;
-        } else if ("S".equalsIgnoreCase(workMode)) {
-            return procedureMinutes != null ? procedureMinutes : 0.0;
-        } else if ("U".equalsIgnoreCase(workMode)) {
-            return 1.0;
-        }
-        return 0.0;
+    //days without assignments must not keep partials from a previous calculation - the writer deletes them
+    private void replaceDailyPartials(LocalDate from, LocalDate to, Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay) {
+        var written = statsWriter.replacePartials(from, to, partialsByDay);
+        log.info("Daily partials {} - {}: {} changed, {} unchanged, {} skipped",
+                from, to, written.written(), written.unchanged(), written.skipped());
     }
 }
@@ -0,0 +1,203 @@
+package com.example.demo.service;
+
+import com.example.demo.service.stats.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.*;
+
+/*  Full recalculation in one scan instead of one query per day/week/month/year.
+
+    - Streams activity_employee (+ activity, procedure, schedule) for the whole horizon through a
+      forward-only cursor ordered by activity date, 'stats.backfill.fetch-size' rows per fetch.
+    - Rows of one day are kept in reused AssignmentColumns until the date changes, then turned into
+      daily partials which are added to the current week, month and year accumulators.
+    - A week/month/year is written as soon as the stream moves past it, so memory holds one day of
+      rows and one accumulator per granularity.
+    - Stored partials are replaced, not deleted up front: after each batch of new partials is written, the rows of
+      the days it covers that this run did not write are deleted. A failed scan leaves the old partials of the
+      days it did not reach, so incremental runs keep rolling periods up from complete data.  */
+@Service
+@Slf4j
+public class EmployeeStatsBackfill {
+
+    static final String DELETE_STALE_PARTIALS_SQL =
+            "DELETE FROM emp_day_partials WHERE stat_day BETWEEN ? AND ? AND updated_at < ?";
+
+    //rows of daily partials collected before they are sent to StatsWriter
+    static final int PARTIALS_BUFFER_ROWS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmployeeScoreEngine scoreEngine;
+    private final StatsWriter statsWriter;
+    private final int fetchSize;
+
+    public EmployeeStatsBackfill(JdbcTemplate jdbcTemplate,
+                                 EmployeeScoreEngine scoreEngine,
+                                 StatsWriter statsWriter,
+                                 @Value("${stats.backfill.fetch-size:2000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scoreEngine = scoreEngine;
+        this.statsWriter = statsWriter;
+        this.fetchSize = fetchSize;
+    }
+
+    //Recalculates daily stats for [from, today] and every week, month and year starting in that range
+    public void recalculate(LocalDate from, LocalDate today) {
+        LocalDate scanStart = DirtyPeriods.periodsStart(from);
+        LocalDate scanEnd = DirtyPeriods.periodsEnd(today);
+        log.info("[BACKFILL] Single scan from {} to {} (daily stats from {} to {})", scanStart, scanEnd, from, today);
+
+        var pass = new BackfillPass(from, today, scanStart, scanEnd);
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(AssignmentColumnsLoader.SELECT_ASSIGNMENTS_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    ps.setTimestamp(1, Timestamp.valueOf(scanStart.atStartOfDay()));
+                    ps.setTimestamp(2, Timestamp.valueOf(scanEnd.plusDays(1).atStartOfDay()));
+                    return ps;
+                },
+                pass::accept);
+        pass.finish();
+
+        log.info("[BACKFILL] Finished: {} rows, {} days with assignments", pass.rows, pass.days);
+    }
+
+    final class BackfillPass {
+        private final LocalDate from;
+        private final LocalDate today;
+        private final LocalDate firstWeek;
+        private final LocalDate scanEnd;
+        //partials written by this run have a later updated_at
+        private final Timestamp startedAt = Timestamp.valueOf(LocalDateTime.now());
+
+        private LocalDate currentDay;
+        //last day whose stored partials were replaced
+        private LocalDate replacedThrough;
+        private final AssignmentColumns dayRows = new AssignmentColumns();
+        private Map<LocalDate, Map<Integer, ScorePartials>> partialsBuffer = new LinkedHashMap<>();
+        private int bufferedPartials;
+
+        private final PeriodAccumulator<LocalDate> week = new PeriodAccumulator<>(StatsTable.WEEK);
+        private final PeriodAccumulator<YearMonth> month = new PeriodAccumulator<>(StatsTable.MONTH);
+        private final PeriodAccumulator<Year> year = new PeriodAccumulator<>(StatsTable.YEAR);
+
+        long rows;
+        int days;
+
+        BackfillPass(LocalDate from, LocalDate today, LocalDate scanStart, LocalDate scanEnd) {
+            this.from = from;
+            this.today = today;
+            this.firstWeek = from.with(DayOfWeek.MONDAY);
+            this.scanEnd = scanEnd;
+            this.replacedThrough = scanStart.minusDays(1);
+        }
+
+        void accept(ResultSet rs) throws SQLException {
+            LocalDate day = rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+            if (!day.equals(currentDay)) {
+                flushDay();
+                currentDay = day;
+            }
+            AssignmentColumnsLoader.readRow(rs, dayRows);
+            rows++;
+        }
+
+        void finish() {
+            flushDay();
+            flushPartials(scanEnd);
+            week.emit();
+            month.emit();
+            year.emit();
+        }
+
+        private void flushDay() {
+            if (currentDay == null) return;
+            Map<Integer, ScorePartials> dayPartials = scoreEngine.computePartials(dayRows);
+            dayRows.clear();
+            days++;
+
+            partialsBuffer.put(currentDay, dayPartials);
+            bufferedPartials += dayPartials.size();
+            if (bufferedPartials >= PARTIALS_BUFFER_ROWS) {
+                flushPartials(currentDay);
+            }
+
+            if (!currentDay.isBefore(from) && !currentDay.isAfter(today)) {
+                Map<Integer, Double> scores = new HashMap<>();
+                dayPartials.forEach((empId, partials) -> scores.put(empId, partials.score()));
+                statsWriter.writeScores(StatsTable.DAY, currentDay, scores);
+            }
+
+            LocalDate monday = currentDay.with(DayOfWeek.MONDAY);
+            week.add(monday, !monday.isBefore(firstWeek) && !monday.isAfter(today), monday, dayPartials);
+            YearMonth ym = YearMonth.from(currentDay);
+            month.add(ym, !ym.isBefore(YearMonth.from(from)) && !ym.isAfter(YearMonth.from(today)), ym.toString(), dayPartials);
+            Year y = Year.from(currentDay);
+            year.add(y, !y.isBefore(Year.from(from)) && !y.isAfter(Year.from(today)), y.getValue(), dayPartials);
+        }
+
+        //Writes the buffered partials, then drops the older rows of every scanned day up to 'through'
+        private void flushPartials(LocalDate through) {
+            if (!partialsBuffer.isEmpty()) {
+                statsWriter.writePartials(partialsBuffer);
+                partialsBuffer = new LinkedHashMap<>();
+                bufferedPartials = 0;
+            }
+            if (through.isAfter(replacedThrough)) {
+                jdbcTemplate.update(DELETE_STALE_PARTIALS_SQL, Timestamp.valueOf(replacedThrough.plusDays(1).atStartOfDay()),
+                        Timestamp.valueOf(through.atStartOfDay()), startedAt);
+                replacedThrough = through;
+            }
+        }
+    }
+
+    //Sums of daily partials of the period currently streamed through
+    private final class PeriodAccumulator<P> {
+        private final StatsTable table;
+        private P period;
+        private Object periodKey;
+        private boolean calculated;
+        private final Map<Integer, double[]> sums = new HashMap<>();
+
+        PeriodAccumulator(StatsTable table) {
+            this.table = table;
+        }
+
+        void add(P dayPeriod, boolean inRange, Object key, Map<Integer, ScorePartials> dayPartials) {
+            if (!dayPeriod.equals(period)) {
+                emit();
+                period = dayPeriod;
+                periodKey = key;
+                calculated = inRange;
+            }
+            dayPartials.forEach((empId, partials) -> {
+                double[] sum = sums.computeIfAbsent(empId, id -> new double[2]);
+                sum[0] += partials.numerator();
+                sum[1] += partials.denominator();
+            });
+        }
+
+        void emit() {
+            if (period != null && calculated && !sums.isEmpty()) {
+                Map<Integer, Double> scores = new HashMap<>();
+                sums.forEach((empId, sum) -> scores.put(empId, new ScorePartials(sum[0], sum[1]).score()));
+                statsWriter.writeScores(table, periodKey, scores);
+            }
+            sums.clear();
+            period = null;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.demo.service;
 
+import com.example.demo.service.stats.DirtyPeriodTracker;
+import com.example.demo.service.stats.DirtyPeriods;
+import com.example.demo.service.stats.PeriodRecomputeRunner;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -9,6 +13,8 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -16,6 +22,14 @@ import java.time.YearMonth;
 public class EmployeeStatsScheduler {
 
     private final EmployeeStatisticsCalculator calculator;
+    private final DirtyPeriodTracker dirtyPeriodTracker;
+    private final PeriodRecomputeRunner recomputeRunner;
+    private final EmployeeStatsBackfill backfill;
+    private final StatsSnapshotService snapshotService;
+
+    //true: full recalculation streams all assignments once, false: one query per day/week/month/year
+    @Value("${stats.full-recompute.backfill:true}")
+    private boolean backfillEnabled;
 
     @Scheduled(fixedDelay = 5 * 60 * 1000)
     public void updateDailyStats() {
@@ -25,37 +39,108 @@ public class EmployeeStatsScheduler {
                 log.debug("[SCHEDULER] Daily score for employee {}: {}", empId, score)
         );
         log.info("[SCHEDULER] Finished daily stats calculation for date: {}", today);
+        writeSnapshot();
     }
 
+    //Recalculates only periods touched since the previous run (ZMIANY_ZAJ + stats_dirty_range)
     @Scheduled(fixedDelay = 15 * 60 * 1000)
     public void updateOldDataStats() {
+        if (!dirtyPeriodTracker.isInitialized()) {
+            log.info("[SCHEDULER] No stats watermark found, running full recalculation.");
+            recalculateAll();
+            return;
+        }
+        recomputeRunner.timed("incremental", this::recalculateDirtyPeriods);
+        writeSnapshot();
+    }
+
+    //Safety net for changes not visible in the change log (e.g. manual edits of schedules in the DB)
+    @Scheduled(cron = "${stats.full-recompute.cron:0 0 3 * * SUN}")
+    public void recalculateAll() {
+        recomputeRunner.timed("full", this::recalculateLastThreeYears);
+        writeSnapshot();
+    }
+
+    //a failed snapshot only leaves the previous one in place - the stats themselves are already stored
+    private void writeSnapshot() {
+        try {
+            snapshotService.write();
+        } catch (RuntimeException e) {
+            log.warn("[SCHEDULER] Statistics snapshot not written: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recalculateDirtyPeriods() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusYears(3);
+        var changes = dirtyPeriodTracker.collectChanges();
+        DirtyPeriods dirty = changes.periods().within(from, today);
+        log.info("[SCHEDULER] Start incremental calculation: {} days, {} weeks, {} months, {} years",
+                dirty.days().size(), dirty.weeks().size(), dirty.months().size(), dirty.years().size());
+
+        List<Runnable> dayTasks = new ArrayList<>();
+        dirty.days().forEach(d -> dayTasks.add(() -> calculator.calculateDailyScores(d)));
+        changes.periods().partialsOnlyDays(from, today).forEach(d -> dayTasks.add(() -> calculator.refreshDailyPartials(d, d)));
+        recomputeRunner.runPhase("days", dayTasks);
+
+        //weeks, months and years are summed from daily partials, so they wait for the whole days phase
+        List<Runnable> periodTasks = new ArrayList<>();
+        dirty.weeks().forEach(w -> periodTasks.add(() -> calculator.calculateWeeklyScores(w)));
+        dirty.months().forEach(m -> periodTasks.add(() -> calculator.calculateMonthlyScores(m)));
+        dirty.years().forEach(y -> periodTasks.add(() -> calculator.calculateYearlyScores(y)));
+        recomputeRunner.runPhase("periods", periodTasks);
+
+        dirtyPeriodTracker.commit(changes);
+        log.info("[SCHEDULER] Finished incremental calculation.");
+    }
+
+    private void recalculateLastThreeYears() {
+        //position is taken before the sweep, so changes made during it are picked up by the next incremental run
+        var position = dirtyPeriodTracker.currentPosition();
         LocalDate today = LocalDate.now();
         LocalDate from = today.minusYears(3);
         log.info("[SCHEDULER] Start calculation for last 3 years: {} to {}", from, today);
 
+        if (backfillEnabled) {
+            backfill.recalculate(from, today);
+            dirtyPeriodTracker.commit(position);
+            log.info("[SCHEDULER] Finished calculation for last 3 years (single scan).");
+            return;
+        }
+
+        List<Runnable> dayTasks = new ArrayList<>();
         // Daily
         for (LocalDate d = from; !d.isAfter(today); d = d.plusDays(1)) {
-            calculator.calculateDailyScores(d);
+            LocalDate day = d;
+            dayTasks.add(() -> calculator.calculateDailyScores(day));
         }
 
+        // Partials of days outside the daily range, but inside the oldest/newest week, month or year
+        dayTasks.add(() -> calculator.refreshDailyPartials(DirtyPeriods.periodsStart(from), from.minusDays(1)));
+        dayTasks.add(() -> calculator.refreshDailyPartials(today.plusDays(1), DirtyPeriods.periodsEnd(today)));
+        recomputeRunner.runPhase("days", dayTasks);
+
+        List<Runnable> periodTasks = new ArrayList<>();
         // Weekly
         for (LocalDate d = from.with(DayOfWeek.MONDAY); !d.isAfter(today); d = d.plusWeeks(1)) {
-            log.debug("[SCHEDULER] Weekly stats for week starting: {}", d);
-            calculator.calculateWeeklyScores(d);
+            LocalDate monday = d;
+            periodTasks.add(() -> calculator.calculateWeeklyScores(monday));
         }
 
         // Monthly
         for (YearMonth m = YearMonth.from(from); !m.isAfter(YearMonth.from(today)); m = m.plusMonths(1)) {
-            log.debug("[SCHEDULER] Monthly stats for month: {}", m);
-            calculator.calculateMonthlyScores(m);
+            YearMonth month = m;
+            periodTasks.add(() -> calculator.calculateMonthlyScores(month));
         }
 
         // Yearly
         for (int y = from.getYear(); y <= today.getYear(); y++) {
-            log.debug("[SCHEDULER] Yearly stats for year: {}", y);
-            calculator.calculateYearlyScores(Year.of(y));
+            Year year = Year.of(y);
+            periodTasks.add(() -> calculator.calculateYearlyScores(year));
         }
+        recomputeRunner.runPhase("periods", periodTasks);
 
+        dirtyPeriodTracker.commit(position);
         log.info("[SCHEDULER] Finished calculation for last 3 years.");
     }
 
@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+import com.example.demo.service.stats.StatsGeneration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/*  ETags of polled endpoints, computed without building the response.
+
+    - statistics: StatsGeneration (in memory, so prefixed with the start time of this instance),
+      the snapshot uses the generation it was written for
+    - activities: highest committed ids of ZMIANY_ZAJ (activity changes), stats_dirty_range (claims,
+      restores, schedule imports, deleted activities) and activity_employee (new assignments),
+      handed to ActivityPageCache so month lookups do not read it again.
+      Ids are taken from generators before commit, so a transaction committing after a higher id does not move
+      them - the number of committed transactions that changed activities (activity_commit_mark rows, see
+      the changelog) is part of the version too.
+    Statistics and activities include the user - responses carry per-user flags. The user and the request
+    parameters go in as SHA-256 of their canonical text, so different requests never share an ETag.  */
+@Service
+@Slf4j
+public class EtagService {
+
+    static final String SELECT_ACTIVITY_VERSION_SQL = """
+            SELECT (SELECT MAX(ZMIANY_ZAB_ID) FROM ZMIANY_ZAJ),
+                   (SELECT MAX(id) FROM stats_dirty_range),
+                   (SELECT MAX(id) FROM activity_employee),
+                   (SELECT folded FROM activity_commit_count WHERE id = 1) + (SELECT COUNT(*) FROM activity_commit_mark)
+            FROM RDB$DATABASE
+            """;
+    static final RowMapper<ActivityVersion> ACTIVITY_VERSION_MAPPER = (rs, rowNum) ->
+            new ActivityVersion(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+    //rows of transactions still running are not visible, they are counted by a later run
+    static final String DELETE_COMMIT_MARKS_SQL = "DELETE FROM activity_commit_mark";
+    static final String FOLD_COMMIT_MARKS_SQL = "UPDATE activity_commit_count SET folded = folded + ? WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsGeneration statsGeneration;
+    private final ActivityPageCache pageCache;
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+
+    public EtagService(JdbcTemplate jdbcTemplate, StatsGeneration statsGeneration, ActivityPageCache pageCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statsGeneration = statsGeneration;
+        this.pageCache = pageCache;
+    }
+
+    //requestParams: filters of the statistics query (granularity, employees, period window, page)
+    public String statisticsEtag(String username, Object... requestParams) {
+        return "\"stats-" + instanceId + "-" + statsGeneration.current() + "-" + digest(username, requestParams) + "\"";
+    }
+
+    //the snapshot body is the same for every user, but the current user header is not - a browser shared by two
+    //users must not answer the second one from the first one's cached response
+    public String snapshotEtag(String username, long generation) {
+        return "\"snap-" + instanceId + "-" + generation + "-" + digest(username) + "\"";
+    }
+
+    //requestParams: everything that selects the returned page (page, size, dates, sorting)
+    public String activitiesEtag(String username, Object... requestParams) {
+        ActivityVersion version = jdbcTemplate.queryForObject(SELECT_ACTIVITY_VERSION_SQL, ACTIVITY_VERSION_MAPPER);
+        pageCache.versionRead(version);
+        return "\"act-" + version.activityChanges() + "-" + version.dirtyRanges() + "-" + version.assignments()
+                + "-" + version.commits() + "-" + digest(username, requestParams) + "\"";
+    }
+
+    //Moves committed activity_commit_mark rows into the folded count - the sum, and so the version, stays the same
+    @Scheduled(fixedDelayString = "${activities.etag.fold-commit-marks-delay:600000}")
+    @Transactional
+    public void foldCommitMarks() {
+        int marks = jdbcTemplate.update(DELETE_COMMIT_MARKS_SQL);
+        if (marks > 0) {
+            jdbcTemplate.update(FOLD_COMMIT_MARKS_SQL, marks);
+            log.debug("{} activity commit marks folded", marks);
+        }
+    }
+
+    static String digest(String username, Object... requestParams) {
+        var canonical = new StringBuilder();
+        appendCanonical(canonical, username);
+        appendCanonical(canonical, Arrays.asList(requestParams));
+        try {
+            byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    //texts are length-prefixed and sets sorted, so every distinct request has its own text
+    private static void appendCanonical(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append('~');
+        } else if (value instanceof Collection<?> values) {
+            var elements = new ArrayList<String>();
+            values.forEach(element -> {
+                var text = new StringBuilder();
+                appendCanonical(text, element);
+                elements.add(text.toString());
+            });
+            if (value instanceof Set<?>) {
+                Collections.sort(elements);
+            }
+            out.append('[');
+            elements.forEach(out::append);
+            out.append(']');
+        } else {
+            String text = value.toString();
+            out.append(text.length()).append(':').append(text);
+        }
+    }
+}
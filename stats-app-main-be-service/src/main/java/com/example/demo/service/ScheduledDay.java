@@ -0,0 +1,5 @@
+package com.example.demo.service;
+
+//Day with a work schedule of an employee, as read by ScheduleRepository.findScheduledDays
+public record ScheduledDay(String yearMonth, Integer dayOfMonth) {
+}
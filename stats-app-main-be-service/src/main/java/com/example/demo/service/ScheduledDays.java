@@ -0,0 +1,32 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+//Scheduled days of one employee, one int per month with bit N set for day N
+final class ScheduledDays {
+
+    static final ScheduledDays NONE = new ScheduledDays(Map.of());
+
+    private final Map<YearMonth, Integer> daysByMonth;
+
+    private ScheduledDays(Map<YearMonth, Integer> daysByMonth) {
+        this.daysByMonth = daysByMonth;
+    }
+
+    static ScheduledDays of(Collection<ScheduledDay> days) {
+        Map<YearMonth, Integer> daysByMonth = new HashMap<>();
+        for (ScheduledDay day : days) {
+            daysByMonth.merge(YearMonth.parse(day.yearMonth()), 1 << day.dayOfMonth(), (a, b) -> a | b);
+        }
+        return new ScheduledDays(daysByMonth);
+    }
+
+    boolean contains(LocalDate date) {
+        int days = daysByMonth.getOrDefault(YearMonth.from(date), 0);
+        return (days & (1 << date.getDayOfMonth())) != 0;
+    }
+}
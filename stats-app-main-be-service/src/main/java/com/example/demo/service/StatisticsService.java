@@ -4,79 +4,201 @@ package com.example.demo.service;
 import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
 import com.example.demo.dto.stats_dtos.*;
 import com.example.demo.entity.UserEntity;
-import com.example.demo.mapper.EmployeeStatisticsMapper;
 import com.example.demo.repository.UserRepository;
-import com.example.demo.repository.stats.DailyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.MonthlyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.WeeklyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.YearlyEmployeeStatisticRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.demo.service.stats.StatsGeneration;
+import com.example.demo.service.stats.StatsReader;
+import com.example.demo.service.stats.StatsSlice;
+import com.example.demo.service.stats.StatsTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static com.example.demo.util.AuthUtil.userFromSecurityContext;
 
+/*  Stats of all employees are read once per stats generation and shared by all requests
+    (StatsWriter and schedule imports bump the generation). Only the current user flag and
+    ordering are applied per request, on copies of the cached DTOs.
+    Filtered requests (StatisticsQuery) skip the cache and read only the requested slices.  */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class StatisticsService {
 
+    static final int DAILY_LIMIT = 100;
+    static final int WEEKLY_LIMIT = 36;
+    static final int MONTHLY_LIMIT = 24;
+    static final int YEARLY_LIMIT = 5;
+
     private final UserRepository userRepository;
-    private final DailyEmployeeStatisticRepository dailyRepo;
-    private final WeeklyEmployeeStatisticRepository weeklyRepo;
-    private final MonthlyEmployeeStatisticRepository monthlyRepo;
-    private final YearlyEmployeeStatisticRepository yearlyRepo;
-    private final EmployeeStatisticsMapper mapper;
+    private final StatsReader statsReader;
+    private final StatsGeneration statsGeneration;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer cacheRebuilds;
+
+    private volatile CachedStats cached;
+
+    public StatisticsService(UserRepository userRepository,
+                             StatsReader statsReader,
+                             StatsGeneration statsGeneration,
+                             MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.statsReader = statsReader;
+        this.statsGeneration = statsGeneration;
+        this.cacheHits = meterRegistry.counter("stats.read.cache", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("stats.read.cache", "result", "miss");
+        this.cacheRebuilds = meterRegistry.timer("stats.read.cache.rebuild");
+    }
 
     public StatisticsDto getStatistics() {
 
         String currentUser = userFromSecurityContext();
 
+        List<EmployeeStatsDto> stats = sharedStats().stream()
+                .map(e -> new EmployeeStatsDto(
+                        e.getEmployeeName(),
+                        e.getEmployeeCode(),
+                        e.getEmployeeCode().equals(currentUser),
+                        e.getDailyStats(),
+                        e.getWeeklyStats(),
+                        e.getMonthlyStats(),
+                        e.getYearlyStats()
+                ))
+                .sorted(Comparator.comparing(EmployeeStatsDto::isCurrentUser).reversed())
+                .toList();
+
+        return new StatisticsDto(stats);
+    }
+
+    public StatisticsDto getStatistics(StatisticsQuery query) {
+        if (query.isUnfiltered()) {
+            return getStatistics();
+        }
+
+        String currentUser = userFromSecurityContext();
+
+        List<UserEntity> users = selectUsers(query, currentUser);
+        if (users.isEmpty()) {
+            return new StatisticsDto(List.of());
+        }
+        //all employees are read without an IN list
+        List<Integer> sliceEmployees = query.employeeIds().isEmpty() && !query.isPaged()
+                ? List.of()
+                : users.stream().map(UserEntity::getId).toList();
+        var slice = new StatsSlice(sliceEmployees, query.from(), query.to());
+
+        Map<Integer, List<DailyStatsDto>> dailyByEmployee = query.includes(StatsTable.DAY)
+                ? statsReader.latestDaily(DAILY_LIMIT, slice) : Map.of();
+        Map<Integer, List<WeeklyStatsDto>> weeklyByEmployee = query.includes(StatsTable.WEEK)
+                ? statsReader.latestWeekly(WEEKLY_LIMIT, slice) : Map.of();
+        Map<Integer, List<MonthlyStatsDto>> monthlyByEmployee = query.includes(StatsTable.MONTH)
+                ? statsReader.latestMonthly(MONTHLY_LIMIT, slice) : Map.of();
+        Map<Integer, List<YearlyStatsDto>> yearlyByEmployee = query.includes(StatsTable.YEAR)
+                ? statsReader.latestYearly(YEARLY_LIMIT, slice) : Map.of();
+
+        List<EmployeeStatsDto> stats = users.stream()
+                .map(u -> new EmployeeStatsDto(
+                        u.getFullName(),
+                        u.getEmployeeCode(),
+                        u.getEmployeeCode().equals(currentUser),
+                        dailyByEmployee.getOrDefault(u.getId(), List.of()),
+                        weeklyByEmployee.getOrDefault(u.getId(), List.of()),
+                        monthlyByEmployee.getOrDefault(u.getId(), List.of()),
+                        yearlyByEmployee.getOrDefault(u.getId(), List.of())
+                ))
+                .filter(StatisticsService::hasAnyStats)
+                .toList();
+
+        return new StatisticsDto(stats);
+    }
+
+    //Requested employees, current user first then by name, cut to the requested page
+    private List<UserEntity> selectUsers(StatisticsQuery query, String currentUser) {
+        List<UserEntity> users = query.employeeIds().isEmpty()
+                ? userRepository.findAll()
+                : userRepository.findAllById(query.employeeIds());
+        var sorted = users.stream()
+                .sorted(Comparator.comparing((UserEntity u) -> !u.getEmployeeCode().equals(currentUser))
+                        .thenComparing(UserEntity::getFullName, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+        if (!query.isPaged()) {
+            return sorted;
+        }
+        int size = query.size() != null ? query.size() : StatisticsQuery.DEFAULT_PAGE_SIZE;
+        int page = query.page() != null ? query.page() : 0;
+        int from = (int) Math.min((long) page * size, sorted.size());
+        return sorted.subList(from, Math.min(from + size, sorted.size()));
+    }
+
+    //Cached stats of employees with any stats, without the per-request current user flag
+    List<EmployeeStatsDto> sharedStats() {
+        var snapshot = cached;
+        if (snapshot != null && snapshot.generation() == statsGeneration.current()) {
+            cacheHits.increment();
+            return snapshot.employees();
+        }
+        cacheMisses.increment();
+        return rebuild();
+    }
+
+    private synchronized List<EmployeeStatsDto> rebuild() {
+        //generation read before the stats - a bump during the read makes the next request rebuild again
+        long generation = statsGeneration.current();
+        var snapshot = cached;
+        if (snapshot != null && snapshot.generation() == generation) {
+            return snapshot.employees();
+        }
+        List<EmployeeStatsDto> employees = cacheRebuilds.record(this::readAllEmployeeStats);
+        cached = new CachedStats(generation, employees);
+        log.debug("Statistics cache rebuilt for generation {} ({} employees)", generation, employees.size());
+        return employees;
+    }
+
+    //Five queries whatever the number of employees: users + one per stats table
+    private List<EmployeeStatsDto> readAllEmployeeStats() {
         Set<UserEntity> allUsers = new HashSet<>(userRepository.findAll());
 
-        List<EmployeeStatsDto> stats = allUsers.stream()
+        Map<Integer, List<DailyStatsDto>> dailyByEmployee = statsReader.latestDaily(DAILY_LIMIT);
+        Map<Integer, List<WeeklyStatsDto>> weeklyByEmployee = statsReader.latestWeekly(WEEKLY_LIMIT);
+        Map<Integer, List<MonthlyStatsDto>> monthlyByEmployee = statsReader.latestMonthly(MONTHLY_LIMIT);
+        Map<Integer, List<YearlyStatsDto>> yearlyByEmployee = statsReader.latestYearly(YEARLY_LIMIT);
+
+        return allUsers.stream()
                 .map(u -> {
                     Integer empId = u.getId();
                     String name = u.getFullName();
                     String code = u.getEmployeeCode();
-                    boolean isCurrentlyLogged = u.getEmployeeCode().equals(currentUser);
 
-                    List<DailyStatsDto> daily = mapper.toDailyDtoList(
-                            dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(empId)
-                    );
-                    List<WeeklyStatsDto> weekly = mapper.toWeeklyDtoList(
-                            weeklyRepo.findTop36ByEmployeeIdOrderByWeekStartDesc(empId)
-                    );
-                    List<MonthlyStatsDto> monthly = mapper.toMonthlyDtoList(
-                            monthlyRepo.findTop24ByEmployeeIdOrderByMonthDesc(empId)
-                    );
-                    List<YearlyStatsDto> yearly = mapper.toYearlyDtoList(
-                            yearlyRepo.findTop5ByEmployeeIdOrderByYearDesc(empId)
-                    );
+                    List<DailyStatsDto> daily = List.copyOf(dailyByEmployee.getOrDefault(empId, List.of()));
+                    List<WeeklyStatsDto> weekly = List.copyOf(weeklyByEmployee.getOrDefault(empId, List.of()));
+                    List<MonthlyStatsDto> monthly = List.copyOf(monthlyByEmployee.getOrDefault(empId, List.of()));
+                    List<YearlyStatsDto> yearly = List.copyOf(yearlyByEmployee.getOrDefault(empId, List.of()));
 
                     return new EmployeeStatsDto(
                             name,
                             code,
-                            isCurrentlyLogged,
+                            false,
                             daily,
                             weekly,
                             monthly,
                             yearly
                     );
                 })
-
-                .sorted(Comparator.comparing(EmployeeStatsDto::isCurrentUser).reversed())
-                .filter(e -> !e.getDailyStats().isEmpty() ||
-                        !e.getMonthlyStats().isEmpty() ||
-                        !e.getWeeklyStats().isEmpty() ||
-                        !e.getYearlyStats().isEmpty())
+                .filter(StatisticsService::hasAnyStats)
                 .toList();
-
-        return new StatisticsDto(stats);
     }
 
+    private static boolean hasAnyStats(EmployeeStatsDto e) {
+        return !e.getDailyStats().isEmpty() ||
+                !e.getMonthlyStats().isEmpty() ||
+                !e.getWeeklyStats().isEmpty() ||
+                !e.getYearlyStats().isEmpty();
+    }
 
+    private record CachedStats(long generation, List<EmployeeStatsDto> employees) {
+    }
 }
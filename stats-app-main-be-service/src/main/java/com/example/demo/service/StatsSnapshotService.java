@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
+import com.example.demo.service.stats.StatsGeneration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/*  Gzipped JSON of the statistics of all employees, written by EmployeeStatsScheduler after each run.
+
+    - Same content as GET /api/statistics without filters, but with currentUser=false for everyone -
+      the controller sends the employee code of the caller in a header instead.
+    - Written to a temp file and renamed to a file of its generation, so readers never see a partial file and
+      a download keeps reading the file (and length) it started with. Replaced files are deleted once they are
+      older than 'stats.snapshot.keep-replaced', files of earlier application runs on the first write.
+    - Skipped when the stats generation has not changed since the last snapshot.  */
+@Service
+@Slf4j
+public class StatsSnapshotService {
+
+    static final String SNAPSHOT_PREFIX = "statistics-";
+    static final String SNAPSHOT_SUFFIX = ".json.gz";
+
+    private final StatisticsService statisticsService;
+    private final StatsGeneration statsGeneration;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Duration keepReplaced;
+
+    private volatile Snapshot current;
+    //guarded by this
+    private final Deque<Replaced> replaced = new ArrayDeque<>();
+
+    public StatsSnapshotService(StatisticsService statisticsService,
+                                StatsGeneration statsGeneration,
+                                ObjectMapper objectMapper,
+                                @Value("${stats.snapshot.directory:${java.io.tmpdir}/stats-snapshot}") Path directory,
+                                @Value("${stats.snapshot.keep-replaced:10m}") Duration keepReplaced) {
+        this.statisticsService = statisticsService;
+        this.statsGeneration = statsGeneration;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.keepReplaced = keepReplaced;
+    }
+
+    public synchronized Snapshot write() {
+        //generation read before the stats - a bump during the write makes the next run write again
+        long generation = statsGeneration.current();
+        var snapshot = current;
+        if (snapshot != null && snapshot.generation() == generation && Files.exists(snapshot.path())) {
+            return snapshot;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path target = directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+            Path temp = Files.createTempFile(directory, SNAPSHOT_PREFIX, ".tmp");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                    objectMapper.writeValue(out, new StatisticsDto(statisticsService.sharedStats()));
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            current = new Snapshot(target, generation, Files.size(target));
+            log.info("Statistics snapshot written for generation {} ({} bytes)", generation, current.size());
+            if (snapshot == null) {
+                deleteEarlierRuns(target);
+            } else if (!snapshot.path().equals(target)) {
+                replaced.addLast(new Replaced(snapshot.path(), Instant.now()));
+            }
+            deleteReplaced();
+            return current;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing statistics snapshot to " + directory + " failed", e);
+        }
+    }
+
+    //Latest written snapshot, written now if the application has not written one yet
+    public Snapshot latest() {
+        return Optional.ofNullable(current).orElseGet(this::write);
+    }
+
+    //the generation counter starts again with the application, so these files are never read any more
+    private void deleteEarlierRuns(Path target) throws IOException {
+        try (var files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(target)) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    private void deleteReplaced() {
+        Instant deleteBefore = Instant.now().minus(keepReplaced);
+        while (!replaced.isEmpty() && !replaced.peekFirst().at().isAfter(deleteBefore)) {
+            if (!delete(replaced.peekFirst().path())) {
+                return;
+            }
+            replaced.pollFirst();
+        }
+    }
+
+    //false when the file is still open somewhere and the OS does not allow deleting it - tried again next time
+    private static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            log.warn("Replaced statistics snapshot {} could not be deleted", file, e);
+            return false;
+        }
+    }
+
+    public record Snapshot(Path path, long generation, long size) {
+    }
+
+    private record Replaced(Path path, Instant at) {
+    }
+}
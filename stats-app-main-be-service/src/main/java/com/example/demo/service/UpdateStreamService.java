@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.UpdateEventDto;
+import com.example.demo.service.stats.StatsGeneration;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*  Pushes UpdateEventDto notifications to clients of GET /api/statistics/stream (Server-Sent Events).
+
+    - Publishers only put events into per-client queues of 'stats.stream.client-buffer' events. A client
+      whose queue is full is disconnected (it reconnects and refetches) instead of holding up the others.
+    - Queues are sent and heartbeats written by one small shared scheduler, never by the publishing thread.
+    - Stats generation bumps come in bursts (one per StatsWriter batch), so they are sent at most once
+      per 'stats.stream.stats-debounce' with the newest generation.
+    - Events published inside a transaction are sent after commit.  */
+@Service
+@Slf4j
+public class UpdateStreamService {
+
+    static final String HEARTBEAT_COMMENT = "ping";
+    //queued like an event, written as an SSE comment
+    private static final UpdateEventDto HEARTBEAT = new UpdateEventDto(HEARTBEAT_COMMENT, null, null, null, null);
+
+    private final StatsGeneration statsGeneration;
+    private final int maxClients;
+    private final int clientBuffer;
+    private final Duration timeout;
+    private final Duration statsDebounce;
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean statsPending = new AtomicBoolean();
+    private final AtomicLong latestGeneration = new AtomicLong();
+
+    public UpdateStreamService(StatsGeneration statsGeneration,
+                               @Value("${stats.stream.max-clients:200}") int maxClients,
+                               @Value("${stats.stream.client-buffer:16}") int clientBuffer,
+                               @Value("${stats.stream.heartbeat:20s}") Duration heartbeat,
+                               @Value("${stats.stream.timeout:30m}") Duration timeout,
+                               @Value("${stats.stream.stats-debounce:2s}") Duration statsDebounce) {
+        this.statsGeneration = statsGeneration;
+        this.maxClients = maxClients;
+        this.clientBuffer = clientBuffer;
+        this.timeout = timeout;
+        this.statsDebounce = statsDebounce;
+        this.scheduler = Executors.newScheduledThreadPool(2, senderThreadFactory());
+        scheduler.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        statsGeneration.addListener(this::statsChanged);
+    }
+
+    //empty when the connection limit is reached
+    public Optional<SseEmitter> subscribe(String username) {
+        if (clients.size() >= maxClients) {
+            log.warn("Update stream refused for {} - {} clients connected", username, clients.size());
+            return Optional.empty();
+        }
+        SseEmitter emitter = newEmitter(timeout.toMillis());
+        var client = new Client(username, emitter, new ArrayBlockingQueue<>(clientBuffer));
+        clients.add(client);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        log.debug("Update stream opened for {} ({} clients)", username, clients.size());
+
+        //first event lets the client compare the generation with the data it already has
+        enqueue(client, UpdateEventDto.stats(statsGeneration.current()));
+        return Optional.of(emitter);
+    }
+
+    public void publish(UpdateEventDto event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(event);
+                }
+            });
+        } else {
+            broadcast(event);
+        }
+    }
+
+    int clientCount() {
+        return clients.size();
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void statsChanged(long generation) {
+        latestGeneration.accumulateAndGet(generation, Math::max);
+        if (statsPending.compareAndSet(false, true)) {
+            schedule(() -> {
+                statsPending.set(false);
+                broadcast(UpdateEventDto.stats(latestGeneration.get()));
+            }, statsDebounce.toMillis());
+        }
+    }
+
+    private void broadcast(UpdateEventDto event) {
+        clients.forEach(client -> enqueue(client, event));
+    }
+
+    private void heartbeat() {
+        clients.forEach(client -> enqueue(client, HEARTBEAT));
+    }
+
+    private void enqueue(Client client, UpdateEventDto event) {
+        if (!client.queue().offer(event)) {
+            log.warn("Update stream of {} is {} events behind, disconnecting", client.username(), clientBuffer);
+            drop(client);
+            return;
+        }
+        if (client.draining().compareAndSet(false, true)) {
+            schedule(() -> drain(client), 0);
+        }
+    }
+
+    //one drain per client at a time, so events of a client are written in order
+    private void drain(Client client) {
+        try {
+            UpdateEventDto event;
+            while ((event = client.queue().poll()) != null) {
+                client.emitter().send(toSse(event));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Update stream of {} closed: {}", client.username(), e.getMessage());
+            drop(client);
+            return;
+        } finally {
+            client.draining().set(false);
+        }
+        //an event enqueued after the last poll, but before the flag was cleared
+        if (!client.queue().isEmpty() && client.draining().compareAndSet(false, true)) {
+            schedule(() -> drain(client), 0);
+        }
+    }
+
+    private void drop(Client client) {
+        if (clients.remove(client)) {
+            client.queue().clear();
+            client.emitter().complete();
+        }
+    }
+
+    private void schedule(Runnable task, long delayMillis) {
+        try {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Update stream scheduler stopped, event not sent");
+        }
+    }
+
+    //builders are single use - one is built per client and event
+    private static SseEmitter.SseEventBuilder toSse(UpdateEventDto event) {
+        if (event == HEARTBEAT) {
+            return SseEmitter.event().comment(HEARTBEAT_COMMENT);
+        }
+        return SseEmitter.event().name(event.type()).data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private static ThreadFactory senderThreadFactory() {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "update-stream-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        clients.forEach(this::drop);
+    }
+
+    private record Client(String username, SseEmitter emitter, BlockingQueue<UpdateEventDto> queue,
+                          AtomicBoolean draining) {
+
+        Client(String username, SseEmitter emitter, BlockingQueue<UpdateEventDto> queue) {
+            this(username, emitter, queue, new AtomicBoolean());
+        }
+    }
+}
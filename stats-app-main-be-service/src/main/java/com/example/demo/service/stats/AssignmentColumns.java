@@ -0,0 +1,114 @@
+package com.example.demo.service.stats;
+
+import java.util.Arrays;
+
+/*  Assignments needed for scoring kept in primitive arrays (one index = one activity_employee row)
+    instead of ActivityEmployeeEntity graphs with activities, procedures, schedules and users.
+
+    - mode: 'F', 'B', 'S', 'U' or 0 for any other procedure work mode
+    - missing procedure minutes are stored as -1, missing schedule as id 0 (schedule ids start at 1)
+    - day: activity date as epoch day (LocalDate.toEpochDay)  */
+public final class AssignmentColumns {
+
+    static final int NO_SCHEDULE = 0;
+    static final int NO_MINUTES = -1;
+
+    private int size;
+    private int[] days;
+    private int[] activityIds;
+    private int[] employeeIds;
+    private int[] scheduleIds;
+    private int[] scheduleMinutes;
+    private int[] procedureMinutes;
+    private byte[] modes;
+
+    public AssignmentColumns() {
+        this(64);
+    }
+
+    public AssignmentColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        days = new int[capacity];
+        activityIds = new int[capacity];
+        employeeIds = new int[capacity];
+        scheduleIds = new int[capacity];
+        scheduleMinutes = new int[capacity];
+        procedureMinutes = new int[capacity];
+        modes = new byte[capacity];
+    }
+
+    public void add(int epochDay, int activityId, int employeeId, String workMode, Integer procedureMins,
+                    Integer scheduleId, Integer scheduleMins) {
+        if (size == activityIds.length) {
+            grow();
+        }
+        days[size] = epochDay;
+        activityIds[size] = activityId;
+        employeeIds[size] = employeeId;
+        modes[size] = encodeMode(workMode);
+        procedureMinutes[size] = procedureMins != null ? procedureMins : NO_MINUTES;
+        scheduleIds[size] = scheduleId != null ? scheduleId : NO_SCHEDULE;
+        scheduleMinutes[size] = scheduleMins != null ? scheduleMins : 0;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int day(int i) {
+        return days[i];
+    }
+
+    int activityId(int i) {
+        return activityIds[i];
+    }
+
+    int employeeId(int i) {
+        return employeeIds[i];
+    }
+
+    byte mode(int i) {
+        return modes[i];
+    }
+
+    int procedureMinutes(int i) {
+        return procedureMinutes[i];
+    }
+
+    int scheduleId(int i) {
+        return scheduleIds[i];
+    }
+
+    int scheduleMinutes(int i) {
+        return scheduleMinutes[i];
+    }
+
+    static byte encodeMode(String workMode) {
+        if (workMode == null || workMode.length() != 1) return 0;
+        char mode = Character.toUpperCase(workMode.charAt(0));
+        return switch (mode) {
+            case 'F', 'B', 'S', 'U' -> (byte) mode;
+            default -> 0;
+        };
+    }
+
+    private void grow() {
+        int capacity = activityIds.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        activityIds = Arrays.copyOf(activityIds, capacity);
+        employeeIds = Arrays.copyOf(employeeIds, capacity);
+        scheduleIds = Arrays.copyOf(scheduleIds, capacity);
+        scheduleMinutes = Arrays.copyOf(scheduleMinutes, capacity);
+        procedureMinutes = Arrays.copyOf(procedureMinutes, capacity);
+        modes = Arrays.copyOf(modes, capacity);
+    }
+}
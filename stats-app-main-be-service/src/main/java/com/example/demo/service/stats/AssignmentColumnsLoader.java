@@ -0,0 +1,54 @@
+package com.example.demo.service.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//Reads assignments of a date range straight into AssignmentColumns - no entities, no persistence context
+@Component
+@RequiredArgsConstructor
+public class AssignmentColumnsLoader {
+
+    //UW/ZL schedules without a substitute are filtered out here instead of in Java
+    public static final String SELECT_ASSIGNMENTS_SQL = """
+            SELECT a.ZAJECIE_DATA, ae.activity_id, ae.employee_id, p.ZABIEG_UWAGI, p.ZABIEG_PUNKTY,
+                   ws.id, ws.work_duration_minutes
+            FROM activity_employee ae
+                     JOIN ZAJECIE a ON a.ZAJECIE_ID = ae.activity_id
+                     LEFT JOIN ZABIEG p ON p.ZABIEG_ID = a.zabieg_id
+                     LEFT JOIN work_schedule ws ON ws.id = ae.work_schedule_id
+            WHERE a.ZAJECIE_DATA >= ?
+              AND a.ZAJECIE_DATA < ?
+              AND (ws.id IS NULL
+                OR ws.substitute_employee_id IS NOT NULL
+                OR ws.work_mode IS NULL
+                OR UPPER(ws.work_mode) NOT IN ('UW', 'ZL'))
+            ORDER BY a.ZAJECIE_DATA, ae.activity_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //Rows come ordered by activity date, so every day is a contiguous slice of the result
+    public AssignmentColumns load(LocalDateTime start, LocalDateTime end) {
+        var columns = new AssignmentColumns();
+        jdbcTemplate.query(SELECT_ASSIGNMENTS_SQL, (ResultSet rs) -> readRow(rs, columns), Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return columns;
+    }
+
+    //Appends the current row of a SELECT_ASSIGNMENTS_SQL result
+    public static void readRow(ResultSet rs, AssignmentColumns columns) throws SQLException {
+        columns.add(
+                (int) rs.getTimestamp(1).toLocalDateTime().toLocalDate().toEpochDay(),
+                rs.getInt(2),
+                rs.getInt(3),
+                rs.getString(4),
+                rs.getObject(5, Integer.class),
+                rs.getObject(6, Integer.class),
+                rs.getObject(7, Integer.class));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service.stats;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/*  Scoring done by Firebird - only (employee, day, numerator, denominator) rows are transferred.
+
+    Same rules as EmployeeScoreEngine:
+    - UW/ZL schedules without a substitute are left out (also when counting co-assignees).
+    - F/B: procedure minutes split between assignees of the activity (correlated COUNT, Firebird 2.5
+      has no window functions), S: procedure minutes, U: 1, anything else 0.
+    - Denominator: every schedule counted once per employee per day (SELECT DISTINCT).  */
+@Component
+@ConditionalOnProperty(name = "stats.calculation.strategy", havingValue = "database")
+@RequiredArgsConstructor
+@Slf4j
+public class DatabaseScoreCalculationStrategy implements ScoreCalculationStrategy {
+
+    static final String ASSIGNMENT_FILTER = "(%1$s.id IS NULL OR %1$s.substitute_employee_id IS NOT NULL " +
+            "OR %1$s.work_mode IS NULL OR UPPER(%1$s.work_mode) NOT IN ('UW', 'ZL'))";
+
+    static final String DAILY_PARTIALS_SQL = """
+            SELECT n.emp_id, n.y, n.m, n.d, n.numerator, COALESCE(dn.denominator, 0)
+            FROM (SELECT x.emp_id, x.y, x.m, x.d, SUM(x.num) AS numerator
+                  FROM (SELECT ae.employee_id AS emp_id,
+                               EXTRACT(YEAR FROM a.ZAJECIE_DATA) AS y,
+                               EXTRACT(MONTH FROM a.ZAJECIE_DATA) AS m,
+                               EXTRACT(DAY FROM a.ZAJECIE_DATA) AS d,
+                               CASE
+                                   WHEN UPPER(p.ZABIEG_UWAGI) IN ('F', 'B') THEN
+                                       COALESCE(CAST(p.ZABIEG_PUNKTY AS DOUBLE PRECISION) /
+                                                (SELECT COUNT(*)
+                                                 FROM activity_employee ae2
+                                                          LEFT JOIN work_schedule ws2 ON ws2.id = ae2.work_schedule_id
+                                                 WHERE ae2.activity_id = ae.activity_id
+                                                   AND %2$s), 0)
+                                   WHEN UPPER(p.ZABIEG_UWAGI) = 'S' THEN COALESCE(p.ZABIEG_PUNKTY, 0)
+                                   WHEN UPPER(p.ZABIEG_UWAGI) = 'U' THEN 1
+                                   ELSE 0
+                                   END AS num
+                        FROM activity_employee ae
+                                 JOIN ZAJECIE a ON a.ZAJECIE_ID = ae.activity_id
+                                 LEFT JOIN ZABIEG p ON p.ZABIEG_ID = a.zabieg_id
+                                 LEFT JOIN work_schedule ws ON ws.id = ae.work_schedule_id
+                        WHERE a.ZAJECIE_DATA >= ? AND a.ZAJECIE_DATA < ?
+                          AND %1$s) x
+                  GROUP BY x.emp_id, x.y, x.m, x.d) n
+                     LEFT JOIN (SELECT s.emp_id, s.y, s.m, s.d, SUM(s.minutes) AS denominator
+                                FROM (SELECT DISTINCT ae.employee_id AS emp_id,
+                                                      EXTRACT(YEAR FROM a.ZAJECIE_DATA) AS y,
+                                                      EXTRACT(MONTH FROM a.ZAJECIE_DATA) AS m,
+                                                      EXTRACT(DAY FROM a.ZAJECIE_DATA) AS d,
+                                                      ws.id AS ws_id,
+                                                      COALESCE(ws.work_duration_minutes, 0) AS minutes
+                                      FROM activity_employee ae
+                                               JOIN ZAJECIE a ON a.ZAJECIE_ID = ae.activity_id
+                                               JOIN work_schedule ws ON ws.id = ae.work_schedule_id
+                                      WHERE a.ZAJECIE_DATA >= ? AND a.ZAJECIE_DATA < ?
+                                        AND %1$s) s
+                                GROUP BY s.emp_id, s.y, s.m, s.d) dn
+                               ON dn.emp_id = n.emp_id AND dn.y = n.y AND dn.m = n.m AND dn.d = n.d
+            """.formatted(ASSIGNMENT_FILTER.formatted("ws"), ASSIGNMENT_FILTER.formatted("ws2"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Integer, ScorePartials> dayPartials(LocalDate day) {
+        return dailyPartials(day, day).getOrDefault(day, Map.of());
+    }
+
+    @Override
+    public Map<LocalDate, Map<Integer, ScorePartials>> dailyPartials(LocalDate from, LocalDate to) {
+        var start = Timestamp.valueOf(from.atStartOfDay());
+        var end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+
+        Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay = new HashMap<>();
+        jdbcTemplate.query(DAILY_PARTIALS_SQL, rs -> {
+            LocalDate day = LocalDate.of(rs.getInt(2), rs.getInt(3), rs.getInt(4));
+            partialsByDay.computeIfAbsent(day, d -> new HashMap<>())
+                    .put(rs.getInt(1), new ScorePartials(rs.getDouble(5), rs.getDouble(6)));
+        }, start, end, start, end);
+        log.debug("Database partials from {} to {}: {} days", from, to, partialsByDay.size());
+        return partialsByDay;
+    }
+}
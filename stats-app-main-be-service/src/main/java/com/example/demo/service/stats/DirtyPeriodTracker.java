@@ -0,0 +1,210 @@
+package com.example.demo.service.stats;
+
+import com.example.demo.entity.stats.StatsWatermarkEntity;
+import com.example.demo.repository.stats.StatsWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*  Works out which stats periods have to be recalculated since the last run.
+
+    Sources of changes (each read from its own persisted watermark):
+    - ZMIANY_ZAJ: rows written by ZAJ_INSERT/ZAJ_UPDATE/ZAJ_DELETE triggers; the date is taken from ZAJECIE.
+    - STATS_DIRTY_RANGE: dates of deleted/moved activities (DB triggers), activity_employee changes
+      and schedule imports (written by the application through markDirty methods).
+
+    Ids come from generators at insert time, not at commit - a row can become visible after higher ids were
+    already read past. So the last 'stats.dirty.look-back-ids' ids below each watermark are read again on every
+    run, and the ones already processed (kept in memory) are skipped. After a restart the window is processed
+    once more, which only recalculates a few periods twice.  */
+@Component
+@Slf4j
+public class DirtyPeriodTracker {
+
+    static final String ZMIANY_ZAJ_WATERMARK = "ZMIANY_ZAJ";
+    static final String DIRTY_RANGE_WATERMARK = "STATS_DIRTY_RANGE";
+
+    static final String SELECT_ACTIVITY_CHANGES_SQL = """
+            SELECT z.ZMIANY_ZAB_ID, a.ZAJECIE_DATA
+            FROM ZMIANY_ZAJ z
+                     LEFT JOIN ZAJECIE a ON a.ZAJECIE_ID = z.ZMIENIONO_ID
+            WHERE z.ZMIANY_ZAB_ID > ?
+            """;
+    static final String SELECT_DIRTY_RANGES_SQL = """
+            SELECT id, dirty_from, dirty_to
+            FROM stats_dirty_range
+            WHERE id > ?
+            """;
+    static final String SELECT_MAX_ACTIVITY_CHANGE_ID_SQL = "SELECT COALESCE(MAX(ZMIANY_ZAB_ID), 0) FROM ZMIANY_ZAJ";
+    static final String SELECT_MAX_DIRTY_RANGE_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM stats_dirty_range";
+    //ids of the look-back window, between the window start and the max read before
+    static final String SELECT_ACTIVITY_CHANGE_IDS_SQL = """
+            SELECT ZMIANY_ZAB_ID FROM ZMIANY_ZAJ
+            WHERE ZMIANY_ZAB_ID > ? AND ZMIANY_ZAB_ID <= ?
+            """;
+    static final String SELECT_DIRTY_RANGE_IDS_SQL = """
+            SELECT id FROM stats_dirty_range
+            WHERE id > ? AND id <= ?
+            """;
+    static final String INSERT_DIRTY_RANGE_SQL = """
+            INSERT INTO stats_dirty_range (dirty_from, dirty_to, source, created_at)
+            VALUES (?, ?, ?, ?)
+            """;
+    static final String SELECT_ASSIGNMENT_BATCH_RANGE_SQL = """
+            SELECT MIN(a.ZAJECIE_DATA), MAX(a.ZAJECIE_DATA)
+            FROM activity_employee ae
+                     JOIN ZAJECIE a ON a.ZAJECIE_ID = ae.activity_id
+            WHERE ae.created_at = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsWatermarkRepository watermarkRepository;
+    private final int lookBackIds;
+    //ids inside the look-back windows whose changes were already recalculated
+    private final ProcessedIds processedActivityChanges = new ProcessedIds();
+    private final ProcessedIds processedDirtyRanges = new ProcessedIds();
+
+    public DirtyPeriodTracker(JdbcTemplate jdbcTemplate,
+                              StatsWatermarkRepository watermarkRepository,
+                              @Value("${stats.dirty.look-back-ids:1000}") int lookBackIds) {
+        if (lookBackIds < 0) {
+            throw new IllegalArgumentException("stats.dirty.look-back-ids must not be negative, got " + lookBackIds);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.watermarkRepository = watermarkRepository;
+        this.lookBackIds = lookBackIds;
+    }
+
+    public boolean isInitialized() {
+        return watermarkRepository.existsById(ZMIANY_ZAJ_WATERMARK)
+                && watermarkRepository.existsById(DIRTY_RANGE_WATERMARK);
+    }
+
+    public PendingChanges collectChanges() {
+        var dirtyDays = new TreeSet<LocalDate>();
+        var activityChangeIds = new HashSet<Integer>();
+        var dirtyRangeIds = new HashSet<Integer>();
+        int zmianyWatermark = readActivityChanges(watermark(ZMIANY_ZAJ_WATERMARK), dirtyDays, activityChangeIds);
+        int dirtyRangeWatermark = readDirtyRanges(watermark(DIRTY_RANGE_WATERMARK), dirtyDays, dirtyRangeIds);
+
+        log.info("Found {} dirty days (ZMIANY_ZAJ watermark {}, dirty range watermark {})",
+                dirtyDays.size(), zmianyWatermark, dirtyRangeWatermark);
+        return new PendingChanges(DirtyPeriods.of(dirtyDays), zmianyWatermark, dirtyRangeWatermark,
+                activityChangeIds, dirtyRangeIds);
+    }
+
+    //Used before a full recalculation - everything committed up to the current max ids is covered by it.
+    //The max ids are read on their own, so an empty look-back window (look-back-ids=0) still moves the watermarks
+    public PendingChanges currentPosition() {
+        int maxActivityChangeId = jdbcTemplate.queryForObject(SELECT_MAX_ACTIVITY_CHANGE_ID_SQL, Integer.class);
+        int maxDirtyRangeId = jdbcTemplate.queryForObject(SELECT_MAX_DIRTY_RANGE_ID_SQL, Integer.class);
+        return new PendingChanges(DirtyPeriods.empty(), maxActivityChangeId, maxDirtyRangeId,
+                windowIds(SELECT_ACTIVITY_CHANGE_IDS_SQL, maxActivityChangeId),
+                windowIds(SELECT_DIRTY_RANGE_IDS_SQL, maxDirtyRangeId));
+    }
+
+    @Transactional
+    public void commit(PendingChanges changes) {
+        var now = LocalDateTime.now();
+        watermarkRepository.save(new StatsWatermarkEntity(ZMIANY_ZAJ_WATERMARK, changes.zmianyWatermark(), now));
+        watermarkRepository.save(new StatsWatermarkEntity(DIRTY_RANGE_WATERMARK, changes.dirtyRangeWatermark(), now));
+        processedActivityChanges.add(changes.activityChangeIds(), changes.zmianyWatermark() - lookBackIds);
+        processedDirtyRanges.add(changes.dirtyRangeIds(), changes.dirtyRangeWatermark() - lookBackIds);
+    }
+
+    public void markDirty(LocalDate from, LocalDate to, String source) {
+        jdbcTemplate.update(INSERT_DIRTY_RANGE_SQL,
+                Timestamp.valueOf(from.atStartOfDay()),
+                Timestamp.valueOf(to.atStartOfDay()),
+                source,
+                Timestamp.valueOf(LocalDateTime.now()));
+        log.debug("Stats marked dirty from {} to {} (source={})", from, to, source);
+    }
+
+    //Marks dates of activities assigned by a single bulk insert (identified by its created_at value)
+    public void markDirtyForAssignmentBatch(Timestamp createdAt) {
+        jdbcTemplate.query(SELECT_ASSIGNMENT_BATCH_RANGE_SQL, rs -> {
+            Timestamp from = rs.getTimestamp(1);
+            Timestamp to = rs.getTimestamp(2);
+            if (from != null && to != null) {
+                markDirty(from.toLocalDateTime().toLocalDate(), to.toLocalDateTime().toLocalDate(), "ASSIGNMENT_JOB");
+            }
+        }, createdAt);
+    }
+
+    private int readActivityChanges(int watermark, Set<LocalDate> dirtyDays, Set<Integer> readIds) {
+        var maxId = new AtomicInteger(watermark);
+        jdbcTemplate.query(SELECT_ACTIVITY_CHANGES_SQL, rs -> {
+            int id = rs.getInt(1);
+            if (processedActivityChanges.contains(id)) return;
+            readIds.add(id);
+            maxId.accumulateAndGet(id, Math::max);
+            Timestamp activityDate = rs.getTimestamp(2);
+            //deleted activities have no date here - trg_zajecie_del_stats_dirty records them in stats_dirty_range
+            if (activityDate != null) {
+                dirtyDays.add(activityDate.toLocalDateTime().toLocalDate());
+            }
+        }, lookBackStart(watermark));
+        return maxId.get();
+    }
+
+    private int readDirtyRanges(int watermark, Set<LocalDate> dirtyDays, Set<Integer> readIds) {
+        var maxId = new AtomicInteger(watermark);
+        jdbcTemplate.query(SELECT_DIRTY_RANGES_SQL, rs -> {
+            int id = rs.getInt(1);
+            if (processedDirtyRanges.contains(id)) return;
+            readIds.add(id);
+            maxId.accumulateAndGet(id, Math::max);
+            LocalDate from = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+            LocalDate to = rs.getTimestamp(3).toLocalDateTime().toLocalDate();
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                dirtyDays.add(d);
+            }
+        }, lookBackStart(watermark));
+        return maxId.get();
+    }
+
+    private Set<Integer> windowIds(String sql, int maxId) {
+        if (lookBackIds == 0 || maxId == 0) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, lookBackStart(maxId), maxId));
+    }
+
+    private int lookBackStart(int watermark) {
+        return Math.max(0, watermark - lookBackIds);
+    }
+
+    private int watermark(String name) {
+        return watermarkRepository.findById(name)
+                .map(StatsWatermarkEntity::getValue)
+                .orElse(0);
+    }
+
+    //ids: rows read for this change set, they count as processed once it is committed
+    public record PendingChanges(DirtyPeriods periods, int zmianyWatermark, int dirtyRangeWatermark,
+                                 Set<Integer> activityChangeIds, Set<Integer> dirtyRangeIds) {
+    }
+
+    private static final class ProcessedIds {
+        private final NavigableSet<Integer> ids = new TreeSet<>();
+
+        synchronized boolean contains(int id) {
+            return ids.contains(id);
+        }
+
+        //ids at or below 'below' are out of every future look-back window
+        synchronized void add(Collection<Integer> processed, int below) {
+            ids.addAll(processed);
+            ids.headSet(below, true).clear();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service.stats;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+//Days touched by data changes and the weeks (as mondays), months and years containing them
+public record DirtyPeriods(
+        SortedSet<LocalDate> days,
+        SortedSet<LocalDate> weeks,
+        SortedSet<YearMonth> months,
+        SortedSet<Year> years
+) {
+
+    public static DirtyPeriods of(Collection<LocalDate> dirtyDays) {
+        var days = new TreeSet<LocalDate>();
+        var weeks = new TreeSet<LocalDate>();
+        var months = new TreeSet<YearMonth>();
+        var years = new TreeSet<Year>();
+        for (LocalDate day : dirtyDays) {
+            days.add(day);
+            weeks.add(day.with(DayOfWeek.MONDAY));
+            months.add(YearMonth.from(day));
+            years.add(Year.from(day));
+        }
+        return new DirtyPeriods(days, weeks, months, years);
+    }
+
+    public static DirtyPeriods empty() {
+        return of(new TreeSet<>());
+    }
+
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }
+
+    //Keeps only periods the scheduler calculates: starting between 'from' and 'today'
+    public DirtyPeriods within(LocalDate from, LocalDate today) {
+        return new DirtyPeriods(
+                filter(days, d -> !d.isBefore(from) && !d.isAfter(today)),
+                filter(weeks, w -> !w.isBefore(from.with(DayOfWeek.MONDAY)) && !w.isAfter(today)),
+                filter(months, m -> !m.isBefore(YearMonth.from(from)) && !m.isAfter(YearMonth.from(today))),
+                filter(years, y -> !y.isBefore(Year.from(from)) && !y.isAfter(Year.from(today)))
+        );
+    }
+
+    //Days without a daily stats row that still belong to a calculated week/month/year (their partials are needed)
+    public SortedSet<LocalDate> partialsOnlyDays(LocalDate from, LocalDate today) {
+        LocalDate first = periodsStart(from);
+        LocalDate last = periodsEnd(today);
+        return filter(days, d -> !d.isBefore(first) && !d.isAfter(last) && (d.isBefore(from) || d.isAfter(today)));
+    }
+
+    //First day of the oldest week/month/year calculated by the scheduler
+    public static LocalDate periodsStart(LocalDate from) {
+        LocalDate monday = from.with(DayOfWeek.MONDAY);
+        LocalDate yearStart = Year.from(from).atDay(1);
+        return monday.isBefore(yearStart) ? monday : yearStart;
+    }
+
+    //Last day of the newest week/month/year calculated by the scheduler
+    public static LocalDate periodsEnd(LocalDate today) {
+        LocalDate sunday = today.with(DayOfWeek.SUNDAY);
+        LocalDate yearEnd = Year.from(today).atMonth(12).atEndOfMonth();
+        return sunday.isAfter(yearEnd) ? sunday : yearEnd;
+    }
+
+    private static <T> SortedSet<T> filter(SortedSet<T> periods, Predicate<T> predicate) {
+        var result = new TreeSet<T>();
+        periods.stream().filter(predicate).forEach(result::add);
+        return result;
+    }
+}
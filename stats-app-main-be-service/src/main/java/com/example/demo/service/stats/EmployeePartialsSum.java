@@ -0,0 +1,9 @@
+package com.example.demo.service.stats;
+
+//Daily partials of one employee summed over a period (JPQL constructor result)
+public record EmployeePartialsSum(Integer employeeId, Double numerator, Double denominator) {
+
+    public ScorePartials toPartials() {
+        return new ScorePartials(numerator, denominator);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.service.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/*  Computes employee scores for a set of activity assignments in linear time (plus a sort of activity ids).
+
+    - Assignments are read from AssignmentColumns (primitive arrays).
+    - Sorted copy of activity ids gives the number of assignees of each activity (used to split F/B group procedures).
+    - Second pass feeds every assignment into its employee's numerator/denominator accumulator.
+    - Denominator counts every WorkSchedule only once per employee.  */
+@Component
+@Slf4j
+public class EmployeeScoreEngine {
+
+    public Map<Integer, ScorePartials> computePartials(AssignmentColumns assignments) {
+        return computePartials(assignments, 0, assignments.size());
+    }
+
+    //Scores rows [from, to) of the columns
+    public Map<Integer, ScorePartials> computePartials(AssignmentColumns assignments, int from, int to) {
+        var assignees = new AssigneeCounts(assignments, from, to);
+
+        Map<Integer, EmployeeAccumulator> accumulators = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            var accumulator = accumulators
+                    .computeIfAbsent(assignments.employeeId(i), empId -> new EmployeeAccumulator());
+            accumulator.numerator += numeratorFor(assignments.mode(i), assignments.procedureMinutes(i),
+                    assignees.of(assignments.activityId(i)));
+            accumulator.addSchedule(assignments.scheduleId(i), assignments.scheduleMinutes(i));
+        }
+
+        Map<Integer, ScorePartials> result = new HashMap<>();
+        accumulators.forEach((empId, accumulator) -> {
+            log.debug("empId={} NUMERATOR: {} DENOMINATOR: {}", empId, accumulator.numerator, accumulator.denominator);
+            result.put(empId, new ScorePartials(accumulator.numerator, accumulator.denominator));
+        });
+        return result;
+    }
+
+    //mode as encoded by AssignmentColumns, procedureMinutes < 0 when the procedure has no time
+    static double numeratorFor(byte mode, int procedureMinutes, int assigneesOfActivity) {
+        return switch (mode) {
+            case 'F', 'B' -> procedureMinutes >= 0 && assigneesOfActivity > 0 ?
+                    (double) procedureMinutes / assigneesOfActivity : 0.0;
+            case 'S' -> procedureMinutes >= 0 ? procedureMinutes : 0.0;
+            case 'U' -> 1.0;
+            default -> 0.0;
+        };
+    }
+
+    //Distinct activity ids (sorted) with their number of assignees
+    private static final class AssigneeCounts {
+        private final int[] activityIds;
+        private final int[] counts;
+        private final int size;
+
+        AssigneeCounts(AssignmentColumns assignments, int from, int to) {
+            int[] sorted = new int[to - from];
+            for (int i = from; i < to; i++) {
+                sorted[i - from] = assignments.activityId(i);
+            }
+            Arrays.sort(sorted);
+
+            activityIds = new int[sorted.length];
+            counts = new int[sorted.length];
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (distinct == 0 || activityIds[distinct - 1] != sorted[i]) {
+                    activityIds[distinct++] = sorted[i];
+                }
+                counts[distinct - 1]++;
+            }
+            size = distinct;
+        }
+
+        int of(int activityId) {
+            int index = Arrays.binarySearch(activityIds, 0, size, activityId);
+            return index >= 0 ? counts[index] : 0;
+        }
+    }
+
+    private static final class EmployeeAccumulator {
+        private double numerator;
+        private double denominator;
+        //an employee has one or two schedules a day - a linear scan beats hashing boxed ids
+        private int[] countedScheduleIds = new int[4];
+        private int countedSchedules;
+
+        void addSchedule(int scheduleId, int scheduleMinutes) {
+            if (scheduleId == AssignmentColumns.NO_SCHEDULE) return;
+            for (int i = 0; i < countedSchedules; i++) {
+                if (countedScheduleIds[i] == scheduleId) return;
+            }
+            if (countedSchedules == countedScheduleIds.length) {
+                countedScheduleIds = Arrays.copyOf(countedScheduleIds, countedSchedules * 2);
+            }
+            countedScheduleIds[countedSchedules++] = scheduleId;
+            denominator += scheduleMinutes;
+        }
+    }
+}
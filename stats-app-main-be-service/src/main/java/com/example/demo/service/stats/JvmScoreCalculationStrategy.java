@@ -0,0 +1,41 @@
+package com.example.demo.service.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+//Loads assignments as primitive columns and scores them with EmployeeScoreEngine
+@Component
+@ConditionalOnProperty(name = "stats.calculation.strategy", havingValue = "jvm", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JvmScoreCalculationStrategy implements ScoreCalculationStrategy {
+
+    private final AssignmentColumnsLoader columnsLoader;
+    private final EmployeeScoreEngine scoreEngine;
+
+    @Override
+    public Map<Integer, ScorePartials> dayPartials(LocalDate day) {
+        return scoreEngine.computePartials(columnsLoader.load(day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+    }
+
+    @Override
+    public Map<LocalDate, Map<Integer, ScorePartials>> dailyPartials(LocalDate from, LocalDate to) {
+        AssignmentColumns assignments = columnsLoader.load(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+
+        //rows are ordered by date - each day is scored on its own slice of the columns
+        Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay = new HashMap<>();
+        int dayStart = 0;
+        for (int i = 1; i <= assignments.size(); i++) {
+            if (i == assignments.size() || assignments.day(i) != assignments.day(dayStart)) {
+                partialsByDay.put(LocalDate.ofEpochDay(assignments.day(dayStart)),
+                        scoreEngine.computePartials(assignments, dayStart, i));
+                dayStart = i;
+            }
+        }
+        return partialsByDay;
+    }
+}
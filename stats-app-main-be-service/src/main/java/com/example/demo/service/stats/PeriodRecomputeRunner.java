@@ -0,0 +1,128 @@
+package com.example.demo.service.stats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*  Runs stats recalculation tasks (one task = one period, each in its own transaction).
+
+    - 'stats.recompute.mode=sequential' (default) runs tasks one after another on the calling thread.
+    - 'stats.recompute.mode=parallel' spreads them over 'stats.recompute.workers' threads. Number of tasks
+      using the DB at the same time is limited by a semaphore kept below the Hikari pool size, so web
+      requests still get a connection.
+    - Whole passes are timed ('stats.recompute' timer tagged with kind and mode) to compare both modes.  */
+@Component
+@Slf4j
+public class PeriodRecomputeRunner {
+
+    //connections left for web requests and the 5 minute daily job
+    static final int RESERVED_CONNECTIONS = 2;
+
+    private final boolean parallel;
+    private final ExecutorService executor;
+    private final Semaphore dbPermits;
+    private final MeterRegistry meterRegistry;
+
+    public PeriodRecomputeRunner(@Value("${stats.recompute.mode:sequential}") String mode,
+                                 @Value("${stats.recompute.workers:4}") int workers,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxPoolSize,
+                                 MeterRegistry meterRegistry) {
+        this.parallel = "parallel".equalsIgnoreCase(mode);
+        this.meterRegistry = meterRegistry;
+        int permits = Math.max(1, Math.min(workers, maxPoolSize - RESERVED_CONNECTIONS));
+        this.dbPermits = new Semaphore(permits);
+        this.executor = parallel ? Executors.newFixedThreadPool(Math.max(1, workers), workerThreadFactory()) : null;
+        log.info("Stats recompute mode: {} (workers={}, db permits={})", parallel ? "parallel" : "sequential", workers, permits);
+    }
+
+    public String mode() {
+        return parallel ? "parallel" : "sequential";
+    }
+
+    //Runs all tasks of a phase and waits for them; the first failure is rethrown once the whole phase finished
+    public void runPhase(String phase, List<Runnable> tasks) {
+        log.info("[RECOMPUTE] Phase '{}': {} tasks ({})", phase, tasks.size(), mode());
+        if (!parallel) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(executor.submit(() -> withDbPermit(task)));
+        }
+
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.error("[RECOMPUTE] Task of phase '{}' failed", phase, e.getCause());
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for phase " + phase, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    //Times a whole pass - compare 'stats.recompute' max/mean between mode=sequential and mode=parallel
+    public void timed(String kind, Runnable pass) {
+        long start = System.nanoTime();
+        try {
+            pass.run();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Timer.builder("stats.recompute")
+                    .tag("kind", kind)
+                    .tag("mode", mode())
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            log.info("[RECOMPUTE] {} pass took {} ms (mode={})", kind, TimeUnit.NANOSECONDS.toMillis(nanos), mode());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void withDbPermit(Runnable task) {
+        try {
+            dbPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for DB permit", e);
+        }
+        try {
+            task.run();
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "stats-recompute-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.service.stats;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/*  Source of daily score partials (numerator/denominator per employee per day).
+    Selected with 'stats.calculation.strategy': jvm (default) or database.  */
+public interface ScoreCalculationStrategy {
+
+    Map<Integer, ScorePartials> dayPartials(LocalDate day);
+
+    //Partials of every day in [from, to] that has assignments
+    Map<LocalDate, Map<Integer, ScorePartials>> dailyPartials(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,9 @@
+package com.example.demo.service.stats;
+
+//Numerator (procedure minutes) and denominator (scheduled minutes) of a single employee's score
+public record ScorePartials(double numerator, double denominator) {
+
+    public double score() {
+        return denominator > 0 ? numerator / denominator : 0.0;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/*  Version of the data in the stats tables - read caches compare it with the version they were built from.
+
+    Inside a transaction the bump is done after commit, so a cache rebuilt in the meantime
+    (from not yet committed rows) is invalidated again.  */
+@Component
+@Slf4j
+public class StatsGeneration {
+
+    private final AtomicLong generation = new AtomicLong();
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    public long current() {
+        return generation.get();
+    }
+
+    //called with the new generation after every bump, on the thread that made it - must not block
+    public void addListener(LongConsumer listener) {
+        listeners.add(listener);
+    }
+
+    public void bump(String reason) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(reason);
+                }
+            });
+        } else {
+            increment(reason);
+        }
+    }
+
+    private void increment(String reason) {
+        long value = generation.incrementAndGet();
+        log.debug("Stats generation {} ({})", value, reason);
+        listeners.forEach(listener -> listener.accept(value));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.service.stats;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//Part of a stats table to read: employees (empty = all) and periods containing days from..to (null = open end)
+public record StatsSlice(List<Integer> employeeIds, LocalDate from, LocalDate to) {
+
+    public static final StatsSlice ALL = new StatsSlice(List.of(), null, null);
+
+    public StatsSlice {
+        employeeIds = employeeIds == null ? List.of() : List.copyOf(employeeIds);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.service.stats;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//Stats tables written by StatsWriter and read by StatsReader - every table is keyed by (emp_id, <period column>)
+public enum StatsTable {
+    DAY("emp_day_stats", "stat_day"),
+    WEEK("emp_week_stats", "week_start"),
+    MONTH("emp_month_stats", "month_val"),
+    YEAR("emp_year_stats", "year_val");
+
+    private final String tableName;
+    private final String periodColumn;
+
+    StatsTable(String tableName, String periodColumn) {
+        this.tableName = tableName;
+        this.periodColumn = periodColumn;
+    }
+
+    String selectScoresSql() {
+        return "SELECT emp_id, score FROM " + tableName + " WHERE " + periodColumn + " = ?";
+    }
+
+    String upsertSql() {
+        return "UPDATE OR INSERT INTO " + tableName + " (emp_id, " + periodColumn + ", score, updated_at) " +
+                "VALUES (?, ?, ?, ?) MATCHING (emp_id, " + periodColumn + ")";
+    }
+
+    //Period key (as bound to JDBC) of the period containing the day
+    Object periodOf(LocalDate day) {
+        return switch (this) {
+            case DAY -> Timestamp.valueOf(day.atStartOfDay());
+            case WEEK -> Timestamp.valueOf(day.with(DayOfWeek.MONDAY).atStartOfDay());
+            case MONTH -> YearMonth.from(day).toString();
+            case YEAR -> day.getYear();
+        };
+    }
+
+    /*  Latest 'limit' rows of every employee of the slice, ordered by employee and period (newest first).
+        Firebird 2.5 has no window functions - there the period of the limit-th newest row of each
+        employee is found by FIRST/SKIP on the primary key index and used as a lower bound.  */
+    BoundSql latestPerEmployee(int limit, boolean windowFunctions, StatsSlice slice) {
+        List<Object> params = new ArrayList<>();
+        String periodWindow = "";
+        List<Object> windowParams = new ArrayList<>();
+        if (slice.from() != null) {
+            periodWindow += " AND s%1$s." + periodColumn + " >= ?";
+            windowParams.add(periodOf(slice.from()));
+        }
+        if (slice.to() != null) {
+            periodWindow += " AND s%1$s." + periodColumn + " <= ?";
+            windowParams.add(periodOf(slice.to()));
+        }
+        String employees = slice.employeeIds().isEmpty() ? ""
+                : " IN (" + String.join(", ", Collections.nCopies(slice.employeeIds().size(), "?")) + ")";
+
+        if (windowFunctions) {
+            params.addAll(slice.employeeIds());
+            params.addAll(windowParams);
+            String sql = "SELECT r.emp_id, r." + periodColumn + ", r.score, r.updated_at FROM (" +
+                    "SELECT s.emp_id, s." + periodColumn + ", s.score, s.updated_at, " +
+                    "ROW_NUMBER() OVER (PARTITION BY s.emp_id ORDER BY s." + periodColumn + " DESC) AS rn " +
+                    "FROM " + tableName + " s WHERE 1 = 1" +
+                    (employees.isEmpty() ? "" : " AND s.emp_id" + employees) +
+                    periodWindow.formatted("") + ") r " +
+                    "WHERE r.rn <= " + limit + " " +
+                    "ORDER BY r.emp_id, r." + periodColumn + " DESC";
+            return new BoundSql(sql, params.toArray());
+        }
+        params.addAll(windowParams);
+        params.addAll(slice.employeeIds());
+        params.addAll(windowParams);
+        String sql = "SELECT s.emp_id, s." + periodColumn + ", s.score, s.updated_at " +
+                "FROM " + tableName + " s " +
+                "JOIN (SELECT e.employee_id AS emp_id, " +
+                "(SELECT FIRST 1 SKIP " + (limit - 1) + " s2." + periodColumn + " FROM " + tableName + " s2 " +
+                "WHERE s2.emp_id = e.employee_id" + periodWindow.formatted("2") +
+                " ORDER BY s2." + periodColumn + " DESC) AS cutoff " +
+                "FROM employee e" + (employees.isEmpty() ? "" : " WHERE e.employee_id" + employees) +
+                ") c ON c.emp_id = s.emp_id " +
+                "WHERE (c.cutoff IS NULL OR s." + periodColumn + " >= c.cutoff)" + periodWindow.formatted("") + " " +
+                "ORDER BY s.emp_id, s." + periodColumn + " DESC";
+        return new BoundSql(sql, params.toArray());
+    }
+
+    record BoundSql(String sql, Object[] params) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.service.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*  Writes calculated stats with Firebird UPDATE OR INSERT ... MATCHING in JDBC batches.
+
+    - One round trip per 'stats.writer.batch-size' rows instead of select + insert/update per row (JPA save).
+    - Scores are compared with a snapshot of the stored period first - unchanged rows are not rewritten
+      (no new record versions just to bump updated_at). The same goes for daily partials replaced by range.
+    - Rows with a non-finite value are skipped, as are rows the driver reports as not affected.
+    - A write that changed any score bumps StatsGeneration (invalidates cached statistics).  */
+@Component
+@Slf4j
+public class StatsWriter {
+
+    static final String UPSERT_PARTIALS_SQL = """
+            UPDATE OR INSERT INTO emp_day_partials (emp_id, stat_day, numerator, denominator, updated_at)
+            VALUES (?, ?, ?, ?, ?)
+            MATCHING (emp_id, stat_day)
+            """;
+    static final String SELECT_PARTIALS_SQL = """
+            SELECT emp_id, stat_day, numerator, denominator
+            FROM emp_day_partials
+            WHERE stat_day BETWEEN ? AND ?
+            """;
+    static final String DELETE_PARTIALS_SQL = "DELETE FROM emp_day_partials WHERE emp_id = ? AND stat_day = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsGeneration statsGeneration;
+    private final int batchSize;
+
+    public StatsWriter(JdbcTemplate jdbcTemplate,
+                       StatsGeneration statsGeneration,
+                       @Value("${stats.writer.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("stats.writer.batch-size must be positive, got " + batchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.statsGeneration = statsGeneration;
+        this.batchSize = batchSize;
+    }
+
+    public WriteResult writeScores(StatsTable table, Object periodKey, Map<Integer, Double> scores) {
+        var now = Timestamp.valueOf(LocalDateTime.now());
+        Object periodValue = periodKey instanceof LocalDate day ? Timestamp.valueOf(day.atStartOfDay()) : periodKey;
+
+        if (scores.isEmpty()) {
+            return new WriteResult(0, 0, 0);
+        }
+        Map<Integer, Double> stored = loadSnapshot(table, periodValue);
+
+        List<Object[]> rows = new ArrayList<>(scores.size());
+        int unchanged = 0;
+        int skipped = 0;
+        for (var entry : scores.entrySet()) {
+            if (entry.getValue() == null || !Double.isFinite(entry.getValue())) {
+                log.warn("Skipping {} row empId={} key={} with invalid score {}", table, entry.getKey(), periodKey, entry.getValue());
+                skipped++;
+                continue;
+            }
+            Double storedScore = stored.get(entry.getKey());
+            if (storedScore != null && Double.compare(storedScore, entry.getValue()) == 0) {
+                unchanged++;
+                continue;
+            }
+            rows.add(new Object[]{entry.getKey(), periodValue, entry.getValue(), now});
+        }
+        WriteResult result = flush(table.upsertSql(), rows);
+        if (result.written() > 0) {
+            statsGeneration.bump(table.name());
+        }
+        return result.plus(new WriteResult(0, unchanged, skipped));
+    }
+
+    public WriteResult writePartials(Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay) {
+        var now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> rows = new ArrayList<>();
+        int skipped = 0;
+        for (var dayEntry : partialsByDay.entrySet()) {
+            var day = Timestamp.valueOf(dayEntry.getKey().atStartOfDay());
+            for (var entry : dayEntry.getValue().entrySet()) {
+                ScorePartials partials = entry.getValue();
+                if (!Double.isFinite(partials.numerator()) || !Double.isFinite(partials.denominator())) {
+                    skipped++;
+                    continue;
+                }
+                rows.add(new Object[]{entry.getKey(), day, partials.numerator(), partials.denominator(), now});
+            }
+        }
+        return flush(UPSERT_PARTIALS_SQL, rows).plus(new WriteResult(0, 0, skipped));
+    }
+
+    /*  Makes the stored partials of days 'from'..'to' equal to 'partialsByDay': changed and new rows are
+        upserted, rows of employees without partials any more are deleted, equal rows are left alone.
+        written counts upserted and deleted rows.  */
+    public WriteResult replacePartials(LocalDate from, LocalDate to, Map<LocalDate, Map<Integer, ScorePartials>> partialsByDay) {
+        var now = Timestamp.valueOf(LocalDateTime.now());
+        Map<LocalDate, Map<Integer, ScorePartials>> stored = loadPartials(from, to);
+
+        List<Object[]> rows = new ArrayList<>();
+        int unchanged = 0;
+        int skipped = 0;
+        for (var dayEntry : partialsByDay.entrySet()) {
+            var day = Timestamp.valueOf(dayEntry.getKey().atStartOfDay());
+            var storedOfDay = stored.getOrDefault(dayEntry.getKey(), new HashMap<>());
+            for (var entry : dayEntry.getValue().entrySet()) {
+                ScorePartials partials = entry.getValue();
+                if (!Double.isFinite(partials.numerator()) || !Double.isFinite(partials.denominator())) {
+                    //left in storedOfDay - the previous value is deleted, as a full replace would do
+                    skipped++;
+                    continue;
+                }
+                ScorePartials storedPartials = storedOfDay.remove(entry.getKey());
+                if (partials.equals(storedPartials)) {
+                    unchanged++;
+                    continue;
+                }
+                rows.add(new Object[]{entry.getKey(), day, partials.numerator(), partials.denominator(), now});
+            }
+        }
+
+        List<Object[]> deleted = new ArrayList<>();
+        stored.forEach((day, storedOfDay) -> {
+            var dayValue = Timestamp.valueOf(day.atStartOfDay());
+            storedOfDay.keySet().forEach(empId -> deleted.add(new Object[]{empId, dayValue}));
+        });
+        return flush(UPSERT_PARTIALS_SQL, rows)
+                .plus(flush(DELETE_PARTIALS_SQL, deleted))
+                .plus(new WriteResult(0, unchanged, skipped));
+    }
+
+    private WriteResult flush(String sql, List<Object[]> rows) {
+        int written = 0;
+        int skipped = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            var batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            for (int count : jdbcTemplate.batchUpdate(sql, batch)) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    written++;
+                } else {
+                    skipped++;
+                }
+            }
+        }
+        return new WriteResult(written, 0, skipped);
+    }
+
+    private Map<Integer, Double> loadSnapshot(StatsTable table, Object periodValue) {
+        Map<Integer, Double> stored = new HashMap<>();
+        jdbcTemplate.query(table.selectScoresSql(), rs -> {
+            stored.put(rs.getInt(1), rs.getDouble(2));
+        }, periodValue);
+        return stored;
+    }
+
+    //rows of partialsByDay are removed from the returned maps while replacing, what is left gets deleted
+    private Map<LocalDate, Map<Integer, ScorePartials>> loadPartials(LocalDate from, LocalDate to) {
+        Map<LocalDate, Map<Integer, ScorePartials>> stored = new HashMap<>();
+        jdbcTemplate.query(SELECT_PARTIALS_SQL, rs -> {
+            stored.computeIfAbsent(rs.getTimestamp(2).toLocalDateTime().toLocalDate(), day -> new HashMap<>())
+                    .put(rs.getInt(1), new ScorePartials(rs.getDouble(3), rs.getDouble(4)));
+        }, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        return stored;
+    }
+
+    //written = changed rows, unchanged = rows equal to the stored score
+    public record WriteResult(int written, int unchanged, int skipped) {
+
+        public WriteResult plus(WriteResult other) {
+            return new WriteResult(written + other.written, unchanged + other.unchanged, skipped + other.skipped);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
+import com.example.demo.dto.stats_dtos.StatisticsQuery;
+import com.example.demo.service.EtagService;
+import com.example.demo.service.StatisticsService;
+import com.example.demo.service.StatsSnapshotService;
+import com.example.demo.service.UpdateStreamService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class StatisticsControllerTest {
+
+    private StatisticsService statisticsService;
+    private EtagService etagService;
+    private StatsSnapshotService snapshotService;
+    private StatisticsController controller;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = mock(StatisticsService.class);
+        etagService = mock(EtagService.class);
+        snapshotService = mock(StatsSnapshotService.class);
+        controller = new StatisticsController(statisticsService, etagService, snapshotService, mock(UpdateStreamService.class));
+        when(etagService.statisticsEtag("ALICE", Set.of(), List.of(), null, null, null, null)).thenReturn("\"stats-1\"");
+    }
+
+    @Test
+    void getStatistics_matchingIfNoneMatch_returnsNotModifiedWithoutBuildingDto() {
+        // Arrange
+        var request = new MockHttpServletRequest("GET", "/api/statistics");
+        request.addHeader("If-None-Match", "\"stats-1\"");
+        var response = new MockHttpServletResponse();
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            var result = controller.getStatistics(null, null, null, null, null, null, new ServletWebRequest(request, response));
+
+            // Assert
+            assertThat(result.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(response.getHeader("ETag")).isEqualTo("\"stats-1\"");
+            verifyNoInteractions(statisticsService);
+        }
+    }
+
+    @Test
+    void getStatistics_staleEtag_returnsBodyWithNewEtag() {
+        // Arrange
+        var request = new MockHttpServletRequest("GET", "/api/statistics");
+        request.addHeader("If-None-Match", "\"stats-0\"");
+        var response = new MockHttpServletResponse();
+        var dto = new StatisticsDto(List.of());
+        when(statisticsService.getStatistics(StatisticsQuery.UNFILTERED)).thenReturn(dto);
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            var result = controller.getStatistics(null, null, null, null, null, null, new ServletWebRequest(request, response));
+
+            // Assert
+            assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(result.getBody()).isSameAs(dto);
+            assertThat(result.getHeaders().getCacheControl()).contains("no-cache");
+            assertThat(response.getHeader("ETag")).isEqualTo("\"stats-1\"");
+        }
+    }
+
+    @Test
+    void getSnapshot_gzipAccepted_sendsStoredFileWithCurrentEmployeeHeader(@TempDir Path dir) throws Exception {
+        // Arrange
+        var snapshot = gzipSnapshot(dir, "{\"employees\":[]}");
+        when(snapshotService.latest()).thenReturn(snapshot);
+        when(etagService.snapshotEtag("ALICE", 3L)).thenReturn("\"snap-3\"");
+        var request = new MockHttpServletRequest("GET", "/api/statistics/snapshot");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        var response = new MockHttpServletResponse();
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            var result = controller.getSnapshot(new ServletWebRequest(request, response));
+
+            // Assert
+            assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(result.getHeaders().getFirst(StatisticsController.CURRENT_EMPLOYEE_HEADER)).isEqualTo("ALICE");
+            assertThat(result.getHeaders().getContentLength()).isEqualTo(snapshot.size());
+            assertThat(result.getBody()).isInstanceOf(FileSystemResource.class);
+            assertThat(response.getHeader("ETag")).isEqualTo("\"snap-3\"");
+            verifyNoInteractions(statisticsService);
+        }
+    }
+
+    @Test
+    void getSnapshot_matchingIfNoneMatch_returnsNotModifiedWithCurrentEmployeeHeader(@TempDir Path dir) throws Exception {
+        // Arrange
+        when(snapshotService.latest()).thenReturn(gzipSnapshot(dir, "{\"employees\":[]}"));
+        when(etagService.snapshotEtag("ALICE", 3L)).thenReturn("\"snap-3-alice\"");
+        var request = new MockHttpServletRequest("GET", "/api/statistics/snapshot");
+        request.addHeader("If-None-Match", "\"snap-3-alice\"");
+        var response = new MockHttpServletResponse();
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            var result = controller.getSnapshot(new ServletWebRequest(request, response));
+
+            // Assert
+            assertThat(result.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(result.getHeaders().getFirst(StatisticsController.CURRENT_EMPLOYEE_HEADER)).isEqualTo("ALICE");
+            assertThat(result.getBody()).isNull();
+        }
+    }
+
+    @Test
+    void getSnapshot_gzipNotAccepted_sendsDecompressedJson(@TempDir Path dir) throws Exception {
+        // Arrange
+        when(snapshotService.latest()).thenReturn(gzipSnapshot(dir, "{\"employees\":[]}"));
+        when(etagService.snapshotEtag("ALICE", 3L)).thenReturn("\"snap-3\"");
+        var request = new MockHttpServletRequest("GET", "/api/statistics/snapshot");
+        var response = new MockHttpServletResponse();
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            var result = controller.getSnapshot(new ServletWebRequest(request, response));
+
+            // Assert
+            assertThat(result.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+            try (var body = result.getBody().getInputStream()) {
+                assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"employees\":[]}");
+            }
+        }
+    }
+
+    private static StatsSnapshotService.Snapshot gzipSnapshot(Path dir, String json) throws Exception {
+        Path file = dir.resolve("statistics-3.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return new StatsSnapshotService.Snapshot(file, 3L, Files.size(file));
+    }
+}
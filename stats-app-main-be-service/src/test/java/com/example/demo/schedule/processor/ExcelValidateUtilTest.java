@@ -1,8 +1,7 @@
 package com.example.demo.schedule.processor;
 
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.junit.jupiter.api.AfterEach;
+import com.example.demo.entity.RoomEntity;
+import com.example.demo.entity.UserEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -14,12 +13,13 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.File;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.example.demo.schedule.processor.ExcelValidateUtilTest.ExcelSheetValidations.TestData.*;
@@ -70,9 +70,6 @@ class ExcelValidateUtilTest {
 
     @Nested
      class ExcelSheetValidations {
-        XSSFWorkbook okWorkbook;
-        XSSFWorkbook nonExistingEmployeeWorkbook;
-        XSSFWorkbook missingHeaderWorkbook;
 
         private static final Set<String> employeesCodes1 = Set.of(
                 "197", "AB", "201", "219", "221", "202", "191", "195", "214", "223", "220",
@@ -91,29 +88,18 @@ class ExcelValidateUtilTest {
             OK, NON_EXISTING_EMPLOYEE, MISSING_HEADER
         }
 
-        @BeforeEach
-        void prepareDataForExcelValidations() throws IOException {
-            okWorkbook = new XSSFWorkbook(new FileInputStream("src/test/excels/grafik_pracy_2025-01.xlsx"));
-            nonExistingEmployeeWorkbook = new XSSFWorkbook(new FileInputStream("src/test/excels/grafik nieistniejacy employee  01-2025.xlsx"));
-            missingHeaderWorkbook = new XSSFWorkbook(new FileInputStream("src/test/excels/grafik nie istniejacy header  01-2025.xlsx"));
-        }
-
-        @AfterEach
-        void cleanup() throws IOException {
-            if (okWorkbook != null) okWorkbook.close();
-            if (nonExistingEmployeeWorkbook != null) nonExistingEmployeeWorkbook.close();
-            if (missingHeaderWorkbook != null) missingHeaderWorkbook.close();
-        }
-
         @ParameterizedTest
         @MethodSource("argumentsForValidateFirstColumnEntries")
-        void validateFirstColumnEntriesTest(Sheet sheet, Set<String> employeesCodes, Set<String> roomCodes, TestData testData, String errorMessage) {
+        void validateFirstColumnEntriesTest(File file, Set<String> employeesCodes, Set<String> roomCodes, TestData testData, String errorMessage) {
             Exception exMissingHeader;
             Exception exNonExistingEmployee;
-            Executable validateMethodCall = () -> excelValidateUtil.validateFirstColumnEntries(sheet, employeesCodes, roomCodes);
+            Executable validateMethodCall = () -> {
+                var validation = excelValidateUtil.sheetValidation(referenceData(employeesCodes, roomCodes));
+                ScheduleSheetReader.read(file, validation);
+                validation.finish();
+            };
             switch (testData) {
-                case OK ->
-                        assertTrue(() -> excelValidateUtil.validateFirstColumnEntries(sheet, employeesCodes, roomCodes));
+                case OK -> assertDoesNotThrow(validateMethodCall);
                 case MISSING_HEADER -> {
                     exMissingHeader = assertThrows(IllegalStateException.class, validateMethodCall);
                     assertEquals(errorMessage, exMissingHeader.getMessage());
@@ -126,32 +112,47 @@ class ExcelValidateUtilTest {
             }
         }
 
+        @Test
+        void finishShouldReportEmployeeRowsAndGroupErrorsByCheck() {
+            //arrange
+            var validation = excelValidateUtil.sheetValidation(referenceData(Set.of("AB"), Set.of("GAB1")));
+            validation.accept(new ScheduleSheetRow(0, List.of("Kod pracownika")));
+            validation.accept(new ScheduleSheetRow(1, List.of("GAB1", "XX")));
+            validation.accept(new ScheduleSheetRow(2, List.of("ab", "F", "", "QQ")));
+
+            //act
+            var employeesRowsIndexes = validation.finish();
+
+            //assert
+            assertEquals(List.of(2), employeesRowsIndexes);
+            assertEquals(List.of(
+                    "❌ Invalid value at row 3, column 4: 'QQ'. It is neither a valid employee code nor a valid mode.",
+                    "❌ Invalid value in room row 2, column 2: 'XX'. Only employee codes are allowed."
+            ), excelValidateUtil.getValidationErrors());
+        }
+
+        static ScheduleReferenceData referenceData(Set<String> employeesCodes, Set<String> roomCodes) {
+            return new ScheduleReferenceData(
+                    employeesCodes.stream().collect(Collectors.toMap(Function.identity(), code -> new UserEntity())),
+                    roomCodes.stream().collect(Collectors.toMap(Function.identity(), code -> new RoomEntity())));
+        }
 
         //do ustawienia
         static Stream<Arguments> argumentsForValidateFirstColumnEntries() {
             return Stream.of(
                     Arguments.of(
-                            getSheetFromWorkbook("src/test/excels/grafik_pracy_2025-01.xlsx"),
+                            new File("src/test/excels/grafik_pracy_2025-01.xlsx"),
                             employeesCodes1, roomCodes1, OK, "no error expected"),
                     Arguments.of(
-                            getSheetFromWorkbook("src/test/excels/grafik nieistniejacy employee  01-2025.xlsx"),
+                            new File("src/test/excels/grafik nieistniejacy employee  01-2025.xlsx"),
                             employeesCodes1, roomCodes1, NON_EXISTING_EMPLOYEE,
                             "❌ Invalid entry in first column at row 4: 'test' is not an employee code or a room name."),
                     Arguments.of(
-                            getSheetFromWorkbook("src/test/excels/grafik nie istniejacy header  01-2025.xlsx"),
+                            new File("src/test/excels/grafik nie istniejacy header  01-2025.xlsx"),
                             employeesCodes1, roomCodes1, MISSING_HEADER,
                             "❌ Header 'Kod pracownika' not found in the first column.")
             );
         }
-
-        static Sheet getSheetFromWorkbook(String filePath) {
-            try {
-                XSSFWorkbook workbook = new XSSFWorkbook(new FileInputStream(filePath));
-                return workbook.getSheetAt(0);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
     }
 
 
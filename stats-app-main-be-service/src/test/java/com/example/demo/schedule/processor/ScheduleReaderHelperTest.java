@@ -12,15 +12,13 @@ import com.example.demo.repository.stats.DailyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.MonthlyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.WeeklyEmployeeStatisticRepository;
 import com.example.demo.repository.stats.YearlyEmployeeStatisticRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.example.demo.service.stats.StatsGeneration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.YearMonth;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +32,7 @@ class ScheduleReaderHelperTest {
     private RoomRepository roomRepo;
     private UserRepository userRepo;
     private ScheduleRepository scheduleRepo;
+    private StatsGeneration statsGeneration;
     private ScheduleReaderHelper helper;
 
     @BeforeEach
@@ -47,32 +46,22 @@ class ScheduleReaderHelperTest {
         scheduleRepo = mock(ScheduleRepository.class);
         ProtoObjectsMapping protoObjectsMapping = mock(ProtoObjectsMapping.class);
         GrpcSendSchedulesClient grpcClient = mock(GrpcSendSchedulesClient.class);
+        statsGeneration = new StatsGeneration();
 
         helper = new ScheduleReaderHelper(
                 dailyRepo, weeklyRepo, monthlyRepo, yearlyRepo,
-                roomRepo, userRepo, scheduleRepo, protoObjectsMapping, grpcClient
+                roomRepo, userRepo, scheduleRepo, protoObjectsMapping, grpcClient, statsGeneration
         );
     }
 
     @Test
-    void employeesCodes_returnsAllCodesUppercase() {
+    void loadReferenceData_mapsEmployeesByUppercaseCodeAndRoomsByCode() {
         // Arrange
         UserEntity user1 = new UserEntity();
         user1.setEmployeeCode("abc");
         UserEntity user2 = new UserEntity();
         user2.setEmployeeCode("XyZ");
         when(userRepo.findAll()).thenReturn(List.of(user1, user2));
-
-        // Act
-        Set<String> codes = helper.employeesCodes();
-
-        // Assert
-        assertThat(codes).containsExactlyInAnyOrder("ABC", "XYZ");
-    }
-
-    @Test
-    void getAllRoomCodes_returnsAllRoomCodes() {
-        // Arrange
         RoomEntity room1 = new RoomEntity();
         room1.setRoomCode("101");
         RoomEntity room2 = new RoomEntity();
@@ -80,33 +69,13 @@ class ScheduleReaderHelperTest {
         when(roomRepo.findAll()).thenReturn(List.of(room1, room2));
 
         // Act
-        Set<String> codes = helper.getAllRoomCodes();
-
-        // Assert
-        assertThat(codes).containsExactlyInAnyOrder("101", "LAB");
-    }
-
-    @Test
-    void findEmployeeByCode_findsUserCaseInsensitive() {
-        // Arrange
-        UserEntity user = new UserEntity();
-        user.setEmployeeCode("ZZZ");
-        when(userRepo.findByEmployeeCode("ZZZ")).thenReturn(Optional.of(user));
-
-        // Act
-        UserEntity result = helper.findEmployeeByCode("zzz");
+        ScheduleReferenceData reference = helper.loadReferenceData();
 
         // Assert
-        assertThat(result).isSameAs(user);
-    }
-
-    @Test
-    void findEmployeeByCode_throwsIfNotFound() {
-        // Arrange
-        when(userRepo.findByEmployeeCode("AAA")).thenReturn(Optional.empty());
-
-        // Assert
-        assertThatThrownBy(() -> helper.findEmployeeByCode("aaa")).isInstanceOf(java.util.NoSuchElementException.class);
+        assertThat(reference.employeesByCode()).containsOnlyKeys("ABC", "XYZ");
+        assertThat(reference.employeesByCode().get("ABC")).isSameAs(user1);
+        assertThat(reference.roomsByCode()).containsOnlyKeys("101", "LAB");
+        verify(userRepo, never()).findByEmployeeCode(any());
     }
 
     @Test
@@ -123,6 +92,7 @@ class ScheduleReaderHelperTest {
         verify(weeklyRepo).deleteByWeekStartBetween(yearMonth.atDay(1), yearMonth.atEndOfMonth());
         verify(dailyRepo).deleteByStartDayBetween(yearMonth.atDay(1), yearMonth.atEndOfMonth());
         verify(yearlyRepo).deleteByYear(2023);
+        assertThat(statsGeneration.current()).isEqualTo(1);
     }
 
     @Test
@@ -143,70 +113,33 @@ class ScheduleReaderHelperTest {
     }
 
     @Test
-    void getRowsWithEmployees_worksWithSheet() {
-        // Arrange
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet();
-            Row row0 = sheet.createRow(0);
-            row0.createCell(0).setCellValue("JOHN");
-            Row row1 = sheet.createRow(1);
-            row1.createCell(0).setCellValue("jane");
-            Row row2 = sheet.createRow(2);
-            row2.createCell(0).setCellValue("notEmployee");
-
-            Set<String> employees = Set.of("JOHN", "JANE");
-
-            // Act
-            List<Integer> result = ScheduleReaderHelper.getRowsWithEmployees(sheet, employees);
-
-            // Assert
-            assertThat(result).containsExactlyInAnyOrder(0, 1);
-        } catch (Exception e) {
-            fail("Workbook creation failed", e);
-        }
-    }
+    void isEmployeeRow_matchesFirstCellCaseInsensitive() {
+        var employees = new ScheduleReferenceData(Map.of("JOHN", new UserEntity(), "JANE", new UserEntity()), Map.of());
 
-    @Test
-    void getLastPopulatedRow_returnsCorrectRow() {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet();
-            sheet.createRow(0).createCell(0).setCellValue("A");
-            sheet.createRow(1).createCell(0).setBlank();
-            sheet.createRow(2).createCell(0).setCellValue("B");
-
-            assertThat(ScheduleReaderHelper.getLastPopulatedRow(sheet)).isEqualTo(2);
-        } catch (Exception e) {
-            fail("Workbook creation failed", e);
-        }
+        assertThat(ScheduleReaderHelper.isEmployeeRow(new ScheduleSheetRow(0, List.of("JOHN")), employees)).isTrue();
+        assertThat(ScheduleReaderHelper.isEmployeeRow(new ScheduleSheetRow(1, List.of("jane", "F")), employees)).isTrue();
+        assertThat(ScheduleReaderHelper.isEmployeeRow(new ScheduleSheetRow(2, List.of("notEmployee")), employees)).isFalse();
+        assertThat(ScheduleReaderHelper.isEmployeeRow(new ScheduleSheetRow(3, List.of()), employees)).isFalse();
     }
 
     @Test
     void extractRoomSymbol_worksForNormalRow() {
-        Row row = mock(Row.class);
-        when(row.getCell(0)).thenReturn(mock(Cell.class));
-        when(row.getCell(0).getCellType()).thenReturn(CellType.STRING);
-        when(row.getCell(0).getStringCellValue()).thenReturn("ROOM1");
+        var row = new ScheduleSheetRow(0, List.of("ROOM1", "AB"));
 
         assertThat(ScheduleReaderHelper.extractRoomSymbol(row)).isEqualTo("ROOM1");
     }
 
     @Test
     void extractRoomSymbol_returnsNullForHeaderOrOkOrEmpty() {
-        Row row = mock(Row.class);
-        Cell cell = mock(Cell.class);
-        when(row.getCell(0)).thenReturn(cell);
-
         // empty
-        when(cell.getCellType()).thenReturn(CellType.STRING);
-        when(cell.getStringCellValue()).thenReturn("");
-        assertThat(ScheduleReaderHelper.extractRoomSymbol(row)).isNull();
+        assertThat(ScheduleReaderHelper.extractRoomSymbol(new ScheduleSheetRow(0, List.of()))).isNull();
+        assertThat(ScheduleReaderHelper.extractRoomSymbol(null)).isNull();
 
         // OK
-        when(cell.getStringCellValue()).thenReturn("OK");
-        assertThat(ScheduleReaderHelper.extractRoomSymbol(row)).isNull();
+        assertThat(ScheduleReaderHelper.extractRoomSymbol(new ScheduleSheetRow(0, List.of("OK")))).isNull();
 
         // EMPLOYEE_CODE_HEADER
-        when(cell.getStringCellValue()).thenReturn("employee_code");
-        assertThat(ScheduleReaderHelper.extractRoomSymbol(row)).isEqualTo("employee_code");
+        assertThat(ScheduleReaderHelper.extractRoomSymbol(new ScheduleSheetRow(0, List.of("Kod pracownika")))).isNull();
+        assertThat(ScheduleReaderHelper.extractRoomSymbol(new ScheduleSheetRow(0, List.of("employee_code")))).isEqualTo("employee_code");
     }
 }
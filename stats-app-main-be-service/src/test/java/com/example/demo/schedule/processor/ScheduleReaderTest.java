@@ -3,14 +3,21 @@ package com.example.demo.schedule.processor;
 import com.example.demo.entity.UserEntity;
 import com.example.demo.entity.WorkSchedule;
 import com.example.demo.exception.ScheduleValidationException;
-import com.example.demo.repository.ScheduleRepository;
 import com.example.demo.service.ActivityEmployeeAssignmentsCreator;
 import com.example.demo.service.ScheduleAssignmentJobQueue;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
 import java.time.YearMonth;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -20,21 +27,22 @@ class ScheduleReaderTest {
 
     private ScheduleReaderHelper helper;
     private LogUtil logUtil;
+    private ExcelValidateUtil validateUtil;
 
     private ScheduleReader reader;
 
     @BeforeEach
     void setUp() {
         LateWorkSchedulesHandler lateSchedulesHandler = mock(LateWorkSchedulesHandler.class);
-        ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+        WorkScheduleWriter workScheduleWriter = mock(WorkScheduleWriter.class);
         ScheduleAssignmentJobQueue jobQueue = mock(ScheduleAssignmentJobQueue.class);
         helper = mock(ScheduleReaderHelper.class);
         logUtil = mock(LogUtil.class);
-        ExcelValidateUtil validateUtil = mock(ExcelValidateUtil.class);
+        validateUtil = mock(ExcelValidateUtil.class);
         ActivityEmployeeAssignmentsCreator assignmentsCreator = mock(ActivityEmployeeAssignmentsCreator.class);
 
         reader = new ScheduleReader(
-                lateSchedulesHandler, scheduleRepository, jobQueue, helper, logUtil, validateUtil, assignmentsCreator
+                lateSchedulesHandler, workScheduleWriter, jobQueue, helper, logUtil, validateUtil, assignmentsCreator
         );
     }
 
@@ -79,7 +87,7 @@ class ScheduleReaderTest {
         when(row.endVal()).thenReturn("09:00"); // -1 duration
         when(row.day()).thenReturn(1);
         when(row.infoVal()).thenReturn("F");
-        when(row.employeesCodes()).thenReturn(Set.of("XXX"));
+        when(row.reference()).thenReturn(new ScheduleReferenceData(Map.of("XXX", new UserEntity()), Map.of()));
 
         var yearMonth = YearMonth.of(2024, 7);
         String roomSymbol = "A";
@@ -101,7 +109,7 @@ class ScheduleReaderTest {
         when(row.endVal()).thenReturn("10:00");
         when(row.day()).thenReturn(2);
         when(row.infoVal()).thenReturn("F");
-        when(row.employeesCodes()).thenReturn(Set.of("ZZZ"));
+        when(row.reference()).thenReturn(new ScheduleReferenceData(Map.of("ZZZ", new UserEntity()), Map.of()));
         when(row.dayBasedSubCode()).thenReturn(null);
 
         var yearMonth = YearMonth.of(2024, 7);
@@ -133,7 +141,6 @@ class ScheduleReaderTest {
         when(row.endVal()).thenReturn("10:00");
         when(row.day()).thenReturn(3);
         when(row.infoVal()).thenReturn("SOMECODE");
-        when(row.employeesCodes()).thenReturn(Set.of("AAA", "BBB"));
         when(row.dayBasedSubCode()).thenReturn("AAA");
 
         var yearMonth = YearMonth.of(2024, 8);
@@ -142,8 +149,7 @@ class ScheduleReaderTest {
         String cleanedEnd = "10:00";
         var employee = new UserEntity();
         var substitute = new UserEntity();
-
-        when(helper.findEmployeeByCode("AAA")).thenReturn(substitute);
+        when(row.reference()).thenReturn(new ScheduleReferenceData(Map.of("AAA", substitute, "BBB", new UserEntity()), Map.of()));
 
         // Act
         var builder = callPrivateGetWorkScheduleBuilder(reader, row, yearMonth, roomSymbol,
@@ -154,6 +160,46 @@ class ScheduleReaderTest {
         assertThat(schedule.getSubstituteEmployee()).isSameAs(substitute);
     }
 
+    @Test
+    void processAllEmployees_buildsSchedulesFromRowsAroundEachEmployeeRow(@TempDir Path dir) throws Exception {
+        // Arrange - GAB1/AB/start/end, then BC whose end row is missing
+        var file = dir.resolve("grafik_pracy_2024-07.xlsx").toFile();
+        try (var workbook = new XSSFWorkbook(); var out = new FileOutputStream(file)) {
+            var sheet = workbook.createSheet();
+            writeRow(sheet, 0, "Kod pracownika");
+            writeRow(sheet, 1, "GAB1", "", "CD");
+            writeRow(sheet, 2, "AB", "F", "");
+            writeRow(sheet, 3, "", "08:00", "09:00");
+            writeRow(sheet, 4, "", "12:00", "15:00");
+            writeRow(sheet, 6, "BC", "F");
+            writeRow(sheet, 7, "", "08:00");
+            workbook.write(out);
+        }
+        getField("yearMonth").set(reader, YearMonth.of(2024, 7));
+        when(validateUtil.isValidDay(any(), anyInt())).thenReturn(true);
+        var ab = new UserEntity();
+        var cd = new UserEntity();
+        var reference = new ScheduleReferenceData(Map.of("AB", ab, "BC", new UserEntity(), "CD", cd), Map.of());
+        var workSchedules = new ArrayList<WorkSchedule>();
+
+        // Act
+        callPrivateProcessAllEmployees(reader, file, List.of(2, 6), reference, workSchedules);
+
+        // Assert
+        assertThat(workSchedules).hasSize(2);
+        var first = workSchedules.get(0);
+        assertThat(first.getDayOfMonth()).isEqualTo(1);
+        assertThat(first.getEmployee()).isSameAs(ab);
+        assertThat(first.getRoomSymbol()).isEqualTo("GAB1");
+        assertThat(first.getWorkMode()).isEqualTo("F");
+        assertThat(first.getWorkStartTime()).isEqualTo("08:00");
+        assertThat(first.getWorkEndTime()).isEqualTo("12:00");
+        var second = workSchedules.get(1);
+        assertThat(second.getDayOfMonth()).isEqualTo(2);
+        assertThat(second.getSubstituteEmployee()).isSameAs(cd);
+        assertThat(second.getWorkMode()).isEqualTo("S");
+    }
+
     //helpers
     private static java.lang.reflect.Field getField(String name) {
         try {
@@ -214,4 +260,26 @@ class ScheduleReaderTest {
             throw new RuntimeException(e);
         }
     }
+
+    private static void writeRow(Sheet sheet, int rowNum, String... values) {
+        var row = sheet.createRow(rowNum);
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].isEmpty()) row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    private static void callPrivateProcessAllEmployees(
+            ScheduleReader reader, File file, List<Integer> employeesRowsIndexes,
+            ScheduleReferenceData reference, List<WorkSchedule> workSchedules
+    ) {
+        try {
+            var m = ScheduleReader.class.getDeclaredMethod(
+                    "processAllEmployees", File.class, List.class, ScheduleReferenceData.class, List.class);
+            m.setAccessible(true);
+            m.invoke(reader, file, employeesRowsIndexes, reference, workSchedules);
+        } catch (Exception e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.demo.schedule.processor;
+
+import com.example.demo.entity.RoomEntity;
+import com.example.demo.entity.UserEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduleReferenceDataTest {
+
+    @Test
+    void employee_findsEmployeeCaseInsensitive() {
+        // Arrange
+        UserEntity user = employee("ZZZ");
+        var reference = ScheduleReferenceData.of(List.of(user), List.of());
+
+        // Act
+        UserEntity result = reference.employee("zzz");
+
+        // Assert
+        assertThat(result).isSameAs(user);
+        assertThat(reference.isEmployeeCode("zZz")).isTrue();
+    }
+
+    @Test
+    void employee_throwsIfNotFound() {
+        // Arrange
+        var reference = ScheduleReferenceData.of(List.of(employee("ZZZ")), List.of());
+
+        // Act & Assert
+        assertThatThrownBy(() -> reference.employee("aaa")).isInstanceOf(NoSuchElementException.class);
+        assertThat(reference.isEmployeeCode("AAA")).isFalse();
+    }
+
+    @Test
+    void of_duplicateCodes_keepsFirstEntity() {
+        // Arrange
+        UserEntity first = employee("ab");
+        var room = new RoomEntity();
+        room.setRoomCode("GAB1");
+
+        // Act
+        var reference = ScheduleReferenceData.of(List.of(first, employee("AB")), List.of(room));
+
+        // Assert
+        assertThat(reference.employee("AB")).isSameAs(first);
+        assertThat(reference.isRoomCode("GAB1")).isTrue();
+        assertThat(reference.isRoomCode("gab1")).isFalse();
+    }
+
+    private static UserEntity employee(String code) {
+        var user = new UserEntity();
+        user.setEmployeeCode(code);
+        return user;
+    }
+}
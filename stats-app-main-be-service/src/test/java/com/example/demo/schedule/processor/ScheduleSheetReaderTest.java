@@ -0,0 +1,97 @@
+package com.example.demo.schedule.processor;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.demo.util.ExcelUtil.getCellValueAsString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduleSheetReaderTest {
+
+    @Test
+    void read_givesSameCellTextsAsWorkbook() throws Exception {
+        // arrange
+        var file = new File("src/test/excels/grafik_pracy_2025-01.xlsx");
+        var expected = new ArrayList<ScheduleSheetRow>();
+        try (var workbook = new XSSFWorkbook(new FileInputStream(file))) {
+            for (Row row : workbook.getSheetAt(0)) {
+                expected.add(sheetRow(row));
+            }
+        }
+        var streamed = new ArrayList<ScheduleSheetRow>();
+
+        // act
+        ScheduleSheetReader.read(file, streamed::add);
+
+        // assert - the workbook keeps trailing blank cells, the stream stops at the last value
+        assertThat(streamed).extracting(ScheduleSheetRow::rowNum)
+                .containsExactlyElementsOf(expected.stream().map(ScheduleSheetRow::rowNum).toList());
+        for (int i = 0; i < expected.size(); i++) {
+            var row = expected.get(i);
+            for (int col = 0; col < Math.max(row.lastCellNum(), streamed.get(i).lastCellNum()); col++) {
+                assertThat(streamed.get(i).cell(col)).as("row %d, column %d", row.rowNum(), col).isEqualTo(row.cell(col));
+            }
+        }
+    }
+
+    @Test
+    void read_fillsSkippedCellsAndLeavesOutMissingRows(@TempDir Path dir) throws Exception {
+        // arrange
+        var file = dir.resolve("grafik_pracy_2025-02.xlsx").toFile();
+        try (var workbook = new XSSFWorkbook(); var out = new FileOutputStream(file)) {
+            var sheet = workbook.createSheet();
+            var row = sheet.createRow(0);
+            row.createCell(0).setCellValue(" AB ");
+            row.createCell(3).setCellValue(8.5);
+            row.createCell(4).setCellFormula("D1*2");
+            sheet.createRow(2).createCell(1).setCellValue("F");
+            //Excel saves formulas with their results, the reader gives the formula text anyway
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            workbook.write(out);
+        }
+        List<ScheduleSheetRow> rows = new ArrayList<>();
+
+        // act
+        ScheduleSheetReader.read(file, rows::add);
+
+        // assert
+        assertThat(rows).extracting(ScheduleSheetRow::rowNum).containsExactly(0, 2);
+        assertThat(rows.get(0).cells()).containsExactly("AB", "", "", "8.5", "D1*2");
+        assertThat(rows.get(1).cell(0)).isEmpty();
+        assertThat(rows.get(1).cell(1)).isEqualTo("F");
+        assertThat(rows.get(1).cell(7)).isEmpty();
+    }
+
+    @Test
+    void read_rowConsumerFailure_stopsReading() {
+        // arrange
+        var file = new File("src/test/excels/grafik_pracy_2025-01.xlsx");
+        List<ScheduleSheetRow> rows = new ArrayList<>();
+
+        // act & assert
+        assertThatThrownBy(() -> ScheduleSheetReader.read(file, row -> {
+            rows.add(row);
+            throw new IllegalStateException("invalid row");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("invalid row");
+        assertThat(rows).hasSize(1);
+    }
+
+    //Row as the workbook (usermodel) API sees it
+    private static ScheduleSheetRow sheetRow(Row row) {
+        var cells = new ArrayList<String>();
+        for (int colIndex = 0; colIndex < row.getLastCellNum(); colIndex++) {
+            cells.add(getCellValueAsString(row.getCell(colIndex)).trim());
+        }
+        return new ScheduleSheetRow(row.getRowNum(), cells);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.schedule.processor;
+
+import com.example.demo.entity.UserEntity;
+import com.example.demo.entity.WorkSchedule;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkScheduleWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private WorkScheduleWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writer = new WorkScheduleWriter(jdbcTemplate, 2);
+        var f = WorkScheduleWriter.class.getDeclaredField("entityManager");
+        f.setAccessible(true);
+        f.set(writer, entityManager);
+    }
+
+    @Test
+    void insertAll_reservesIdsPerBatchAndInsertsInBatches() {
+        // arrange - the generator returns the last id of each reserved block
+        when(jdbcTemplate.queryForObject(eq("SELECT GEN_ID(gen_work_schedule_id4, 2) FROM RDB$DATABASE"), eq(Long.class)))
+                .thenReturn(11L);
+        when(jdbcTemplate.queryForObject(eq("SELECT GEN_ID(gen_work_schedule_id4, 1) FROM RDB$DATABASE"), eq(Long.class)))
+                .thenReturn(20L);
+        var employee = employee(4);
+        var substitute = employee(7);
+        var schedules = IntStream.rangeClosed(1, 3)
+                .mapToObj(day -> schedule(day, employee, day == 2 ? substitute : null))
+                .toList();
+
+        // act
+        writer.insertAll(schedules);
+
+        // assert
+        assertThat(schedules).extracting(WorkSchedule::getId).containsExactly(10, 11, 20);
+        InOrder inOrder = inOrder(entityManager, jdbcTemplate);
+        inOrder.verify(entityManager).flush();
+        inOrder.verify(jdbcTemplate).queryForObject(anyString(), eq(Long.class));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(WorkScheduleWriter.INSERT_SQL), rows.capture());
+        assertThat(rows.getAllValues().get(0)).containsExactly(
+                new Object[]{10, "2024-07", 1, 4, null, "GAB1", "F", "08:00", "16:00", 480, 0},
+                new Object[]{11, "2024-07", 2, 4, 7, "GAB1", "F", "08:00", "16:00", 480, 0});
+        assertThat(rows.getAllValues().get(1)).hasSize(1);
+        assertThat(rows.getAllValues().get(1).get(0)[0]).isEqualTo(20);
+    }
+
+    @Test
+    void insertAll_noSchedules_touchesNothing() {
+        // act
+        writer.insertAll(List.of());
+
+        // assert
+        verifyNoInteractions(jdbcTemplate, entityManager);
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveBatchSize() {
+        // act & assert
+        assertThatThrownBy(() -> new WorkScheduleWriter(jdbcTemplate, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static UserEntity employee(int id) {
+        var employee = new UserEntity();
+        employee.setId(id);
+        return employee;
+    }
+
+    private static WorkSchedule schedule(int day, UserEntity employee, UserEntity substitute) {
+        return WorkSchedule.builder()
+                .yearMonth("2024-07")
+                .dayOfMonth(day)
+                .employee(employee)
+                .substituteEmployee(substitute)
+                .roomSymbol("GAB1")
+                .workMode("F")
+                .workStartTime("08:00")
+                .workEndTime("16:00")
+                .workDurationMinutes(480)
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.service;
 
 import com.example.demo.repository.ActivityEmployeeRepository;
 import com.example.demo.repository.ScheduleRepository;
+import com.example.demo.service.stats.DirtyPeriodTracker;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +14,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,6 +28,8 @@ class ActivityEmployeeAssignmentsCreatorTest {
     @Mock ActivityEmployeeRepository activityEmployeeRepository;
     @Mock ScheduleRepository scheduleRepository;
     @Mock EntityManager entityManager;
+    @Mock DirtyPeriodTracker dirtyPeriodTracker;
+    @Mock UpdateStreamService updateStream;
 
     ActivityEmployeeAssignmentsCreator creator;
 
@@ -36,7 +40,8 @@ class ActivityEmployeeAssignmentsCreatorTest {
     @SuppressWarnings("resource")
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        creator = spy(new ActivityEmployeeAssignmentsCreator(jdbcTemplate, activityEmployeeRepository, scheduleRepository));
+        creator = spy(new ActivityEmployeeAssignmentsCreator(jdbcTemplate, activityEmployeeRepository, scheduleRepository,
+                dirtyPeriodTracker, updateStream));
         TestUtils.setField(creator, entityManager);
         openedStreams.clear();
     }
@@ -66,6 +71,8 @@ class ActivityEmployeeAssignmentsCreatorTest {
         verify(scheduleRepository).setProcessedByYearMonth(eq(yearMonth));
         verify(jdbcTemplate, times(2)).update(anyString(), any(Timestamp.class));
         verify(entityManager).clear();
+        verify(dirtyPeriodTracker).markDirty(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 31), "SCHEDULE_IMPORT");
+        verify(dirtyPeriodTracker, never()).markDirtyForAssignmentBatch(any());
     }
 
     @Test
@@ -83,6 +90,7 @@ class ActivityEmployeeAssignmentsCreatorTest {
         verify(scheduleRepository, never()).setProcessedByYearMonth(any());
         verify(jdbcTemplate, times(2)).update(anyString(), any(Timestamp.class));
         verify(entityManager).clear();
+        verify(dirtyPeriodTracker).markDirtyForAssignmentBatch(any(Timestamp.class));
     }
 
     @Test
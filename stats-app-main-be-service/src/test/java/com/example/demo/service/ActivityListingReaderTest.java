@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActivityListingReaderTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ActivityListingReader reader = new ActivityListingReader(jdbcTemplate);
+
+    @Test
+    void readPage_mergesAssigneeRowsOfEachActivity() throws Exception {
+        // arrange
+        Timestamp date = Timestamp.valueOf("2024-07-10 00:00:00");
+        Timestamp time = Timestamp.valueOf("1899-12-30 08:30:00");
+        stubRows(List.of(
+                new Object[]{201, date, time, "Massage", "MAS", "ST", 1, 4, "Alice"},
+                new Object[]{201, date, time, "Massage", "MAS", "ST", 1, 7, "Bob"},
+                new Object[]{202, date, null, "Sauna", "SAU", null, 0, null, null}
+        ));
+        var pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "activityDate", "activityTime"));
+
+        // act
+        var result = reader.readPage(LocalDateTime.of(2024, 7, 1, 0, 0), LocalDateTime.of(2024, 7, 31, 23, 59), pageable);
+
+        // assert
+        assertThat(result.getContent()).extracting(ActivityDto::getActivityId).containsExactly(201, 202);
+        ActivityDto first = result.getContent().get(0);
+        assertThat(first.getActivityDate()).isEqualTo(date);
+        assertThat(first.getActivityTime()).isEqualTo(time);
+        assertThat(first.getProcedureName()).isEqualTo("Massage");
+        assertThat(first.getProcedureType()).isEqualTo("MAS");
+        assertThat(first.getWorkMode()).isEqualTo("ST");
+        assertThat(first.isHasHistory()).isTrue();
+        assertThat(first.getEmployeeIdsAssigned()).containsExactlyInAnyOrder(4, 7);
+        assertThat(first.getEmployeesAssigned()).containsExactlyInAnyOrder("Alice", "Bob");
+        ActivityDto second = result.getContent().get(1);
+        assertThat(second.isHasHistory()).isFalse();
+        assertThat(second.getEmployeeIdsAssigned()).isEmpty();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), params.capture());
+        assertThat(sql.getValue())
+                .contains("SELECT FIRST 10 SKIP 0")
+                .contains("WHERE z.ZAJECIE_DATA BETWEEN ? AND ?")
+                .contains("ORDER BY a.ZAJECIE_DATA DESC, a.ZAJECIE_GODZ DESC, a.ZAJECIE_ID DESC");
+        assertThat(params.getValue()).containsExactly(
+                Timestamp.valueOf("2024-07-01 00:00:00"), Timestamp.valueOf("2024-07-31 23:59:00"));
+        //the page is shorter than its size, so it is the last one and holds the total
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void readPage_fullPageWithoutFilter_countsAllActivities() throws Exception {
+        // arrange
+        Timestamp date = Timestamp.valueOf("2024-07-10 00:00:00");
+        stubRows(List.<Object[]>of(new Object[]{201, date, null, "Massage", "MAS", "ST", 0, null, null}));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(35L);
+        var pageable = PageRequest.of(3, 1, Sort.by(Sort.Direction.ASC, "activityDate", "activityTime"));
+
+        // act
+        var result = reader.readPage(null, null, pageable);
+
+        // assert
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), any(Object[].class));
+        assertThat(sql.getValue())
+                .contains("SELECT FIRST 1 SKIP 3")
+                .doesNotContain("BETWEEN")
+                .contains("ORDER BY a.ZAJECIE_DATA ASC");
+        assertThat(result.getTotalElements()).isEqualTo(35L);
+        verify(jdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM ZAJECIE z "), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void readKeyset_beforeKey_readsProjectionInDescendingOrder() throws Exception {
+        // arrange
+        Timestamp date = Timestamp.valueOf("2024-07-10 00:00:00");
+        Timestamp time = Timestamp.valueOf("2024-07-10 09:30:00");
+        stubRows(List.of(
+                new Object[]{202, date, null, "Sauna", "SAU", null, 0, null, null},
+                new Object[]{201, date, time, "Massage", "MAS", "ST", 1, 4, "Alice"},
+                new Object[]{201, date, time, "Massage", "MAS", "ST", 1, 7, "Bob"}
+        ));
+        var key = new ActivityCursor(true, LocalDateTime.of(2024, 7, 10, 0, 0), time, 203);
+
+        // act
+        var result = reader.readKeyset(LocalDateTime.of(2024, 7, 1, 0, 0), LocalDateTime.of(2024, 7, 10, 0, 0), key, false, 21);
+
+        // assert
+        assertThat(result).extracting(ActivityDto::getActivityId).containsExactly(202, 201);
+        assertThat(result.get(1).getEmployeeIdsAssigned()).containsExactlyInAnyOrder(4, 7);
+        assertThat(result.get(1).isHasHistory()).isTrue();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), params.capture());
+        assertThat(sql.getValue())
+                .contains("SELECT FIRST 21 z.ZAJECIE_ID")
+                .contains("z.ZAJECIE_ID < ?")
+                .contains("ORDER BY a.ZAJECIE_DATA DESC, a.ZAJECIE_GODZ DESC, a.ZAJECIE_ID DESC");
+        assertThat(params.getValue()).containsExactly(
+                Timestamp.valueOf("2024-07-01 00:00:00"), date, date,
+                ActivityServiceHelper.KEYSET_NO_TIME, time, ActivityServiceHelper.KEYSET_NO_TIME, time, 203);
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+    }
+
+    private void stubRows(List<Object[]> rows) throws Exception {
+        var index = new AtomicInteger();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getTimestamp(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getString(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getObject(anyInt(), eq(Integer.class))).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < rows.size(); i++) {
+                index.set(i);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+}
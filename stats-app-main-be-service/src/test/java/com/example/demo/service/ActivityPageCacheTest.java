@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActivityPageCacheTest {
+
+    private static final YearMonth JULY = YearMonth.of(2024, 7);
+    private static final YearMonth AUGUST = YearMonth.of(2024, 8);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final Pageable pageable = PageRequest.of(0, 10);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void page_secondLookup_returnsFreshCopiesOfCachedPage() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ZERO, Duration.ofMinutes(1), 0);
+        stubVersions(1, 1, 1);
+        var first = cache.page(JULY, pageable, this::loadPage);
+        first.getContent().get(0).setAssignedToLoggedUser(true);
+
+        // act
+        var second = cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(loads).hasValue(1);
+        assertThat(second.getContent().get(0)).isNotSameAs(first.getContent().get(0));
+        assertThat(second.getContent().get(0).isAssignedToLoggedUser()).isFalse();
+        assertThat(second.getContent().get(0).getEmployeeIdsAssigned()).containsExactly(4);
+        assertThat(second.getContent().get(0).isHasHistory()).isTrue();
+        assertThat(second.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void page_newZmianyZajRows_evictOnlyTheirMonth() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ZERO, Duration.ofMinutes(1), 0);
+        stubVersions(1, 1, 1);
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(AUGUST, pageable, this::loadPage);
+        stubVersions(3, 1, 1);
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getInt(1)).thenReturn(2024);
+            when(rs.getInt(2)).thenReturn(7);
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(eq(ActivityPageCache.SELECT_ACTIVITY_MONTHS_SQL), any(RowCallbackHandler.class), any(Object[].class));
+
+        // act
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(AUGUST, pageable, this::loadPage);
+
+        // assert - July reloaded, August still cached
+        assertThat(loads).hasValue(3);
+        verify(jdbcTemplate).query(eq(ActivityPageCache.SELECT_ACTIVITY_MONTHS_SQL), any(RowCallbackHandler.class), eq(1L), eq(3L));
+        verify(jdbcTemplate, never()).query(eq(ActivityPageCache.SELECT_DIRTY_RANGES_SQL), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @Test
+    void page_lateCommitBelowSeenIds_rereadsLookBackWindow() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ZERO, Duration.ofMinutes(1), 2);
+        stubVersions(5, 1, 1, 1);
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(JULY, pageable, this::loadPage);
+        stubVersions(5, 1, 1, 2);
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getInt(1)).thenReturn(2024);
+            when(rs.getInt(2)).thenReturn(7);
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(eq(ActivityPageCache.SELECT_ACTIVITY_MONTHS_SQL), any(RowCallbackHandler.class), any(Object[].class));
+
+        // act - the ids did not move, only the commit count
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(loads).hasValue(2);
+        verify(jdbcTemplate).query(eq(ActivityPageCache.SELECT_ACTIVITY_MONTHS_SQL), any(RowCallbackHandler.class), eq(3L), eq(5L));
+    }
+
+    @Test
+    void page_versionReadForEtag_isNotQueriedAgain() {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1), 0);
+        cache.versionRead(new ActivityVersion(1, 1, 1, 1));
+
+        // act
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(loads).hasValue(1);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void page_newerVersionWithinSyncInterval_loadsWithoutCacheAndQueries() {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ofMinutes(1), Duration.ofMinutes(1), 0);
+        cache.versionRead(new ActivityVersion(1, 1, 1, 1));
+        cache.page(JULY, pageable, this::loadPage);
+        cache.versionRead(new ActivityVersion(3, 1, 1, 1));
+
+        // act
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert - no sync before the interval passes, the cached page of version 1 is not served
+        assertThat(loads).hasValue(3);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void page_olderThanTtl_isLoadedAgain() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ZERO, Duration.ZERO, 0);
+        stubVersions(1, 1, 1);
+        cache.page(JULY, pageable, this::loadPage);
+
+        // act - same version, a late commit below the seen ids would not evict the month
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictAfterCommit_outsideTransaction_evictsMonthAtOnce() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 10, Duration.ZERO, Duration.ofMinutes(1), 0);
+        stubVersions(1, 1, 1);
+        cache.page(JULY, pageable, this::loadPage);
+
+        // act
+        cache.evictAfterCommit(LocalDate.of(2024, 7, 15));
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void page_moreMonthsThanLimit_dropsLeastRecentlyUsed() throws Exception {
+        // arrange
+        var cache = new ActivityPageCache(jdbcTemplate, 1, Duration.ZERO, Duration.ofMinutes(1), 0);
+        stubVersions(1, 1, 1);
+
+        // act
+        cache.page(JULY, pageable, this::loadPage);
+        cache.page(AUGUST, pageable, this::loadPage);
+        cache.page(JULY, pageable, this::loadPage);
+
+        // assert
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(loads).hasValue(3);
+    }
+
+    private Page<ActivityDto> loadPage() {
+        loads.incrementAndGet();
+        var dto = new ActivityDto();
+        dto.setActivityId(201);
+        dto.setHasHistory(true);
+        dto.setEmployeesAssigned(Set.of("Alice"));
+        dto.setEmployeeIdsAssigned(Set.of(4));
+        return new PageImpl<>(List.of(dto), pageable, 1);
+    }
+
+    private void stubVersions(long activityChanges, long dirtyRanges, long assignments) throws Exception {
+        stubVersions(activityChanges, dirtyRanges, assignments, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubVersions(long activityChanges, long dirtyRanges, long assignments, long commits) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(activityChanges);
+        when(rs.getLong(2)).thenReturn(dirtyRanges);
+        when(rs.getLong(3)).thenReturn(assignments);
+        when(rs.getLong(4)).thenReturn(commits);
+        when(jdbcTemplate.queryForObject(eq(EtagService.SELECT_ACTIVITY_VERSION_SQL), any(RowMapper.class)))
+                .thenAnswer(invocation -> ((RowMapper<?>) invocation.getArgument(1)).mapRow(rs, 0));
+    }
+}
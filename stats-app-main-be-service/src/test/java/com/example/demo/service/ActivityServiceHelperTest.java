@@ -8,10 +8,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.data.domain.*;
 
+import java.sql.Timestamp;
 import java.time.*;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.Mockito.*;
 
@@ -27,6 +29,10 @@ class ActivityServiceHelperTest {
     ScheduleRepository scheduleRepository;
     @Mock
     ActivityEmployeeRepository activityEmployeeRepository;
+    @Mock
+    ActivityListingReader activityListingReader;
+    @Mock
+    AssignmentLogBuffer assignmentLogBuffer;
 
     @InjectMocks
     ActivityServiceHelper helper;
@@ -52,41 +58,45 @@ class ActivityServiceHelperTest {
     }
 
     @Test
-    void fetchActivityEntities_byMonth_returnsFromRepo() {
+    void fetchActivityDtos_byMonth_readsWholeMonth() {
         // arrange
-        String ym = "2024-07";
-        when(activityRepository.findByActivityDateBetween(any(), any(), eq(pageable))).thenReturn(activityPage);
+        Page<ActivityDto> dtoPage = new PageImpl<>(List.of(newDto(100)));
+        when(activityListingReader.readPage(any(), any(), eq(pageable))).thenReturn(dtoPage);
 
         // act
-        Page<ActivityEntity> result = helper.fetchActivityEntities(null, null, ym, pageable);
+        Page<ActivityDto> result = helper.fetchActivityDtos(null, null, "2024-07", pageable);
 
         // assert
-        assertThat(result).isEqualTo(activityPage);
+        assertThat(result).isEqualTo(dtoPage);
+        verify(activityListingReader).readPage(LocalDateTime.of(2024, 7, 1, 0, 0),
+                LocalDate.of(2024, 7, 31).atTime(LocalTime.MAX), pageable);
     }
 
     @Test
-    void fetchActivityEntities_byDate_returnsFromRepo() {
+    void fetchActivityDtos_byDate_readsDateRange() {
         // arrange
         LocalDate from = LocalDate.of(2024, 7, 1), to = LocalDate.of(2024, 7, 10);
-        when(activityRepository.findByActivityDateBetween(any(), any(), eq(pageable))).thenReturn(activityPage);
+        Page<ActivityDto> dtoPage = new PageImpl<>(List.of(newDto(100)));
+        when(activityListingReader.readPage(from.atStartOfDay(), to.atTime(LocalTime.MAX), pageable)).thenReturn(dtoPage);
 
         // act
-        Page<ActivityEntity> result = helper.fetchActivityEntities(from, to, null, pageable);
+        Page<ActivityDto> result = helper.fetchActivityDtos(from, to, null, pageable);
 
         // assert
-        assertThat(result).isEqualTo(activityPage);
+        assertThat(result).isEqualTo(dtoPage);
     }
 
     @Test
-    void fetchActivityEntities_all_returnsFromRepo() {
+    void fetchActivityDtos_all_readsWithoutDateFilter() {
         // arrange
-        when(activityRepository.findAll(pageable)).thenReturn(activityPage);
+        Page<ActivityDto> dtoPage = new PageImpl<>(List.of(newDto(100)));
+        when(activityListingReader.readPage(null, null, pageable)).thenReturn(dtoPage);
 
         // act
-        Page<ActivityEntity> result = helper.fetchActivityEntities(null, null, null, pageable);
+        Page<ActivityDto> result = helper.fetchActivityDtos(null, null, null, pageable);
 
         // assert
-        assertThat(result).isEqualTo(activityPage);
+        assertThat(result).isEqualTo(dtoPage);
     }
 
     @Test
@@ -117,12 +127,41 @@ class ActivityServiceHelperTest {
         List<ActivityAssignmentLogEntity> logs = List.of(log1, log2, log1);
 
         // act
-        Map<Integer, UserEntity> result = helper.getUniqueLatestEmployees(logs);
+        Map<Integer, UserEntity> result = helper.getUniqueLatestEmployees(100, logs);
 
         // assert
         assertThat(result.keySet()).containsExactlyInAnyOrder(1, 2);
         assertThat(result.get(1)).isSameAs(user1);
         assertThat(result.get(2)).isSameAs(user2);
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getUniqueLatestEmployees_pendingLogEntries_comeFirst() {
+        // arrange
+        when(assignmentLogBuffer.pendingEmployeeIds(100)).thenReturn(List.of(3, 1));
+        when(userRepository.findAllById(List.of(3, 1))).thenReturn(List.of(user1, user3));
+
+        // act
+        Map<Integer, UserEntity> result = helper.getUniqueLatestEmployees(100, List.of(log2, log1));
+
+        // assert
+        assertThat(result.keySet()).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void withPendingLog_addsPendingEmployeesWithNames() {
+        // arrange
+        when(assignmentLogBuffer.pendingEmployeeIds(601)).thenReturn(List.of(3));
+        when(userRepository.findAllById(Set.of(3))).thenReturn(List.of(user3));
+        Map<Integer, Map<Integer, String>> logged = Map.of(601, Map.of(1, "User One"));
+
+        // act
+        var result = helper.withPendingLog(logged, List.of(601, 602));
+
+        // assert
+        assertThat(result.get(601)).containsExactly(Map.entry(3, "User Three"), Map.entry(1, "User One"));
+        assertThat(result).doesNotContainKey(602);
     }
 
     @Test
@@ -202,12 +241,28 @@ class ActivityServiceHelperTest {
         assertThat(dto.isHasHistory()).isTrue();
     }
 
+    @Test
+    void markPendingHistory_setsFlagOfActivitiesWithQueuedLogEntries() {
+        // arrange
+        ActivityDto pending = newDto(88);
+        ActivityDto other = newDto(89);
+        when(assignmentLogBuffer.hasPending(88)).thenReturn(true);
+
+        // act
+        helper.markPendingHistory(List.of(pending, other));
+
+        // assert
+        assertThat(pending.isHasHistory()).isTrue();
+        assertThat(other.isHasHistory()).isFalse();
+    }
+
     @Test
     void setWorkdayFlagForSingleActivity_setsFlagTrueOrFalse() {
         // arrange
         ActivityDto dto = newDto(202);
         ActivityEntity entity = ActivityEntity.builder().activityDate(LocalDateTime.of(2024, 7, 10, 10, 0)).build();
-        when(scheduleRepository.existsByEmployee_IdAndYearMonthAndDayOfMonth(eq(2), any(), anyInt())).thenReturn(true);
+        when(scheduleRepository.findScheduledDays(2, Set.of("2024-07")))
+                .thenReturn(List.of(new ScheduledDay("2024-07", 10)));
 
         // act
         helper.setWorkdayFlagForSingleActivity(dto, entity, 2);
@@ -216,7 +271,8 @@ class ActivityServiceHelperTest {
         assertThat(dto.isProcedureScheduledOnEmployeesWorkingDay()).isTrue();
 
         // arrange 2
-        when(scheduleRepository.existsByEmployee_IdAndYearMonthAndDayOfMonth(eq(2), any(), anyInt())).thenReturn(false);
+        when(scheduleRepository.findScheduledDays(2, Set.of("2024-07")))
+                .thenReturn(List.of(new ScheduledDay("2024-07", 11)));
 
         // act
         helper.setWorkdayFlagForSingleActivity(dto, entity, 2);
@@ -225,6 +281,49 @@ class ActivityServiceHelperTest {
         assertThat(dto.isProcedureScheduledOnEmployeesWorkingDay()).isFalse();
     }
 
+    @Test
+    void setWorkdayFlag_readsScheduledDaysOfAllPageMonthsOnce() {
+        // arrange
+        var julyWorkday = ActivityEntity.builder().activityId(1).activityDate(LocalDateTime.of(2024, 7, 31, 8, 0)).build();
+        var julyDayOff = ActivityEntity.builder().activityId(2).activityDate(LocalDateTime.of(2024, 7, 30, 8, 0)).build();
+        var augustWorkday = ActivityEntity.builder().activityId(3).activityDate(LocalDateTime.of(2024, 8, 1, 8, 0)).build();
+        var withoutDate = ActivityEntity.builder().activityId(4).build();
+        var page = new PageImpl<>(List.of(julyWorkday, julyDayOff, augustWorkday, withoutDate));
+        List<ActivityDto> dtos = List.of(newDto(1), newDto(2), newDto(3), newDto(4));
+        when(scheduleRepository.findScheduledDays(5, Set.of("2024-07", "2024-08"))).thenReturn(List.of(
+                new ScheduledDay("2024-07", 31),
+                new ScheduledDay("2024-08", 1)));
+
+        // act
+        helper.setWorkdayFlag(page, dtos, 5);
+
+        // assert
+        assertThat(dtos).extracting(ActivityDto::isProcedureScheduledOnEmployeesWorkingDay)
+                .containsExactly(true, false, true, false);
+        verify(scheduleRepository, times(1)).findScheduledDays(any(), any());
+    }
+
+    @Test
+    void setWorkdayFlag_dtos_flagsByActivityDate() {
+        // arrange
+        ActivityDto workday = newDto(1);
+        workday.setActivityDate(Timestamp.valueOf("2024-07-31 00:00:00"));
+        ActivityDto dayOff = newDto(2);
+        dayOff.setActivityDate(Timestamp.valueOf("2024-07-30 00:00:00"));
+        ActivityDto withoutDate = newDto(3);
+        when(scheduleRepository.findScheduledDays(5, Set.of("2024-07")))
+                .thenReturn(List.of(new ScheduledDay("2024-07", 31)));
+
+        // act
+        helper.setWorkdayFlag(List.of(workday, dayOff, withoutDate), 5);
+
+        // assert
+        assertThat(workday.isProcedureScheduledOnEmployeesWorkingDay()).isTrue();
+        assertThat(dayOff.isProcedureScheduledOnEmployeesWorkingDay()).isFalse();
+        assertThat(withoutDate.isProcedureScheduledOnEmployeesWorkingDay()).isFalse();
+        verify(scheduleRepository, times(1)).findScheduledDays(any(), any());
+    }
+
     @Test
     void removeAssignment_removesAllAssignments() {
         // arrange
@@ -244,9 +343,10 @@ class ActivityServiceHelperTest {
     }
 
     @Test
-    void saveOldProcedureAssignment_logsForEachEmployee() {
+    @SuppressWarnings("unchecked")
+    void saveOldProcedureAssignment_queuesEntryForEachEmployee() {
         // arrange
-        ActivityEntity entity = ActivityEntity.builder().activityId(42).build();
+        ActivityEntity entity = ActivityEntity.builder().activityId(42).activityDate(LocalDateTime.of(2024, 7, 10, 0, 0)).build();
         ActivityEmployeeEntity a1 = newAssignment(42, user1);
         ActivityEmployeeEntity a2 = newAssignment(42, user2);
         when(activityEmployeeRepository.findByActivityActivityId(42)).thenReturn(List.of(a1, a2));
@@ -255,7 +355,11 @@ class ActivityServiceHelperTest {
         helper.saveOldProcedureAssignment(entity);
 
         // assert
-        verify(activityAssignmentLogRepository, times(2)).save(any(ActivityAssignmentLogEntity.class));
+        ArgumentCaptor<List<AssignmentLogEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(assignmentLogBuffer).append(entries.capture());
+        assertThat(entries.getValue()).extracting(AssignmentLogEntry::employeeId).containsExactly(1, 2);
+        assertThat(entries.getValue()).extracting(AssignmentLogEntry::activityDay).containsOnly(LocalDate.of(2024, 7, 10));
+        verify(activityAssignmentLogRepository, never()).save(any(ActivityAssignmentLogEntity.class));
     }
 
     @Test
@@ -269,6 +373,52 @@ class ActivityServiceHelperTest {
 
     }
 
+    @Test
+    void fetchActivityDtosFrom_descendingFirstPage_seeksBackFromEndOfMonth() {
+        // arrange
+        var monthStart = LocalDateTime.of(2024, 7, 1, 0, 0);
+        var monthEnd = LocalDate.of(2024, 7, 31).atTime(LocalTime.MAX);
+
+        // act
+        helper.fetchActivityDtosFrom(null, null, "2024-07", true, null, 21);
+
+        // assert
+        verify(activityListingReader).readKeyset(monthStart, monthEnd,
+                new ActivityCursor(false, monthEnd, ActivityServiceHelper.KEYSET_MAX_TIME, Integer.MAX_VALUE), false, 21);
+        verify(activityListingReader, never()).readKeyset(any(), any(), any(), eq(true), anyInt());
+        verifyNoInteractions(activityRepository);
+    }
+
+    @Test
+    void fetchActivityDtosFrom_ascendingNextCursor_startsRangeAtCursorDate() {
+        // arrange
+        var cursorDate = LocalDateTime.of(2024, 7, 10, 0, 0);
+        var cursorTime = Timestamp.valueOf("2024-07-10 09:30:00");
+        var cursor = new ActivityCursor(false, cursorDate, cursorTime, 55);
+
+        // act
+        helper.fetchActivityDtosFrom(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), null, false, cursor, 21);
+
+        // assert
+        verify(activityListingReader).readKeyset(cursorDate, LocalDate.of(2024, 12, 31).atTime(LocalTime.MAX),
+                cursor, true, 21);
+    }
+
+    @Test
+    void activityCursor_roundTripsAndRejectsGarbage() {
+        // arrange
+        var cursor = new ActivityCursor(true, LocalDateTime.of(2024, 7, 10, 0, 0),
+                Timestamp.valueOf("2024-07-10 09:30:00"), 55);
+
+        // act
+        var decoded = ActivityCursor.decode(cursor.encode());
+
+        // assert
+        assertThat(decoded).isEqualTo(cursor);
+        assertThatThrownBy(() -> ActivityCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     // Helper Methods
     private ActivityDto newDto(int id) {
         ActivityDto dto = new ActivityDto();
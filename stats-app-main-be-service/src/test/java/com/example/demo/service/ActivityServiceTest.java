@@ -1,6 +1,8 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.UpdateEventDto;
 import com.example.demo.dto.bsn_logic_dto.ActivityDto;
+import com.example.demo.dto.bsn_logic_dto.BulkAssignmentDto;
 import com.example.demo.entity.ActivityAssignmentLogEntity;
 import com.example.demo.entity.ActivityEmployeeEntity;
 import com.example.demo.entity.ActivityEntity;
@@ -9,6 +11,7 @@ import com.example.demo.mapper.ActivityMapper;
 import com.example.demo.repository.ActivityAssignmentLogRepository;
 import com.example.demo.repository.ActivityEmployeeRepository;
 import com.example.demo.repository.ActivityRepository;
+import com.example.demo.service.stats.DirtyPeriodTracker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -19,12 +22,15 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class ActivityServiceTest {
@@ -34,6 +40,11 @@ class ActivityServiceTest {
     @Mock ActivityMapper activityMapper;
     @Mock ActivityServiceHelper helper;
     @Mock ActivityEmployeeRepository activityEmployeeRepository;
+    @Mock DirtyPeriodTracker dirtyPeriodTracker;
+    @Mock UpdateStreamService updateStream;
+    @Mock ActivityPageCache pageCache;
+    @Mock ActivityListingReader listingReader;
+    @Mock BulkAssignmentWriter bulkWriter;
     @InjectMocks ActivityService activityService;
 
     UserEntity user1, user2;
@@ -56,22 +67,86 @@ class ActivityServiceTest {
     @Test
     void findAllActivities_basicFlow_success() {
         // arrange
-        var activityPage = new PageImpl<>(List.of(activity1), pageable, 1);
-        var mappedDtos = List.of(dto1);
+        var dtoPage = new PageImpl<>(List.of(dto1), pageable, 1);
+        LocalDate from = LocalDate.of(2024, 7, 1), to = LocalDate.of(2024, 7, 10);
         when(helper.getSortedPageable(0, 10, "ASC")).thenReturn(pageable);
-        when(helper.fetchActivityEntities(any(), any(), any(), eq(pageable))).thenReturn(activityPage);
-        when(activityMapper.activityEntityToDto(activity1)).thenReturn(dto1);
-        when(helper.mapActivityEmployeeToDtos(any())).thenReturn(mappedDtos);
+        when(helper.fetchActivityDtos(from, to, null, pageable)).thenReturn(dtoPage);
         when(helper.getUserByEmployeeCode("user1")).thenReturn(user1);
 
         // act
-        var result = activityService.findAllActivities(0, 10, "user1", LocalDate.now(), LocalDate.now(), "2024-07", "ASC");
+        var result = activityService.findAllActivities(0, 10, "user1", from, to, null, "ASC");
 
         // assert
-        assertThat(result.getContent()).isEqualTo(mappedDtos);
-        verify(helper).setWorkdayFlag(activityPage, mappedDtos, user1.getId());
-        verify(helper).markAssignedForUser(mappedDtos, user1.getId());
-        verify(helper).markHistoryFlag(mappedDtos);
+        assertThat(result.getContent()).containsExactly(dto1);
+        verify(helper).setWorkdayFlag(List.of(dto1), user1.getId());
+        verify(helper).markAssignedForUser(List.of(dto1), user1.getId());
+        verify(helper, never()).markHistoryFlag(any());
+        verifyNoInteractions(activityMapper, activityRepository, pageCache);
+    }
+
+    @Test
+    void findAllActivities_month_readsPageThroughCache() {
+        // arrange
+        var dtoPage = new PageImpl<>(List.of(dto1), pageable, 1);
+        when(helper.getSortedPageable(0, 10, "ASC")).thenReturn(pageable);
+        when(pageCache.page(eq(YearMonth.of(2024, 7)), eq(pageable), any())).thenReturn(dtoPage);
+        when(helper.getUserByEmployeeCode("user1")).thenReturn(user1);
+
+        // act
+        var result = activityService.findAllActivities(0, 10, "user1", null, null, "2024-07", "ASC");
+
+        // assert
+        assertThat(result.getContent()).containsExactly(dto1);
+        verify(helper, never()).fetchActivityDtos(any(), any(), any(), any());
+        verify(helper).setWorkdayFlag(List.of(dto1), user1.getId());
+        verify(helper).markAssignedForUser(List.of(dto1), user1.getId());
+    }
+
+    @Test
+    void findActivitiesByCursor_firstPage_returnsNextCursorOfLastShownRow() {
+        // arrange
+        var rows = List.of(activityAt(1, 8), activityAt(2, 9), activityAt(3, 10));
+        when(helper.fetchActivityDtosFrom(null, null, "2024-07", false, null, 3)).thenReturn(rows);
+        when(helper.getUserByEmployeeCode("user1")).thenReturn(user1);
+
+        // act
+        var result = activityService.findActivitiesByCursor(2, "user1", null, null, "2024-07", "asc", null, false);
+
+        // assert
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getPrevCursor()).isNull();
+        assertThat(result.getTotalElements()).isNull();
+        var next = ActivityCursor.decode(result.getNextCursor());
+        assertThat(next.backward()).isFalse();
+        assertThat(next.activityId()).isEqualTo(2);
+        assertThat(next.date()).isEqualTo(rows.get(1).getActivityDate().toLocalDateTime());
+        verify(helper, never()).countActivities(any(), any(), any());
+        //assignees and history flag come with the rows
+        verify(helper).setWorkdayFlag(rows.subList(0, 2), user1.getId());
+        verify(helper).markPendingHistory(rows.subList(0, 2));
+        verify(helper, never()).mapActivityEmployeeToDtos(any());
+        verify(helper, never()).markHistoryFlag(any());
+        verifyNoInteractions(activityMapper, activityRepository);
+    }
+
+    @Test
+    void findActivitiesByCursor_prevCursor_returnsRowsInPageOrderWithBothCursors() {
+        // arrange
+        var cursor = ActivityCursor.prev(activityAt(4, 11)).encode();
+        //read backwards: nearest row first, one more than the page size
+        var rows = List.of(activityAt(3, 10), activityAt(2, 9), activityAt(1, 8));
+        when(helper.fetchActivityDtosFrom(any(), any(), any(), eq(false), any(ActivityCursor.class), eq(3))).thenReturn(rows);
+        when(helper.getUserByEmployeeCode("user1")).thenReturn(user1);
+        when(helper.countActivities(null, null, null)).thenReturn(40L);
+
+        // act
+        var result = activityService.findActivitiesByCursor(2, "user1", null, null, null, "asc", cursor, true);
+
+        // assert
+        assertThat(result.getContent()).extracting(ActivityDto::getActivityId).containsExactly(2, 3);
+        assertThat(ActivityCursor.decode(result.getNextCursor()).activityId()).isEqualTo(3);
+        assertThat(ActivityCursor.decode(result.getPrevCursor()).activityId()).isEqualTo(2);
+        assertThat(result.getTotalElements()).isEqualTo(40L);
     }
 
     @Test
@@ -81,6 +156,7 @@ class ActivityServiceTest {
         inputDto.setActivityId(201);
         ActivityEntity activity = new ActivityEntity();
         activity.setActivityId(201);
+        activity.setActivityDate(LocalDate.of(2024, 7, 15).atTime(10, 30));
         when(activityRepository.findById(201)).thenReturn(Optional.of(activity));
         when(helper.getUserByEmployeeCode("user2")).thenReturn(user2);
         when(activityMapper.activityEntityToDto(activity)).thenReturn(dto1);
@@ -97,6 +173,9 @@ class ActivityServiceTest {
         assertThat(result.getEmployeesAssigned()).contains("User2");
         assertThat(result.getEmployeeIdsAssigned()).contains(2);
         verify(helper).setWorkdayFlagForSingleActivity(result, activity, 2);
+        verify(dirtyPeriodTracker).markDirty(LocalDate.of(2024, 7, 15), LocalDate.of(2024, 7, 15), "ACTIVITY_CLAIM");
+        verify(updateStream).publish(UpdateEventDto.assignment(201, LocalDate.of(2024, 7, 15)));
+        verify(pageCache).evictAfterCommit(LocalDate.of(2024, 7, 15));
     }
 
     @Test
@@ -119,6 +198,28 @@ class ActivityServiceTest {
         verify(helper).removeAssignment(activity, dto1, user1);
     }
 
+    @Test
+    void returnToOldAssignment_historyNotWrittenYet_restoresPendingEmployees() {
+        // arrange
+        ActivityDto inputDto = new ActivityDto();
+        inputDto.setActivityId(302);
+        ActivityEntity activity = new ActivityEntity();
+        activity.setActivityId(302);
+        when(activityRepository.findById(302)).thenReturn(Optional.of(activity));
+        when(helper.getUserByEmployeeCode("user1")).thenReturn(user1);
+        when(activityAssignmentLogRepository.findByActivity_ActivityIdOrderByAssignedAtDesc(302)).thenReturn(List.of());
+        when(activityMapper.activityEntityToDto(activity)).thenReturn(dto1);
+        when(helper.getUniqueLatestEmployees(302, List.of())).thenReturn(Map.of(2, user2));
+
+        // act
+        activityService.returnToOldAssignment(inputDto, "user1");
+
+        // assert
+        verify(helper, never()).removeAssignment(any(), any(), any());
+        verify(activityEmployeeRepository).saveAll(anyList());
+        verify(helper).mapToDto(eq(dto1), anyList(), eq(activity), eq(user1));
+    }
+
     @Test
     void returnToOldAssignment_withHistory_restoresAssignments() {
         // arrange
@@ -133,7 +234,7 @@ class ActivityServiceTest {
         var assignmentHistory = List.of(mock(ActivityAssignmentLogEntity.class));
         when(activityAssignmentLogRepository.findByActivity_ActivityIdOrderByAssignedAtDesc(400)).thenReturn(assignmentHistory);
         when(activityMapper.activityEntityToDto(activity)).thenReturn(dto1);
-        when(helper.getUniqueLatestEmployees(assignmentHistory)).thenReturn(Map.of(2, restoredUser));
+        when(helper.getUniqueLatestEmployees(400, assignmentHistory)).thenReturn(Map.of(2, restoredUser));
         when(helper.mapToDto(any(), anyList(), any(), any())).thenReturn(dto1);
 
         // act
@@ -145,5 +246,111 @@ class ActivityServiceTest {
         verify(helper).mapToDto(eq(dto1), anyList(), eq(activity), eq(user2));
         assertThat(result).isSameAs(dto1);
     }
-}
 
+    @Test
+    void bulkReassign_claim_logsCurrentAssigneesAndWritesInBatches() {
+        // arrange
+        var first = listedDto(501, "2024-07-15 00:00:00", 1, 2);
+        var second = listedDto(502, "2024-07-15 00:00:00");
+        when(helper.getUserByEmployeeCode("user2")).thenReturn(user2);
+        when(listingReader.readActivities(List.of(501, 502))).thenReturn(Map.of(501, first, 502, second));
+
+        // act
+        var result = activityService.bulkReassign(
+                new BulkAssignmentDto(List.of(501, 502, 501), BulkAssignmentDto.Operation.CLAIM), "user2");
+
+        // assert
+        assertThat(result).containsExactly(first, second);
+        assertThat(result).allSatisfy(dto -> {
+            assertThat(dto.isHasHistory()).isTrue();
+            assertThat(dto.getEmployeeIdsAssigned()).containsExactly(2);
+            assertThat(dto.getEmployeesAssigned()).containsExactly("User2");
+        });
+        verify(helper).saveOldProcedureAssignments(result);
+        verify(bulkWriter).deleteAssignments(List.of(501, 502));
+        verify(bulkWriter).insertAssignments(Map.of(501, List.of(2), 502, List.of(2)), true);
+        verify(helper).setWorkdayFlag(result, 2);
+        verify(helper).markAssignedForUser(result, 2);
+        //both activities are on the same day
+        verify(dirtyPeriodTracker, times(1)).markDirty(LocalDate.of(2024, 7, 15), LocalDate.of(2024, 7, 15), "ACTIVITY_CLAIM");
+        verify(updateStream, times(1)).publish(UpdateEventDto.assignments());
+        verifyNoInteractions(activityRepository, activityEmployeeRepository, activityAssignmentLogRepository);
+    }
+
+    @Test
+    void bulkReassign_restore_givesBackLoggedEmployees() {
+        // arrange
+        var withHistory = listedDto(601, "2024-07-16 00:00:00", 2);
+        var withoutHistory = listedDto(602, "2024-08-01 00:00:00", 2);
+        when(helper.getUserByEmployeeCode("user2")).thenReturn(user2);
+        when(listingReader.readActivities(List.of(601, 602))).thenReturn(Map.of(601, withHistory, 602, withoutHistory));
+        when(bulkWriter.loggedEmployees(List.of(601, 602))).thenReturn(Map.of(601, Map.of(1, "User1", 3, "User3")));
+        when(helper.withPendingLog(any(), eq(List.of(601, 602)))).thenAnswer(i -> i.getArgument(0));
+
+        // act
+        var result = activityService.bulkReassign(
+                new BulkAssignmentDto(List.of(601, 602), BulkAssignmentDto.Operation.RESTORE), "user2");
+
+        // assert
+        verify(bulkWriter).deleteAssignments(List.of(601, 602));
+        verify(bulkWriter).insertAssignments(Map.of(601, Set.of(1, 3)), false);
+        assertThat(result.get(0).isHasHistory()).isTrue();
+        assertThat(result.get(0).getEmployeeIdsAssigned()).containsExactlyInAnyOrder(1, 3);
+        assertThat(result.get(0).getEmployeesAssigned()).containsExactlyInAnyOrder("User1", "User3");
+        assertThat(result.get(1).isHasHistory()).isFalse();
+        assertThat(result.get(1).getEmployeeIdsAssigned()).isEmpty();
+        verify(pageCache).evictAfterCommit(LocalDate.of(2024, 7, 16));
+        verify(pageCache).evictAfterCommit(LocalDate.of(2024, 8, 1));
+    }
+
+    @Test
+    void bulkReassign_unknownActivity_writesNothing() {
+        // arrange
+        when(helper.getUserByEmployeeCode("user2")).thenReturn(user2);
+        when(listingReader.readActivities(List.of(701, 702))).thenReturn(Map.of(701, listedDto(701, "2024-07-16 00:00:00")));
+
+        // act & assert
+        assertThatThrownBy(() -> activityService.bulkReassign(
+                new BulkAssignmentDto(List.of(701, 702), BulkAssignmentDto.Operation.CLAIM), "user2"))
+                .hasMessageContaining("702");
+        verifyNoInteractions(bulkWriter, dirtyPeriodTracker, updateStream);
+    }
+
+    @Test
+    void bulkReassign_withoutOperation_isRejected() {
+        // act & assert
+        assertThatThrownBy(() -> activityService.bulkReassign(new BulkAssignmentDto(List.of(701), null), "user2"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(listingReader, bulkWriter);
+    }
+
+    @Test
+    void bulkReassign_moreIdsThanInListAllows_isRejected() {
+        // arrange
+        List<Integer> activityIds = IntStream.rangeClosed(1, ActivityService.MAX_BULK_SIZE + 1).boxed().toList();
+
+        // act & assert
+        assertThatThrownBy(() -> activityService.bulkReassign(
+                new BulkAssignmentDto(activityIds, BulkAssignmentDto.Operation.CLAIM), "user2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1500");
+        verifyNoInteractions(listingReader, bulkWriter);
+    }
+
+    private static ActivityDto listedDto(int id, String date, Integer... employeeIds) {
+        var dto = new ActivityDto();
+        dto.setActivityId(id);
+        dto.setActivityDate(Timestamp.valueOf(date));
+        dto.setEmployeeIdsAssigned(new HashSet<>(Arrays.asList(employeeIds)));
+        dto.setEmployeesAssigned(new HashSet<>());
+        return dto;
+    }
+
+    private static ActivityDto activityAt(int id, int hour) {
+        var dto = new ActivityDto();
+        dto.setActivityId(id);
+        dto.setActivityDate(Timestamp.valueOf(LocalDateTime.of(2024, 7, 10, 0, 0)));
+        dto.setActivityTime(Timestamp.valueOf(LocalDateTime.of(2024, 7, 10, hour, 0)));
+        return dto;
+    }
+}
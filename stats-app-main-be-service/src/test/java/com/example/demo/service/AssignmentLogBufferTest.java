@@ -0,0 +1,220 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AssignmentLogBufferTest {
+
+    private final BulkAssignmentWriter writer = mock(BulkAssignmentWriter.class);
+    private final ActivityPageCache pageCache = mock(ActivityPageCache.class);
+    private AssignmentLogBuffer buffer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        buffer.shutdown();
+    }
+
+    @Test
+    void append_queuesEntriesVisibleUntilFlushed() {
+        // arrange
+        buffer = newBuffer(true, 10, 5);
+        var first = entry(201, 1);
+        var second = entry(201, 2);
+
+        // act
+        buffer.append(List.of(first, second));
+
+        // assert
+        verifyNoInteractions(writer);
+        assertThat(buffer.hasPending(201)).isTrue();
+        assertThat(buffer.pendingEmployeeIds(201)).containsExactly(2, 1);
+
+        // act 2
+        buffer.flush();
+
+        // assert 2
+        verify(writer).writeLog(List.of(first, second));
+        verify(pageCache).evict(Set.of(YearMonth.of(2024, 7)));
+        assertThat(buffer.hasPending(201)).isFalse();
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void append_queueFull_writesAtOnce() {
+        // arrange
+        buffer = newBuffer(true, 2, 5);
+        buffer.append(List.of(entry(201, 1)));
+        var overflow = List.of(entry(202, 1), entry(202, 2));
+
+        // act
+        buffer.append(overflow);
+
+        // assert
+        verify(writer).writeLog(overflow);
+        assertThat(buffer.hasPending(202)).isFalse();
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void append_concurrentTransactions_overflowIsWrittenBeforeCommit() {
+        // arrange - both claims append before either commits
+        buffer = newBuffer(true, 2, 5);
+        var first = List.of(entry(201, 1), entry(201, 2));
+        var second = List.of(entry(202, 1));
+        List<TransactionSynchronization> firstTransaction = inTransaction(() -> buffer.append(first));
+
+        // act
+        List<TransactionSynchronization> secondTransaction = inTransaction(() -> buffer.append(second));
+
+        // assert - the second one had no room left and wrote its rows inside its own transaction
+        verify(writer).writeLog(second);
+        assertThat(secondTransaction).isEmpty();
+
+        // act 2
+        TransactionSynchronizationUtils.invokeAfterCompletion(firstTransaction, TransactionSynchronization.STATUS_COMMITTED);
+
+        // assert 2
+        verifyNoMoreInteractions(writer);
+        assertThat(buffer.pendingEmployeeIds(201)).containsExactly(2, 1);
+        assertThat(buffer.pendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void append_rolledBack_releasesReservedRoom() {
+        // arrange
+        buffer = newBuffer(true, 2, 5);
+        List<TransactionSynchronization> synchronizations = inTransaction(() -> buffer.append(List.of(entry(201, 1), entry(201, 2))));
+
+        // act
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // assert
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(buffer.hasPending(201)).isFalse();
+        buffer.append(List.of(entry(202, 1), entry(202, 2)));
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    void append_writeBehindOff_writesAtOnce() {
+        // arrange
+        buffer = newBuffer(false, 10, 5);
+        var entries = List.of(entry(201, 1));
+
+        // act
+        buffer.append(entries);
+
+        // assert
+        verify(writer).writeLog(entries);
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void flush_failedBatch_keepsEntriesForNextAttempt() {
+        // arrange
+        buffer = newBuffer(true, 10, 5);
+        var entries = List.of(entry(201, 1));
+        buffer.append(entries);
+        doThrow(new IllegalStateException("db down")).doNothing().when(writer).writeLog(anyList());
+
+        // act
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+
+        // assert
+        assertThat(buffer.hasPending(201)).isTrue();
+        buffer.flush();
+        verify(writer, times(2)).writeLog(entries);
+        assertThat(buffer.hasPending(201)).isFalse();
+    }
+
+    @Test
+    void flush_constraintViolation_dropsOnlyFailingRows() {
+        // arrange - activity 202 was deleted before its row was written
+        buffer = newBuffer(true, 10, 5);
+        var kept = entry(201, 1);
+        var orphan = entry(202, 1);
+        buffer.append(List.of(kept, orphan));
+        doThrow(new DataIntegrityViolationException("FK_ACTIVITY_ASSIGNMENT_LOG")).when(writer).writeLog(List.of(kept, orphan));
+        doThrow(new DataIntegrityViolationException("FK_ACTIVITY_ASSIGNMENT_LOG")).when(writer).writeLog(List.of(orphan));
+        var later = entry(203, 1);
+
+        // act
+        buffer.flush();
+        buffer.append(List.of(later));
+        buffer.flush();
+
+        // assert
+        verify(writer).writeLog(List.of(kept));
+        verify(writer).writeLog(List.of(later));
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(buffer.hasPending(202)).isFalse();
+    }
+
+    @Test
+    void flush_batchFailingEveryAttempt_isWrittenRowByRowAtLast() {
+        // arrange
+        buffer = newBuffer(true, 10, 5);
+        var entries = List.of(entry(201, 1), entry(201, 2));
+        buffer.append(entries);
+        doThrow(new IllegalStateException("bad batch")).when(writer).writeLog(entries);
+
+        // act
+        for (int attempt = 1; attempt < AssignmentLogBuffer.MAX_BATCH_ATTEMPTS; attempt++) {
+            assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+        }
+        buffer.flush();
+
+        // assert
+        verify(writer, times(AssignmentLogBuffer.MAX_BATCH_ATTEMPTS)).writeLog(entries);
+        verify(writer).writeLog(List.of(entries.get(0)));
+        verify(writer).writeLog(List.of(entries.get(1)));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void append_batchSizeReached_flushesInBackground() {
+        // arrange
+        buffer = newBuffer(true, 10, 2);
+
+        // act
+        buffer.append(List.of(entry(201, 1), entry(202, 1)));
+
+        // assert
+        verify(writer, timeout(2000)).writeLog(anyList());
+    }
+
+    //runs the action with transaction synchronization on, as a @Transactional method would, and returns what it registered
+    private static List<TransactionSynchronization> inTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private AssignmentLogBuffer newBuffer(boolean writeBehind, int capacity, int batchSize) {
+        return new AssignmentLogBuffer(writer, pageCache, writeBehind, capacity, batchSize, Duration.ofMinutes(1));
+    }
+
+    private static AssignmentLogEntry entry(int activityId, int employeeId) {
+        return new AssignmentLogEntry(activityId, employeeId, LocalDate.of(2024, 7, 15), LocalDateTime.of(2024, 7, 15, 9, 0));
+    }
+}
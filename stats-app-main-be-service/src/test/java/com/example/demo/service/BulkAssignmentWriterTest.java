@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkAssignmentWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BulkAssignmentWriter writer = new BulkAssignmentWriter(jdbcTemplate);
+
+    @Test
+    void loggedEmployees_groupsLogRowsByActivity() throws Exception {
+        // arrange
+        List<Object[]> rows = List.of(
+                new Object[]{501, 1, "User One"},
+                new Object[]{501, 1, "User One"},
+                new Object[]{501, 3, "User Three"},
+                new Object[]{502, null, null});
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt(1)).thenReturn((Integer) row[0]);
+                when(rs.getObject(2, Integer.class)).thenReturn((Integer) row[1]);
+                when(rs.getString(3)).thenReturn((String) row[2]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        // act
+        var result = writer.loggedEmployees(List.of(501, 502));
+
+        // assert
+        assertThat(result.get(501)).containsExactly(Map.entry(1, "User One"), Map.entry(3, "User Three"));
+        assertThat(result.get(502)).isEmpty();
+        verify(jdbcTemplate).query(contains("WHERE l.activity_id IN (?, ?)"), any(RowCallbackHandler.class), eq(501), eq(502));
+    }
+
+    @Test
+    void insertAssignments_writesOneBatchForAllActivities() {
+        // arrange
+        Map<Integer, Set<Integer>> employees = new LinkedHashMap<>();
+        employees.put(601, Set.of(1));
+        employees.put(602, Set.of(3));
+
+        // act
+        writer.insertAssignments(employees, false);
+
+        // assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(BulkAssignmentWriter.INSERT_ASSIGNMENT_SQL), rows.capture());
+        assertThat(rows.getValue()).containsExactly(new Object[]{601, 1, 0}, new Object[]{602, 3, 0});
+    }
+
+    @Test
+    void writeLog_writesEntriesInOneBatch() {
+        // act
+        writer.writeLog(List.of());
+        writer.writeLog(List.of(new AssignmentLogEntry(602, 4, LocalDate.of(2024, 7, 16), LocalDateTime.of(2024, 7, 16, 10, 0))));
+
+        // assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(BulkAssignmentWriter.INSERT_LOG_SQL), rows.capture());
+        assertThat(rows.getValue()).containsExactly(new Object[]{602, 4, Timestamp.valueOf("2024-07-16 10:00:00")});
+    }
+}
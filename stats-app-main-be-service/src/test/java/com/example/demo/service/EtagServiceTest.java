@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.example.demo.service.stats.StatsGeneration;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EtagServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StatsGeneration statsGeneration = new StatsGeneration();
+    private final ActivityPageCache pageCache = mock(ActivityPageCache.class);
+    private final EtagService etagService = new EtagService(jdbcTemplate, statsGeneration, pageCache);
+
+    @Test
+    void statisticsEtag_changesWithGenerationAndUser() {
+        // act
+        String first = etagService.statisticsEtag("ALICE");
+        String same = etagService.statisticsEtag("ALICE");
+        String otherUser = etagService.statisticsEtag("BOB");
+        statsGeneration.bump("TEST");
+        String bumped = etagService.statisticsEtag("ALICE");
+
+        // assert
+        assertThat(first).startsWith("\"stats-").endsWith("\"").isEqualTo(same);
+        assertThat(otherUser).isNotEqualTo(first);
+        assertThat(bumped).isNotEqualTo(first);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void snapshotEtag_changesWithGenerationAndUser() {
+        // act
+        String first = etagService.snapshotEtag("ALICE", 1L);
+
+        // assert
+        assertThat(first).startsWith("\"snap-").endsWith("\"").isEqualTo(etagService.snapshotEtag("ALICE", 1L));
+        assertThat(etagService.snapshotEtag("BOB", 1L)).isNotEqualTo(first);
+        assertThat(etagService.snapshotEtag("ALICE", 2L)).isNotEqualTo(first);
+    }
+
+    @Test
+    void digest_differentRequests_neverShareText() {
+        // act & assert - "Aa" and "BB" have the same String.hashCode
+        assertThat(EtagService.digest("ALICE", "Aa")).isNotEqualTo(EtagService.digest("ALICE", "BB"));
+        assertThat(EtagService.digest("ALICE", "a,b", null)).isNotEqualTo(EtagService.digest("ALICE", "a", "b"));
+        assertThat(EtagService.digest("ALICE", (Object) null)).isNotEqualTo(EtagService.digest("ALICE", "~"));
+        assertThat(EtagService.digest("ALICE", List.of(1, 2))).isNotEqualTo(EtagService.digest("ALICE", List.of(2, 1)));
+        assertThat(EtagService.digest("ALICE", new LinkedHashSet<>(List.of("DAY", "WEEK"))))
+                .isEqualTo(EtagService.digest("ALICE", new LinkedHashSet<>(List.of("WEEK", "DAY"))))
+                .hasSize(64);
+    }
+
+    @Test
+    void activitiesEtag_combinesChangeIdsAndRequestParams() throws Exception {
+        // arrange
+        stubVersion(120, 7, 5000, 9);
+        LocalDate start = LocalDate.of(2024, 7, 1);
+
+        // act
+        String etag = etagService.activitiesEtag("ALICE", 0, 20, start, null, null, "asc");
+        String nextPage = etagService.activitiesEtag("ALICE", 1, 20, start, null, null, "asc");
+
+        // assert
+        assertThat(etag).startsWith("\"act-120-7-5000-9-");
+        assertThat(nextPage).isNotEqualTo(etag);
+        verify(pageCache, times(2)).versionRead(new ActivityVersion(120, 7, 5000, 9));
+    }
+
+    @Test
+    void activitiesEtag_lateCommitBelowSeenIds_changesEtag() throws Exception {
+        // arrange
+        stubVersion(120, 7, 5000, 9);
+        String before = etagService.activitiesEtag("ALICE", 0, 20);
+        stubVersion(120, 7, 5000, 10);
+
+        // act
+        String after = etagService.activitiesEtag("ALICE", 0, 20);
+
+        // assert
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    void foldCommitMarks_addsDeletedMarksToFoldedCount() {
+        // arrange
+        when(jdbcTemplate.update(EtagService.DELETE_COMMIT_MARKS_SQL)).thenReturn(42);
+
+        // act
+        etagService.foldCommitMarks();
+
+        // assert
+        verify(jdbcTemplate).update(EtagService.FOLD_COMMIT_MARKS_SQL, 42);
+    }
+
+    @Test
+    void foldCommitMarks_noMarks_leavesCountAlone() {
+        // act
+        etagService.foldCommitMarks();
+
+        // assert
+        verify(jdbcTemplate).update(EtagService.DELETE_COMMIT_MARKS_SQL);
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubVersion(long activityChanges, long dirtyRanges, long assignments, long commits) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(activityChanges);
+        when(rs.getLong(2)).thenReturn(dirtyRanges);
+        when(rs.getLong(3)).thenReturn(assignments);
+        when(rs.getLong(4)).thenReturn(commits);
+        when(jdbcTemplate.queryForObject(eq(EtagService.SELECT_ACTIVITY_VERSION_SQL), any(RowMapper.class)))
+                .thenAnswer(i -> ((RowMapper<ActivityVersion>) i.getArgument(1)).mapRow(rs, 0));
+    }
+}
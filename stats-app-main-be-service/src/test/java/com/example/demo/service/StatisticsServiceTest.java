@@ -2,19 +2,25 @@ package com.example.demo.service;
 
 import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
 import com.example.demo.dto.stats_dtos.DailyStatsDto;
+import com.example.demo.dto.stats_dtos.MonthlyStatsDto;
+import com.example.demo.dto.stats_dtos.StatisticsQuery;
 import com.example.demo.entity.UserEntity;
-import com.example.demo.entity.stats.EmployeeDailyStatsEntity;
-import com.example.demo.mapper.EmployeeStatisticsMapper;
 import com.example.demo.repository.UserRepository;
-import com.example.demo.repository.stats.DailyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.MonthlyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.WeeklyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.YearlyEmployeeStatisticRepository;
+import com.example.demo.service.stats.StatsGeneration;
+import com.example.demo.service.stats.StatsReader;
+import com.example.demo.service.stats.StatsSlice;
+import com.example.demo.service.stats.StatsTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -22,23 +28,20 @@ import static org.mockito.Mockito.*;
 class StatisticsServiceTest {
 
     private UserRepository userRepository;
-    private DailyEmployeeStatisticRepository dailyRepo;
-    private EmployeeStatisticsMapper mapper;
+    private StatsReader statsReader;
+    private StatsGeneration statsGeneration;
+    private SimpleMeterRegistry meterRegistry;
 
     private StatisticsService service;
 
     @BeforeEach
     void setUp() {
-        var weeklyRepo = mock(WeeklyEmployeeStatisticRepository.class);
-        var monthlyRepo = mock(MonthlyEmployeeStatisticRepository.class);
-        var yearlyRepo = mock(YearlyEmployeeStatisticRepository.class);
         userRepository = mock(UserRepository.class);
-        dailyRepo = mock(DailyEmployeeStatisticRepository.class);
-        mapper = mock(EmployeeStatisticsMapper.class);
+        statsReader = mock(StatsReader.class);
+        statsGeneration = new StatsGeneration();
+        meterRegistry = new SimpleMeterRegistry();
 
-        service = new StatisticsService(
-                userRepository, dailyRepo, weeklyRepo, monthlyRepo, yearlyRepo, mapper
-        );
+        service = new StatisticsService(userRepository, statsReader, statsGeneration, meterRegistry);
     }
 
     @Test
@@ -59,16 +62,7 @@ class StatisticsServiceTest {
         try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
             mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
 
-            var entity = mock(EmployeeDailyStatsEntity.class);
-            when(dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(1)).thenReturn(List.of(entity));
-            when(mapper.toDailyDtoList(List.of(entity))).thenReturn(List.of(mock(DailyStatsDto.class)));
-
-            when(dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(2)).thenReturn(List.of());
-
-            when(mapper.toDailyDtoList(anyList())).thenAnswer(inv -> inv.getArgument(0));
-            when(mapper.toWeeklyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toMonthlyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toYearlyDtoList(anyList())).thenReturn(List.of());
+            when(statsReader.latestDaily(100)).thenReturn(Map.of(1, List.of(mock(DailyStatsDto.class))));
 
             // Act
             StatisticsDto result = service.getStatistics();
@@ -102,19 +96,9 @@ class StatisticsServiceTest {
         try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
             mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("BOB");
 
-            var dailyEntity1 = mock(EmployeeDailyStatsEntity.class);
-            var dailyEntity2 = mock(EmployeeDailyStatsEntity.class);
-
-            when(dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(1)).thenReturn(List.of(dailyEntity1));
-            when(dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(2)).thenReturn(List.of(dailyEntity2));
-
-            when(mapper.toDailyDtoList(List.of(dailyEntity1))).thenReturn(List.of(mock(DailyStatsDto.class)));
-            when(mapper.toDailyDtoList(List.of(dailyEntity2))).thenReturn(List.of(mock(DailyStatsDto.class)));
-
-            when(mapper.toDailyDtoList(anyList())).thenAnswer(inv -> inv.getArgument(0));
-            when(mapper.toWeeklyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toMonthlyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toYearlyDtoList(anyList())).thenReturn(List.of());
+            when(statsReader.latestDaily(100)).thenReturn(Map.of(
+                    1, List.of(mock(DailyStatsDto.class)),
+                    2, List.of(mock(DailyStatsDto.class))));
 
             // Act
             StatisticsDto result = service.getStatistics();
@@ -138,11 +122,7 @@ class StatisticsServiceTest {
         try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
             mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("SOMEONE");
 
-            when(dailyRepo.findTop100ByEmployeeIdOrderByStartDayDesc(anyInt())).thenReturn(List.of());
-            when(mapper.toDailyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toWeeklyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toMonthlyDtoList(anyList())).thenReturn(List.of());
-            when(mapper.toYearlyDtoList(anyList())).thenReturn(List.of());
+            when(statsReader.latestDaily(anyInt())).thenReturn(Map.of());
 
             // Act
             StatisticsDto result = service.getStatistics();
@@ -151,4 +131,162 @@ class StatisticsServiceTest {
             assertThat(result.getEmployees()).isEmpty();
         }
     }
+
+    @Test
+    void getStatistics_readsEveryStatsTableOnceRegardlessOfHeadcount() {
+        // Arrange
+        var users = new ArrayList<UserEntity>();
+        for (int id = 1; id <= 50; id++) {
+            var user = new UserEntity();
+            user.setId(id);
+            user.setFullName("Employee " + id);
+            user.setEmployeeCode("E" + id);
+            users.add(user);
+        }
+        when(userRepository.findAll()).thenReturn(users);
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("E1");
+
+            // Act
+            service.getStatistics();
+
+            // Assert
+            verify(userRepository).findAll();
+            verify(statsReader).latestDaily(100);
+            verify(statsReader).latestWeekly(36);
+            verify(statsReader).latestMonthly(24);
+            verify(statsReader).latestYearly(5);
+            verifyNoMoreInteractions(statsReader);
+        }
+    }
+
+    @Test
+    void getStatistics_sameGeneration_servesCachedStatsWithPerRequestCurrentUser() {
+        // Arrange
+        var user1 = new UserEntity();
+        user1.setId(1);
+        user1.setFullName("Alice");
+        user1.setEmployeeCode("ALICE");
+
+        var user2 = new UserEntity();
+        user2.setId(2);
+        user2.setFullName("Bob");
+        user2.setEmployeeCode("BOB");
+
+        when(userRepository.findAll()).thenReturn(List.of(user1, user2));
+        when(statsReader.latestDaily(100)).thenReturn(Map.of(
+                1, List.of(mock(DailyStatsDto.class)),
+                2, List.of(mock(DailyStatsDto.class))));
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            // Act
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+            StatisticsDto forAlice = service.getStatistics();
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("BOB");
+            StatisticsDto forBob = service.getStatistics();
+
+            // Assert
+            assertThat(forAlice.getEmployees().get(0).getEmployeeName()).isEqualTo("Alice");
+            assertThat(forAlice.getEmployees().get(0).isCurrentUser()).isTrue();
+            assertThat(forBob.getEmployees().get(0).getEmployeeName()).isEqualTo("Bob");
+            assertThat(forBob.getEmployees()).filteredOn(e -> e.isCurrentUser()).hasSize(1);
+            verify(userRepository, times(1)).findAll();
+            verify(statsReader, times(1)).latestDaily(100);
+            assertThat(meterRegistry.counter("stats.read.cache", "result", "hit").count()).isEqualTo(1.0);
+            assertThat(meterRegistry.counter("stats.read.cache", "result", "miss").count()).isEqualTo(1.0);
+            assertThat(meterRegistry.timer("stats.read.cache.rebuild").count()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void getStatistics_generationBumped_rebuildsCache() {
+        // Arrange
+        var user1 = new UserEntity();
+        user1.setId(1);
+        user1.setFullName("Alice");
+        user1.setEmployeeCode("ALICE");
+        when(userRepository.findAll()).thenReturn(List.of(user1));
+        when(statsReader.latestDaily(100))
+                .thenReturn(Map.of())
+                .thenReturn(Map.of(1, List.of(mock(DailyStatsDto.class))));
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            StatisticsDto before = service.getStatistics();
+            statsGeneration.bump("TEST");
+            StatisticsDto after = service.getStatistics();
+
+            // Assert
+            assertThat(before.getEmployees()).isEmpty();
+            assertThat(after.getEmployees()).hasSize(1);
+            verify(statsReader, times(2)).latestDaily(100);
+        }
+    }
+
+    @Test
+    void getStatisticsQuery_readsOnlyRequestedGranularityOfRequestedEmployees() {
+        // Arrange
+        var user2 = new UserEntity();
+        user2.setId(2);
+        user2.setFullName("Bob");
+        user2.setEmployeeCode("BOB");
+        when(userRepository.findAllById(List.of(2))).thenReturn(List.of(user2));
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 6, 30);
+        var slice = new StatsSlice(List.of(2), from, to);
+        when(statsReader.latestMonthly(24, slice)).thenReturn(Map.of(2, List.of(mock(MonthlyStatsDto.class))));
+        var query = new StatisticsQuery(Set.of(StatsTable.MONTH), List.of(2), from, to, null, null);
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("ALICE");
+
+            // Act
+            StatisticsDto result = service.getStatistics(query);
+
+            // Assert
+            assertThat(result.getEmployees()).hasSize(1);
+            var bob = result.getEmployees().get(0);
+            assertThat(bob.getEmployeeName()).isEqualTo("Bob");
+            assertThat(bob.getMonthlyStats()).hasSize(1);
+            assertThat(bob.getDailyStats()).isEmpty();
+            verify(statsReader).latestMonthly(24, slice);
+            verifyNoMoreInteractions(statsReader);
+            assertThat(meterRegistry.find("stats.read.cache").counters()).allMatch(c -> c.count() == 0.0);
+        }
+    }
+
+    @Test
+    void getStatisticsQuery_pagesEmployeesCurrentUserFirstThenByName() {
+        // Arrange
+        var users = new ArrayList<UserEntity>();
+        for (String name : List.of("Dave", "Carol", "Alice", "Bob")) {
+            var user = new UserEntity();
+            user.setId(users.size() + 1);
+            user.setFullName(name);
+            user.setEmployeeCode(name.toUpperCase());
+            users.add(user);
+        }
+        when(userRepository.findAll()).thenReturn(users);
+        when(statsReader.latestDaily(eq(100), any())).thenAnswer(i -> {
+            StatsSlice slice = i.getArgument(1);
+            Map<Integer, List<DailyStatsDto>> stats = new HashMap<>();
+            slice.employeeIds().forEach(id -> stats.put(id, List.of(mock(DailyStatsDto.class))));
+            return stats;
+        });
+        var query = new StatisticsQuery(Set.of(StatsTable.DAY), null, null, null, 1, 2);
+
+        try (MockedStatic<com.example.demo.util.AuthUtil> mock = mockStatic(com.example.demo.util.AuthUtil.class)) {
+            mock.when(com.example.demo.util.AuthUtil::userFromSecurityContext).thenReturn("DAVE");
+
+            // Act
+            StatisticsDto result = service.getStatistics(query);
+
+            // Assert - page 0 is Dave (current user) and Alice
+            assertThat(result.getEmployees()).extracting(e -> e.getEmployeeName()).containsExactly("Bob", "Carol");
+            verify(statsReader).latestDaily(100, new StatsSlice(List.of(4, 2), null, null));
+        }
+    }
 }
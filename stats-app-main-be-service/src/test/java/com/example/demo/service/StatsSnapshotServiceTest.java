@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.bsn_logic_dto.StatisticsDto;
+import com.example.demo.dto.stats_dtos.DailyStatsDto;
+import com.example.demo.dto.stats_dtos.EmployeeStatsDto;
+import com.example.demo.service.stats.StatsGeneration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class StatsSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private StatisticsService statisticsService;
+    private StatsGeneration statsGeneration;
+    private StatsSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = mock(StatisticsService.class);
+        statsGeneration = new StatsGeneration();
+        service = new StatsSnapshotService(statisticsService, statsGeneration, objectMapper, directory, Duration.ofMinutes(10));
+        var daily = new DailyStatsDto(LocalDate.of(2024, 7, 10), 0.9, LocalDateTime.of(2024, 7, 11, 3, 0));
+        when(statisticsService.sharedStats()).thenReturn(List.of(
+                new EmployeeStatsDto("Alice", "ALICE", false, List.of(daily), List.of(), List.of(), List.of())));
+    }
+
+    @Test
+    void write_storesGzippedStatisticsWithoutTempFiles() throws Exception {
+        // act
+        var snapshot = service.write();
+
+        // assert
+        assertThat(snapshot.path()).isEqualTo(directory.resolve("statistics-0.json.gz"));
+        assertThat(snapshot.size()).isEqualTo(Files.size(snapshot.path()));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot.path()))) {
+            StatisticsDto stats = objectMapper.readValue(in, StatisticsDto.class);
+            assertThat(stats.getEmployees()).hasSize(1);
+            assertThat(stats.getEmployees().get(0).getEmployeeCode()).isEqualTo("ALICE");
+            assertThat(stats.getEmployees().get(0).getDailyStats().get(0).getScore()).isEqualTo(0.9);
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(snapshot.path());
+        }
+    }
+
+    @Test
+    void write_sameGeneration_keepsSnapshot() {
+        // arrange
+        var first = service.write();
+
+        // act
+        var same = service.write();
+        statsGeneration.bump("TEST");
+        var bumped = service.write();
+
+        // assert
+        assertThat(same).isSameAs(first);
+        assertThat(bumped.generation()).isGreaterThan(first.generation());
+        verify(statisticsService, times(2)).sharedStats();
+    }
+
+    @Test
+    void latest_beforeFirstRun_writesSnapshot() {
+        // act
+        var snapshot = service.latest();
+
+        // assert
+        assertThat(Files.exists(snapshot.path())).isTrue();
+        assertThat(service.latest()).isSameAs(snapshot);
+        verify(statisticsService, times(1)).sharedStats();
+    }
+
+    @Test
+    void write_newGeneration_keepsReplacedFileForReadersStillDownloadingIt() throws Exception {
+        // arrange
+        var first = service.write();
+        statsGeneration.bump("TEST");
+
+        // act
+        var second = service.write();
+
+        // assert
+        assertThat(second.path()).isNotEqualTo(first.path());
+        assertThat(Files.size(first.path())).isEqualTo(first.size());
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactlyInAnyOrder(first.path(), second.path());
+        }
+    }
+
+    @Test
+    void write_replacedOlderThanKeepTime_deletesIt() throws Exception {
+        // arrange
+        service = new StatsSnapshotService(statisticsService, statsGeneration, objectMapper, directory, Duration.ZERO);
+        service.write();
+        statsGeneration.bump("TEST");
+
+        // act
+        var second = service.write();
+
+        // assert
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(second.path());
+        }
+    }
+
+    @Test
+    void write_firstAfterRestart_deletesSnapshotsOfEarlierRuns() throws Exception {
+        // arrange
+        Path earlier = Files.writeString(directory.resolve("statistics-7.json.gz"), "old");
+        Path other = Files.writeString(directory.resolve("other.txt"), "keep");
+
+        // act
+        var snapshot = service.write();
+
+        // assert
+        assertThat(Files.exists(earlier)).isFalse();
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactlyInAnyOrder(snapshot.path(), other);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.UpdateEventDto;
+import com.example.demo.service.stats.StatsGeneration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UpdateStreamServiceTest {
+
+    private final StatsGeneration statsGeneration = new StatsGeneration();
+    private UpdateStreamService service;
+    //sends of the first subscribed client wait for it
+    private CountDownLatch firstClientSendGate;
+    private boolean firstClientCreated;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void subscribe_sendsCurrentGenerationThenPublishedEvents() throws Exception {
+        // arrange
+        service = newService(10, 16);
+        var emitter = service.subscribe("ALICE").orElseThrow();
+
+        // act
+        service.publish(UpdateEventDto.assignment(201, LocalDate.of(2024, 7, 15)));
+
+        // assert
+        verify(emitter, timeout(2000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void subscribe_limitReached_refusesClient() {
+        // arrange
+        service = newService(1, 16);
+        service.subscribe("ALICE");
+
+        // act
+        var second = service.subscribe("BOB");
+
+        // assert
+        assertThat(second).isEmpty();
+        assertThat(service.clientCount()).isEqualTo(1);
+    }
+
+    @Test
+    void publish_slowClientBufferFull_disconnectsOnlyThatClient() throws Exception {
+        // arrange
+        service = newService(10, 2);
+        firstClientSendGate = new CountDownLatch(1);
+        var slow = service.subscribe("ALICE").orElseThrow();
+        var fast = service.subscribe("BOB").orElseThrow();
+
+        // act - the slow client is stuck on its first event, the fast one keeps up
+        for (int i = 1; i <= 3; i++) {
+            service.publish(UpdateEventDto.assignments());
+            verify(fast, timeout(2000).times(i + 1)).send(any(SseEmitter.SseEventBuilder.class));
+        }
+        firstClientSendGate.countDown();
+
+        // assert
+        verify(slow, timeout(2000)).complete();
+        verify(fast, never()).complete();
+        assertThat(service.clientCount()).isEqualTo(1);
+    }
+
+    @Test
+    void statsBumps_sentOnceWithNewestGeneration() throws Exception {
+        // arrange
+        service = newService(10, 16);
+        var emitter = service.subscribe("ALICE").orElseThrow();
+        verify(emitter, timeout(2000)).send(any(SseEmitter.SseEventBuilder.class));
+
+        // act
+        statsGeneration.bump("TEST");
+        statsGeneration.bump("TEST");
+        statsGeneration.bump("TEST");
+
+        // assert - initial event + one debounced stats event
+        verify(emitter, after(300).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    private UpdateStreamService newService(int maxClients, int clientBuffer) {
+        return new UpdateStreamService(statsGeneration, maxClients, clientBuffer,
+                Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMillis(50)) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                var emitter = mock(SseEmitter.class);
+                if (!firstClientCreated && firstClientSendGate != null) {
+                    try {
+                        doAnswer(i -> firstClientSendGate.await(5, TimeUnit.SECONDS))
+                                .when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                firstClientCreated = true;
+                return emitter;
+            }
+        };
+    }
+}
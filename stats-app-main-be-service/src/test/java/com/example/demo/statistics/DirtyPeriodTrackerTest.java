@@ -0,0 +1,123 @@
+package com.example.demo.statistics;
+
+import com.example.demo.entity.stats.StatsWatermarkEntity;
+import com.example.demo.repository.stats.StatsWatermarkRepository;
+import com.example.demo.service.stats.DirtyPeriodTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DirtyPeriodTrackerTest {
+
+    private static final LocalDate DAY_A = LocalDate.of(2024, 7, 10);
+    private static final LocalDate DAY_B = LocalDate.of(2024, 7, 11);
+    private static final LocalDate DAY_C = LocalDate.of(2024, 7, 12);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StatsWatermarkRepository watermarkRepository = mock(StatsWatermarkRepository.class);
+    private final DirtyPeriodTracker tracker = new DirtyPeriodTracker(jdbcTemplate, watermarkRepository, 5);
+
+    @Test
+    void collectChanges_lowerIdCommittedLate_isPickedUpFromLookBackWindow() throws Exception {
+        // arrange - first run sees 11 and 13, id 12 commits only after it
+        stubWatermark(10);
+        stubActivityChanges(List.of(new Object[]{11, DAY_A}, new Object[]{13, DAY_B}));
+        var first = tracker.collectChanges();
+        tracker.commit(first);
+        stubWatermark(13);
+        stubActivityChanges(List.of(new Object[]{11, DAY_A}, new Object[]{12, DAY_C}, new Object[]{13, DAY_B}));
+
+        // act
+        var second = tracker.collectChanges();
+
+        // assert
+        assertThat(first.periods().days()).containsExactlyInAnyOrder(DAY_A, DAY_B);
+        assertThat(first.zmianyWatermark()).isEqualTo(13);
+        assertThat(second.periods().days()).containsExactly(DAY_C);
+        assertThat(second.zmianyWatermark()).isEqualTo(13);
+        assertThat(second.activityChangeIds()).containsExactly(12);
+        //the window starts 5 ids below the watermark
+        verify(jdbcTemplate).query(contains("FROM ZMIANY_ZAJ z"), any(RowCallbackHandler.class), eq(8));
+    }
+
+    @Test
+    void collectChanges_notCommittedRun_readsSameIdsAgain() throws Exception {
+        // arrange
+        stubWatermark(10);
+        stubActivityChanges(List.<Object[]>of(new Object[]{11, DAY_A}));
+        tracker.collectChanges();
+
+        // act - the previous run failed before commit
+        var retry = tracker.collectChanges();
+
+        // assert
+        assertThat(retry.periods().days()).containsExactly(DAY_A);
+    }
+
+    @Test
+    void currentPosition_readsMaxIdsAndLookBackWindow() {
+        // arrange
+        when(jdbcTemplate.queryForObject(contains("MAX(ZMIANY_ZAB_ID)"), eq(Integer.class))).thenReturn(40);
+        when(jdbcTemplate.queryForObject(contains("MAX(id)"), eq(Integer.class))).thenReturn(7);
+        when(jdbcTemplate.queryForList(contains("FROM ZMIANY_ZAJ"), eq(Integer.class), eq(35), eq(40)))
+                .thenReturn(List.of(36, 40));
+        when(jdbcTemplate.queryForList(contains("FROM stats_dirty_range"), eq(Integer.class), eq(2), eq(7)))
+                .thenReturn(List.of(7));
+
+        // act
+        var position = tracker.currentPosition();
+
+        // assert
+        assertThat(position.zmianyWatermark()).isEqualTo(40);
+        assertThat(position.dirtyRangeWatermark()).isEqualTo(7);
+        assertThat(position.activityChangeIds()).containsExactlyInAnyOrder(36, 40);
+        assertThat(position.dirtyRangeIds()).containsExactly(7);
+        assertThat(position.periods().days()).isEmpty();
+    }
+
+    @Test
+    void currentPosition_noLookBack_stillMovesWatermarksToMaxIds() {
+        // arrange
+        var noLookBack = new DirtyPeriodTracker(jdbcTemplate, watermarkRepository, 0);
+        when(jdbcTemplate.queryForObject(contains("MAX(ZMIANY_ZAB_ID)"), eq(Integer.class))).thenReturn(40);
+        when(jdbcTemplate.queryForObject(contains("MAX(id)"), eq(Integer.class))).thenReturn(7);
+
+        // act
+        var position = noLookBack.currentPosition();
+
+        // assert
+        assertThat(position.zmianyWatermark()).isEqualTo(40);
+        assertThat(position.dirtyRangeWatermark()).isEqualTo(7);
+        assertThat(position.activityChangeIds()).isEmpty();
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Integer.class), any(Object[].class));
+    }
+
+    private void stubWatermark(int value) {
+        when(watermarkRepository.findById(anyString()))
+                .thenReturn(Optional.of(new StatsWatermarkEntity("any", value, LocalDateTime.now())));
+    }
+
+    private void stubActivityChanges(List<Object[]> rows) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt(1)).thenReturn((Integer) row[0]);
+                when(rs.getTimestamp(2)).thenReturn(Timestamp.valueOf(((LocalDate) row[1]).atStartOfDay()));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM ZMIANY_ZAJ z"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+}
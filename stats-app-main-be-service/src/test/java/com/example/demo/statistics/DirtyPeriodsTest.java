@@ -0,0 +1,72 @@
+package com.example.demo.statistics;
+
+import com.example.demo.service.stats.DirtyPeriods;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirtyPeriodsTest {
+
+    @Test
+    void of_groupsDaysIntoWeeksMonthsAndYears() {
+        // act
+        var periods = DirtyPeriods.of(List.of(
+                LocalDate.of(2024, 12, 31),
+                LocalDate.of(2025, 1, 2),
+                LocalDate.of(2025, 1, 2)
+        ));
+
+        // assert
+        assertThat(periods.days()).containsExactly(LocalDate.of(2024, 12, 31), LocalDate.of(2025, 1, 2));
+        assertThat(periods.weeks()).containsExactly(LocalDate.of(2024, 12, 30));
+        assertThat(periods.months()).containsExactly(YearMonth.of(2024, 12), YearMonth.of(2025, 1));
+        assertThat(periods.years()).containsExactly(Year.of(2024), Year.of(2025));
+    }
+
+    @Test
+    void within_dropsPeriodsOutsideSchedulerRange() {
+        // arrange
+        var periods = DirtyPeriods.of(List.of(
+                LocalDate.of(2021, 3, 1),
+                LocalDate.of(2022, 3, 9),
+                LocalDate.of(2025, 3, 12),
+                LocalDate.of(2025, 4, 1)
+        ));
+
+        // act
+        var result = periods.within(LocalDate.of(2022, 3, 10), LocalDate.of(2025, 3, 12));
+
+        // assert
+        assertThat(result.days()).containsExactly(LocalDate.of(2025, 3, 12));
+        assertThat(result.weeks()).containsExactly(LocalDate.of(2022, 3, 7), LocalDate.of(2025, 3, 10));
+        assertThat(result.months()).containsExactly(YearMonth.of(2022, 3), YearMonth.of(2025, 3));
+        assertThat(result.years()).containsExactly(Year.of(2022), Year.of(2025));
+    }
+
+    @Test
+    void partialsOnlyDays_keepsDaysOfCalculatedPeriodsOutsideDailyRange() {
+        // arrange
+        var periods = DirtyPeriods.of(List.of(
+                LocalDate.of(2021, 12, 31),
+                LocalDate.of(2022, 1, 5),
+                LocalDate.of(2022, 3, 9),
+                LocalDate.of(2025, 3, 12),
+                LocalDate.of(2025, 11, 20),
+                LocalDate.of(2026, 1, 2)
+        ));
+
+        // act
+        var result = periods.partialsOnlyDays(LocalDate.of(2022, 3, 10), LocalDate.of(2025, 3, 12));
+
+        // assert
+        assertThat(result).containsExactly(
+                LocalDate.of(2022, 1, 5),
+                LocalDate.of(2022, 3, 9),
+                LocalDate.of(2025, 11, 20));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.statistics;
+
+import com.example.demo.entity.*;
+import com.example.demo.service.stats.AssignmentColumns;
+import com.example.demo.service.stats.EmployeeScoreEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.createActivityEmployees;
+import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.toColumns;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class EmployeeScoreEngineTest {
+
+    private final EmployeeScoreEngine engine = new EmployeeScoreEngine();
+
+    @Test
+    void computePartials_fixture_matchesExpectedScores() {
+        // act
+        Map<Integer, Double> scores = scores(createActivityEmployees());
+
+        // assert
+        assertThat(scores).containsExactlyInAnyOrderEntriesOf(Map.of(
+                1, 0.9375,
+                2, 0.8666666666666667,
+                3, 0.9130434782608695,
+                4, 0.8
+        ));
+    }
+
+    @Test
+    void computePartials_randomAssignments_matchesPreviousQuadraticImplementation() {
+        for (long seed = 1; seed <= 20; seed++) {
+            // arrange
+            List<ActivityEmployeeEntity> assignments = randomAssignments(new Random(seed));
+
+            // act
+            Map<Integer, Double> scores = scores(assignments);
+            Map<Integer, Double> expected = previousImplementationScores(assignments);
+
+            // assert
+            assertThat(scores.keySet()).isEqualTo(expected.keySet());
+            expected.forEach((empId, score) ->
+                    assertThat(scores.get(empId)).isCloseTo(score, within(1e-9)));
+        }
+    }
+
+    @Test
+    void computePartials_noAssignments_returnsEmptyMap() {
+        assertThat(engine.computePartials(new AssignmentColumns())).isEmpty();
+    }
+
+    @Test
+    void computePartials_countsSharedScheduleOnlyOnce() {
+        // arrange
+        var assignments = new AssignmentColumns();
+        assignments.add(0, 1, 1, "S", 30, 100, 120);
+        assignments.add(0, 2, 1, "S", 30, 100, 120);
+
+        // act
+        var partials = engine.computePartials(assignments).get(1);
+
+        // assert
+        assertThat(partials.numerator()).isEqualTo(60.0);
+        assertThat(partials.denominator()).isEqualTo(120.0);
+        assertThat(partials.score()).isEqualTo(0.5);
+    }
+
+    @Test
+    void computePartials_columnSlice_scoresOnlyRowsOfThatSlice() {
+        // arrange - activity 1 shared by two employees on day 10, activity 2 alone on day 11
+        var columns = new AssignmentColumns(1);
+        columns.add(10, 1, 1, "f", 60, 100, 480);
+        columns.add(10, 1, 2, "F", 60, 200, 240);
+        columns.add(11, 2, 1, "F", 60, 101, 480);
+
+        // act
+        var firstDay = engine.computePartials(columns, 0, 2);
+        var secondDay = engine.computePartials(columns, 2, 3);
+
+        // assert
+        assertThat(firstDay.get(1).numerator()).isEqualTo(30.0);
+        assertThat(firstDay.get(2).denominator()).isEqualTo(240.0);
+        assertThat(secondDay).containsOnlyKeys(1);
+        assertThat(secondDay.get(1).numerator()).isEqualTo(60.0);
+        assertThat(secondDay.get(1).denominator()).isEqualTo(480.0);
+    }
+
+    private Map<Integer, Double> scores(List<ActivityEmployeeEntity> assignments) {
+        Map<Integer, Double> scores = new HashMap<>();
+        engine.computePartials(toColumns(assignments)).forEach((empId, partials) -> scores.put(empId, partials.score()));
+        return scores;
+    }
+
+    // Reference: scoring as it was done before the assignee-count index was introduced
+    private static Map<Integer, Double> previousImplementationScores(List<ActivityEmployeeEntity> all) {
+        return all.stream()
+                .collect(Collectors.groupingBy(ae -> ae.getEmployee().getId()))
+                .entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> {
+                    double numerator = e.getValue().stream()
+                            .mapToDouble(ae -> previousNumerator(ae, all))
+                            .sum();
+                    double denominator = e.getValue().stream()
+                            .map(ActivityEmployeeEntity::getWorkSchedule)
+                            .filter(Objects::nonNull)
+                            .filter(ws -> ws.getId() != null)
+                            .distinct()
+                            .mapToDouble(ws -> Optional.ofNullable(ws.getWorkDurationMinutes()).orElse(0))
+                            .sum();
+                    return denominator > 0 ? numerator / denominator : 0.0;
+                }));
+    }
+
+    private static double previousNumerator(ActivityEmployeeEntity current, List<ActivityEmployeeEntity> all) {
+        ProcedureEntity proc = current.getActivity().getProcedure();
+        String workMode = proc.getWorkMode();
+        Integer procedureMinutes = proc.getProcedureActualTime();
+        long assignees = all.stream()
+                .filter(ae -> ae.getActivity().getActivityId().equals(current.getActivity().getActivityId()))
+                .count();
+        if ("F".equalsIgnoreCase(workMode) || "B".equalsIgnoreCase(workMode)) {
+            return procedureMinutes != null && assignees > 0 ? (double) procedureMinutes / assignees : 0.0;
+        } else if ("S".equalsIgnoreCase(workMode)) {
+            return procedureMinutes != null ? procedureMinutes : 0.0;
+        } else if ("U".equalsIgnoreCase(workMode)) {
+            return 1.0;
+        }
+        return 0.0;
+    }
+
+    // Helper Methods
+    private static List<ActivityEmployeeEntity> randomAssignments(Random random) {
+        String[] modes = {"F", "B", "S", "U", "f", "X"};
+        var employees = new ArrayList<UserEntity>();
+        for (int i = 1; i <= 12; i++) {
+            employees.add(UserEntity.builder().id(i).build());
+        }
+        var schedules = new ArrayList<WorkSchedule>();
+        for (int i = 0; i < 30; i++) {
+            schedules.add(WorkSchedule.builder()
+                    .id(random.nextInt(10) == 0 ? null : 1000 + i)
+                    .workDurationMinutes(random.nextInt(10) == 0 ? null : 30 + random.nextInt(450))
+                    .build());
+        }
+
+        var assignments = new ArrayList<ActivityEmployeeEntity>();
+        for (int activityId = 1; activityId <= 150; activityId++) {
+            var procedure = ProcedureEntity.builder()
+                    .workMode(modes[random.nextInt(modes.length)])
+                    .procedureActualTime(random.nextInt(15) == 0 ? null : 5 + random.nextInt(120))
+                    .build();
+            var activity = ActivityEntity.builder().activityId(activityId).procedure(procedure).build();
+            int assignees = 1 + random.nextInt(4);
+            for (int i = 0; i < assignees; i++) {
+                var schedule = random.nextInt(8) == 0 ? null : schedules.get(random.nextInt(schedules.size()));
+                assignments.add(assignment(activity, employees.get(random.nextInt(employees.size())), schedule));
+            }
+        }
+        Collections.shuffle(assignments, random);
+        return assignments;
+    }
+
+    private static ActivityEmployeeEntity assignment(ActivityEntity activity, UserEntity employee, WorkSchedule ws) {
+        return ActivityEmployeeEntity.builder()
+                .activity(activity)
+                .employee(employee)
+                .workSchedule(ws)
+                .build();
+    }
+}
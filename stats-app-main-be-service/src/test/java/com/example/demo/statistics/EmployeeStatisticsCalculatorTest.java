@@ -1,16 +1,15 @@
 package com.example.demo.statistics;
 
 import com.example.demo.entity.ActivityEmployeeEntity;
-import com.example.demo.entity.stats.EmployeeDailyStatsEntity;
-import com.example.demo.entity.stats.EmployeeMonthlyStatsEntity;
-import com.example.demo.entity.stats.EmployeeWeeklyStatsEntity;
-import com.example.demo.entity.stats.EmployeeYearlyStatsEntity;
-import com.example.demo.repository.ActivityEmployeeRepository;
-import com.example.demo.repository.stats.DailyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.MonthlyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.WeeklyEmployeeStatisticRepository;
-import com.example.demo.repository.stats.YearlyEmployeeStatisticRepository;
+import com.example.demo.repository.stats.DailyEmployeePartialsRepository;
 import com.example.demo.service.EmployeeStatisticsCalculator;
+import com.example.demo.service.stats.AssignmentColumnsLoader;
+import com.example.demo.service.stats.EmployeePartialsSum;
+import com.example.demo.service.stats.EmployeeScoreEngine;
+import com.example.demo.service.stats.JvmScoreCalculationStrategy;
+import com.example.demo.service.stats.ScorePartials;
+import com.example.demo.service.stats.StatsTable;
+import com.example.demo.service.stats.StatsWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,11 +24,15 @@ import java.time.Year;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.createActivityEmployees;
+import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.toColumns;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -38,24 +41,16 @@ import static org.mockito.Mockito.*;
 class EmployeeStatisticsCalculatorTest {
 
     @Mock
-    ActivityEmployeeRepository activityRepo;
+    AssignmentColumnsLoader columnsLoader;
     @Mock
-    DailyEmployeeStatisticRepository dailyRepo;
+    DailyEmployeePartialsRepository partialsRepo;
     @Mock
-    WeeklyEmployeeStatisticRepository weeklyRepo;
-    @Mock
-    MonthlyEmployeeStatisticRepository monthlyRepo;
-    @Mock
-    YearlyEmployeeStatisticRepository yearlyRepo;
+    StatsWriter statsWriter;
 
     @Captor
-    ArgumentCaptor<EmployeeDailyStatsEntity> statsCaptor;
-    @Captor
-    ArgumentCaptor<EmployeeWeeklyStatsEntity> weeklyStatsCaptor;
+    ArgumentCaptor<Map<Integer, Double>> scoresCaptor;
     @Captor
-    ArgumentCaptor<EmployeeMonthlyStatsEntity> monthlyStatsCaptor;
-    @Captor
-    ArgumentCaptor<EmployeeYearlyStatsEntity> yearlyStatsCaptor;
+    ArgumentCaptor<Map<LocalDate, Map<Integer, ScorePartials>>> partialsCaptor;
 
     EmployeeStatisticsCalculator statisticsCalculator;
 
@@ -74,56 +69,116 @@ class EmployeeStatisticsCalculatorTest {
 
     @BeforeEach
     void setUp() {
-        statisticsCalculator = new EmployeeStatisticsCalculator(activityRepo, dailyRepo, weeklyRepo, monthlyRepo, yearlyRepo);
-        when(activityRepo.findWithGraphByActivityDate(any(), any())).thenReturn(activityEmployees);
+        statisticsCalculator = new EmployeeStatisticsCalculator(
+                new JvmScoreCalculationStrategy(columnsLoader, new EmployeeScoreEngine()), partialsRepo, statsWriter);
+        lenient().when(statsWriter.writeScores(any(), any(), any())).thenReturn(new StatsWriter.WriteResult(0, 0, 0));
+        lenient().when(statsWriter.replacePartials(any(), any(), any())).thenReturn(new StatsWriter.WriteResult(0, 0, 0));
     }
 
     @Test
     void calculateDailyScores() {
+        when(columnsLoader.load(any(), any())).thenReturn(toColumns(activityEmployees));
+
+        var result = statisticsCalculator.calculateDailyScores(testDate);
+
+        verify(statsWriter).writeScores(eq(StatsTable.DAY), eq(testDate), scoresCaptor.capture());
+        assertScores(scoresCaptor.getValue());
+        assertEquals(expectedScores, result);
+    }
+
+    @Test
+    void calculateDailyScores_replacesDailyPartials() {
+        when(columnsLoader.load(any(), any())).thenReturn(toColumns(activityEmployees));
+
         statisticsCalculator.calculateDailyScores(testDate);
 
-        verify(dailyRepo, atLeastOnce()).save(statsCaptor.capture());
-        var savedEntities = statsCaptor.getAllValues();
-        assertThat(savedEntities).isNotEmpty();
+        verify(statsWriter).replacePartials(eq(testDate), eq(testDate), partialsCaptor.capture());
+        assertThat(partialsCaptor.getValue()).containsOnlyKeys(testDate);
+        assertScores(partialsCaptor.getValue().get(testDate).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().score())));
+    }
 
-        savedEntities.forEach(entity -> assertStats(entity.getEmployeeId(), entity.getScore(), expectedScores.get(entity.getEmployeeId()), entity.getStartDay(), testDate, entity.getUpdatedAt()));
+    @Test
+    void refreshDailyPartials_groupsAssignmentsByActivityDay() {
+        // arrange
+        LocalDate nextDay = testDate.plusDays(1);
+        var firstDay = createActivityEmployees();
+        var secondDay = createActivityEmployees();
+        firstDay.forEach(ae -> ae.getActivity().setActivityDate(testDate.atTime(9, 0)));
+        secondDay.forEach(ae -> ae.getActivity().setActivityDate(nextDay.atTime(9, 0)));
+        when(columnsLoader.load(testDate.atStartOfDay(), nextDay.plusDays(1).atStartOfDay()))
+                .thenReturn(toColumns(Stream.concat(firstDay.stream(), secondDay.stream()).toList()));
+
+        // act
+        statisticsCalculator.refreshDailyPartials(testDate, nextDay);
+
+        // assert
+        verify(statsWriter).replacePartials(eq(testDate), eq(nextDay), partialsCaptor.capture());
+        assertThat(partialsCaptor.getValue()).containsOnlyKeys(testDate, nextDay);
+        assertThat(partialsCaptor.getValue().get(nextDay)).hasSize(expectedScores.size());
+        verify(statsWriter, never()).writeScores(any(), any(), any());
     }
 
     @Test
-    void calculateWeeklyScores() {
+    void calculateWeeklyScores_sumsDailyPartials() {
+        // arrange
+        when(partialsRepo.sumByEmployeeBetween(monday, monday.plusWeeks(1))).thenReturn(List.of(
+                new EmployeePartialsSum(1, 30.0 + 60.0, 100.0 + 50.0),
+                new EmployeePartialsSum(2, 0.0, 0.0)
+        ));
+
+        // act
         statisticsCalculator.calculateWeeklyScores(monday);
 
-        verify(weeklyRepo, atLeastOnce()).save(weeklyStatsCaptor.capture());
-        var savedEntities = weeklyStatsCaptor.getAllValues();
+        // assert
+        verify(statsWriter).writeScores(eq(StatsTable.WEEK), eq(monday), scoresCaptor.capture());
+        assertThat(scoresCaptor.getValue()).containsExactlyInAnyOrderEntriesOf(Map.of(1, 0.6, 2, 0.0));
+        verifyNoInteractions(columnsLoader);
+    }
+
+    @Test
+    void calculateWeeklyScores() {
+        stubPartialsSumOfFixture();
 
-        savedEntities.forEach(entity -> assertStats(entity.getEmployeeId(), entity.getScore(), expectedScores.get(entity.getEmployeeId()), entity.getWeekStart(), monday, entity.getUpdatedAt()));
+        statisticsCalculator.calculateWeeklyScores(monday);
+
+        verify(statsWriter).writeScores(eq(StatsTable.WEEK), eq(monday), scoresCaptor.capture());
+        assertScores(scoresCaptor.getValue());
     }
 
     @Test
     void calculateMonthlyScores() {
-        statisticsCalculator.calculateMonthlyScores(testMonth);
+        stubPartialsSumOfFixture();
 
-        verify(monthlyRepo, atLeastOnce()).save(monthlyStatsCaptor.capture());
-        var savedEntities = monthlyStatsCaptor.getAllValues();
+        statisticsCalculator.calculateMonthlyScores(testMonth);
 
-        savedEntities.forEach(entity -> assertStats(entity.getEmployeeId(), entity.getScore(), expectedScores.get(entity.getEmployeeId()), entity.getMonth(), testMonth.toString(), entity.getUpdatedAt()));
+        verify(statsWriter).writeScores(eq(StatsTable.MONTH), eq(testMonth.toString()), scoresCaptor.capture());
+        assertScores(scoresCaptor.getValue());
     }
 
     @Test
     void calculateYearlyScores() {
+        stubPartialsSumOfFixture();
+
         statisticsCalculator.calculateYearlyScores(Year.of(testYear));
 
-        verify(yearlyRepo, atLeastOnce()).save(yearlyStatsCaptor.capture());
-        var savedEntities = yearlyStatsCaptor.getAllValues();
+        verify(statsWriter).writeScores(eq(StatsTable.YEAR), eq(testYear), scoresCaptor.capture());
+        assertScores(scoresCaptor.getValue());
+    }
 
-        savedEntities.forEach(entity -> assertStats(entity.getEmployeeId(), entity.getScore(), expectedScores.get(entity.getEmployeeId()), entity.getYear(), testYear, entity.getUpdatedAt()));
+    private void stubPartialsSumOfFixture() {
+        var sums = new EmployeeScoreEngine().computePartials(toColumns(activityEmployees)).entrySet().stream()
+                .map(e -> new EmployeePartialsSum(e.getKey(), e.getValue().numerator(), e.getValue().denominator()))
+                .toList();
+        when(partialsRepo.sumByEmployeeBetween(any(), any())).thenReturn(sums);
     }
 
     //    common assertions
-    private <T> void assertStats(int empId, double actual, double expected, T actualPeriod, T expectedPeriod, Object updatedAt) {
-        assertTrue(expectedScores.containsKey(empId), "Unexpected employeeId: " + empId);
-        assertEquals(expected, actual);
-        assertEquals(expectedPeriod, actualPeriod);
-        assertNotNull(updatedAt);
+    private void assertScores(Map<Integer, Double> actualScores) {
+        assertThat(actualScores).isNotEmpty();
+        actualScores.forEach((empId, actual) -> {
+            assertTrue(expectedScores.containsKey(empId), "Unexpected employeeId: " + empId);
+            assertEquals(expectedScores.get(empId), actual);
+        });
     }
 }
@@ -1,6 +1,7 @@
 package com.example.demo.statistics;
 
 import com.example.demo.entity.*;
+import com.example.demo.service.stats.AssignmentColumns;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -134,4 +135,22 @@ public class EmployeeStatisticsCalculatorTestHelper {
                 .build());
         return assignments;
     }
+
+    //Columns of the entity fixtures, as AssignmentColumnsLoader would read them
+    static AssignmentColumns toColumns(List<ActivityEmployeeEntity> assignments) {
+        var columns = new AssignmentColumns(assignments.size());
+        for (ActivityEmployeeEntity assignment : assignments) {
+            ActivityEntity activity = assignment.getActivity();
+            WorkSchedule ws = assignment.getWorkSchedule();
+            columns.add(
+                    activity.getActivityDate() != null ? (int) activity.getActivityDate().toLocalDate().toEpochDay() : 0,
+                    activity.getActivityId(),
+                    assignment.getEmployee().getId(),
+                    activity.getProcedure().getWorkMode(),
+                    activity.getProcedure().getProcedureActualTime(),
+                    ws != null ? ws.getId() : null,
+                    ws != null ? ws.getWorkDurationMinutes() : null);
+        }
+        return columns;
+    }
 }
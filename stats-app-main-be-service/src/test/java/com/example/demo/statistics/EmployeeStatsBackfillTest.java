@@ -0,0 +1,183 @@
+package com.example.demo.statistics;
+
+import com.example.demo.entity.ActivityEmployeeEntity;
+import com.example.demo.service.EmployeeStatsBackfill;
+import com.example.demo.service.stats.EmployeeScoreEngine;
+import com.example.demo.service.stats.ScorePartials;
+import com.example.demo.service.stats.StatsTable;
+import com.example.demo.service.stats.StatsWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.createActivityEmployees;
+import static com.example.demo.statistics.EmployeeStatisticsCalculatorTestHelper.toColumns;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmployeeStatsBackfillTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StatsWriter statsWriter = mock(StatsWriter.class);
+    private final EmployeeScoreEngine scoreEngine = new EmployeeScoreEngine();
+    private final EmployeeStatsBackfill backfill = new EmployeeStatsBackfill(jdbcTemplate, scoreEngine, statsWriter, 100);
+
+    // Wednesday and Thursday of the same week
+    private final LocalDate day1 = LocalDate.of(2024, 7, 10);
+    private final LocalDate day2 = LocalDate.of(2024, 7, 11);
+    private final List<ActivityEmployeeEntity> day1Assignments = createActivityEmployees();
+    private final List<ActivityEmployeeEntity> day2Assignments = createActivityEmployees();
+    private final AtomicInteger rowIndex = new AtomicInteger();
+    private ResultSet storedResultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        day1Assignments.forEach(ae -> rows.add(toRow(day1, ae)));
+        day2Assignments.forEach(ae -> rows.add(toRow(day2, ae)));
+        stubResultSet(rows);
+    }
+
+    @Test
+    void recalculate_writesDailyScoresAndPartialsForEveryDay() {
+        // act
+        backfill.recalculate(LocalDate.of(2021, 7, 11), day2);
+
+        // assert
+        Map<Integer, Double> expected = scoresOf(scoreEngine.computePartials(toColumns(day1Assignments)));
+        verify(statsWriter).writeScores(StatsTable.DAY, day1, expected);
+        verify(statsWriter).writeScores(StatsTable.DAY, day2, expected);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<LocalDate, Map<Integer, ScorePartials>>> partials = ArgumentCaptor.forClass(Map.class);
+        verify(statsWriter).writePartials(partials.capture());
+        assertThat(partials.getValue()).containsOnlyKeys(day1, day2);
+    }
+
+    @Test
+    void recalculate_sumsDaysIntoWeekMonthAndYear() {
+        // arrange
+        Map<Integer, ScorePartials> dayPartials = scoreEngine.computePartials(toColumns(day1Assignments));
+
+        // act
+        backfill.recalculate(LocalDate.of(2021, 7, 11), day2);
+
+        // assert - two identical days give the same ratio as one
+        for (StatsTable table : List.of(StatsTable.WEEK, StatsTable.MONTH, StatsTable.YEAR)) {
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Map<Integer, Double>> scores = ArgumentCaptor.forClass(Map.class);
+            verify(statsWriter).writeScores(eq(table), any(), scores.capture());
+            dayPartials.forEach((empId, p) ->
+                    assertThat(scores.getValue().get(empId)).isCloseTo(p.score(), within(1e-12)));
+        }
+        verify(statsWriter).writeScores(StatsTable.WEEK, LocalDate.of(2024, 7, 8), scoresOf(dayPartials));
+        verify(statsWriter).writeScores(eq(StatsTable.MONTH), eq("2024-07"), anyMap());
+        verify(statsWriter).writeScores(eq(StatsTable.YEAR), eq(2024), anyMap());
+    }
+
+    @Test
+    void recalculate_daysOutsideDailyRange_onlyFeedPeriods() {
+        // act - day2 is "tomorrow"
+        backfill.recalculate(LocalDate.of(2021, 7, 11), day1);
+
+        // assert
+        verify(statsWriter).writeScores(eq(StatsTable.DAY), eq(day1), anyMap());
+        verify(statsWriter, never()).writeScores(eq(StatsTable.DAY), eq(day2), anyMap());
+        verify(statsWriter).writeScores(eq(StatsTable.WEEK), eq(LocalDate.of(2024, 7, 8)), anyMap());
+    }
+
+    @Test
+    void recalculate_deletesOlderPartialsOfScanRangeAfterWritingNewOnes() {
+        // act
+        backfill.recalculate(LocalDate.of(2021, 7, 11), day2);
+
+        // assert - oldest year starts Jan 1st 2021, newest ends Dec 31st 2024
+        InOrder inOrder = inOrder(statsWriter, jdbcTemplate);
+        inOrder.verify(statsWriter).writePartials(anyMap());
+        inOrder.verify(jdbcTemplate).update(contains("DELETE FROM emp_day_partials"),
+                eq(Timestamp.valueOf("2021-01-01 00:00:00")), eq(Timestamp.valueOf("2024-12-31 00:00:00")),
+                any(Timestamp.class));
+    }
+
+    @Test
+    void recalculate_scanFailsMidway_keepsStoredPartials() throws Exception {
+        // arrange - the cursor breaks while reading day2
+        List<Object[]> rows = new ArrayList<>();
+        day1Assignments.forEach(ae -> rows.add(toRow(day1, ae)));
+        rows.add(toRow(day2, day2Assignments.get(0)));
+        stubResultSet(rows);
+        ResultSet failingRow = mock(ResultSet.class);
+        when(failingRow.getTimestamp(1)).thenThrow(new SQLException("connection reset"));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = storedResultSet;
+            for (int i = 0; i < rows.size(); i++) {
+                rowIndex.set(i);
+                handler.processRow(rs);
+            }
+            handler.processRow(failingRow);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        // act & assert
+        assertThatThrownBy(() -> backfill.recalculate(LocalDate.of(2021, 7, 11), day2))
+                .isInstanceOf(SQLException.class);
+        verify(jdbcTemplate, never()).update(contains("DELETE FROM emp_day_partials"), any(Object[].class));
+        verify(statsWriter, never()).writePartials(anyMap());
+    }
+
+    private static Map<Integer, Double> scoresOf(Map<Integer, ScorePartials> partials) {
+        Map<Integer, Double> scores = new HashMap<>();
+        partials.forEach((empId, p) -> scores.put(empId, p.score()));
+        return scores;
+    }
+
+    private static Object[] toRow(LocalDate day, ActivityEmployeeEntity ae) {
+        var ws = ae.getWorkSchedule();
+        return new Object[]{
+                Timestamp.valueOf(day.atTime(9, 0)),
+                ae.getActivity().getActivityId() + (day.getDayOfMonth() * 1000),
+                ae.getEmployee().getId(),
+                ae.getActivity().getProcedure().getWorkMode(),
+                ae.getActivity().getProcedure().getProcedureActualTime(),
+                ws == null ? null : ws.getId() + (day.getDayOfMonth() * 1000),
+                ws == null ? null : ws.getWorkDurationMinutes()
+        };
+    }
+
+    private void stubResultSet(List<Object[]> rows) throws Exception {
+        var index = rowIndex;
+        ResultSet rs = mock(ResultSet.class);
+        storedResultSet = rs;
+        when(rs.getTimestamp(1)).thenAnswer(i -> rows.get(index.get())[0]);
+        when(rs.getInt(anyInt())).thenAnswer(i -> (Integer) rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getString(4)).thenAnswer(i -> rows.get(index.get())[3]);
+        when(rs.getObject(anyInt(), eq(Integer.class))).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < rows.size(); i++) {
+                index.set(i);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.statistics;
+
+import com.example.demo.service.stats.PeriodRecomputeRunner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PeriodRecomputeRunnerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void runPhase_sequential_runsTasksInOrderOnCallingThread() {
+        // arrange
+        var runner = new PeriodRecomputeRunner("sequential", 4, 10, meterRegistry);
+        var order = new ArrayList<Integer>();
+        var threads = ConcurrentHashMap.<String>newKeySet();
+
+        // act
+        runner.runPhase("days", List.of(
+                () -> { order.add(1); threads.add(Thread.currentThread().getName()); },
+                () -> { order.add(2); threads.add(Thread.currentThread().getName()); }
+        ));
+
+        // assert
+        assertThat(order).containsExactly(1, 2);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void runPhase_parallel_limitsConcurrentTasksBelowPoolSize() {
+        // arrange - 6 workers, but pool of 4 connections leaves only 2 permits
+        var runner = new PeriodRecomputeRunner("parallel", 6, 4, meterRegistry);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var done = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                done.incrementAndGet();
+            });
+        }
+
+        // act
+        runner.runPhase("periods", tasks);
+
+        // assert
+        assertThat(done.get()).isEqualTo(30);
+        assertThat(maxRunning.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void runPhase_parallel_failingTask_rethrowsAfterAllTasksFinished() {
+        // arrange
+        var runner = new PeriodRecomputeRunner("parallel", 3, 10, meterRegistry);
+        var done = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            tasks.add(() -> {
+                if (n == 3) throw new IllegalStateException("boom");
+                done.incrementAndGet();
+            });
+        }
+
+        // act & assert
+        assertThatThrownBy(() -> runner.runPhase("days", tasks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+        assertThat(done.get()).isEqualTo(9);
+    }
+
+    @Test
+    void timed_recordsPassDurationTaggedWithMode() {
+        // arrange
+        var runner = new PeriodRecomputeRunner("parallel", 2, 10, meterRegistry);
+
+        // act
+        runner.timed("full", () -> sleep(2));
+
+        // assert
+        var timer = meterRegistry.find("stats.recompute").tags("kind", "full", "mode", "parallel").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
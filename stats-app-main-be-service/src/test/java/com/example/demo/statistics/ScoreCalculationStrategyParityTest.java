@@ -0,0 +1,56 @@
+package com.example.demo.statistics;
+
+import com.example.demo.service.stats.AssignmentColumnsLoader;
+import com.example.demo.service.stats.DatabaseScoreCalculationStrategy;
+import com.example.demo.service.stats.EmployeeScoreEngine;
+import com.example.demo.service.stats.JvmScoreCalculationStrategy;
+import com.example.demo.service.stats.ScorePartials;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/*  Compares both score strategies on a real Firebird database, e.g.:
+    mvn test -Dtest=ScoreCalculationStrategyParityTest -Dstats.parity.jdbc-url=jdbc:firebirdsql://localhost:3050//db/baza.fdb
+    Optional: -Dstats.parity.user, -Dstats.parity.password, -Dstats.parity.from, -Dstats.parity.to (yyyy-MM-dd)  */
+@EnabledIfSystemProperty(named = "stats.parity.jdbc-url", matches = ".+")
+class ScoreCalculationStrategyParityTest {
+
+    @Test
+    void databaseStrategy_matchesJvmStrategy() {
+        // arrange
+        var dataSource = new DriverManagerDataSource(
+                System.getProperty("stats.parity.jdbc-url"),
+                System.getProperty("stats.parity.user", "sysdba"),
+                System.getProperty("stats.parity.password", "masterkey"));
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        LocalDate to = LocalDate.parse(System.getProperty("stats.parity.to", LocalDate.now().toString()));
+        LocalDate from = LocalDate.parse(System.getProperty("stats.parity.from", to.minusMonths(3).toString()));
+
+        var jvm = new JvmScoreCalculationStrategy(new AssignmentColumnsLoader(jdbcTemplate), new EmployeeScoreEngine());
+        var database = new DatabaseScoreCalculationStrategy(jdbcTemplate);
+
+        // act
+        Map<LocalDate, Map<Integer, ScorePartials>> expected = jvm.dailyPartials(from, to);
+        Map<LocalDate, Map<Integer, ScorePartials>> actual = database.dailyPartials(from, to);
+
+        // assert
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        expected.forEach((day, partialsByEmployee) -> {
+            assertThat(actual.get(day).keySet()).as("employees on %s", day).isEqualTo(partialsByEmployee.keySet());
+            partialsByEmployee.forEach((empId, partials) -> {
+                var dbPartials = actual.get(day).get(empId);
+                assertThat(dbPartials.numerator()).as("numerator emp=%s day=%s", empId, day)
+                        .isCloseTo(partials.numerator(), within(1e-6));
+                assertThat(dbPartials.denominator()).as("denominator emp=%s day=%s", empId, day)
+                        .isCloseTo(partials.denominator(), within(1e-6));
+            });
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.statistics;
+
+import com.example.demo.dto.stats_dtos.DailyStatsDto;
+import com.example.demo.dto.stats_dtos.MonthlyStatsDto;
+import com.example.demo.service.stats.StatsReader;
+import com.example.demo.service.stats.StatsSlice;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StatsReaderTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void latestDaily_groupsRowsByEmployeeKeepingOrder() throws Exception {
+        // arrange
+        var reader = new StatsReader(jdbcTemplate, false);
+        Timestamp updatedAt = Timestamp.valueOf("2024-07-11 03:00:00");
+        stubRows(List.of(
+                new Object[]{1, Timestamp.valueOf("2024-07-10 00:00:00"), 0.9, updatedAt},
+                new Object[]{1, Timestamp.valueOf("2024-07-09 00:00:00"), 0.8, updatedAt},
+                new Object[]{2, Timestamp.valueOf("2024-07-10 00:00:00"), 0.5, updatedAt}
+        ));
+
+        // act
+        var result = reader.latestDaily(100);
+
+        // assert
+        assertThat(result).containsOnlyKeys(1, 2);
+        assertThat(result.get(1)).extracting(DailyStatsDto::getDate)
+                .containsExactly(LocalDate.of(2024, 7, 10), LocalDate.of(2024, 7, 9));
+        assertThat(result.get(2).get(0).getScore()).isEqualTo(0.5);
+        assertThat(result.get(2).get(0).getUpdatedAt()).isEqualTo(updatedAt.toLocalDateTime());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void latestMonthly_withoutWindowFunctions_limitsRowsBySkippedCutoff() throws Exception {
+        // arrange
+        var reader = new StatsReader(jdbcTemplate, false);
+        stubRows(List.<Object[]>of(new Object[]{3, "2024-07", 0.7, Timestamp.valueOf("2024-07-11 03:00:00")}));
+
+        // act
+        var result = reader.latestMonthly(24);
+
+        // assert
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class));
+        assertThat(sql.getValue())
+                .contains("FROM emp_month_stats s")
+                .contains("FIRST 1 SKIP 23")
+                .doesNotContain("ROW_NUMBER");
+        assertThat(result.get(3)).extracting(MonthlyStatsDto::getMonth).containsExactly("2024-07");
+    }
+
+    @Test
+    void latestYearly_withWindowFunctions_usesRowNumber() throws Exception {
+        // arrange
+        var reader = new StatsReader(jdbcTemplate, true);
+        stubRows(List.of());
+
+        // act
+        var result = reader.latestYearly(5);
+
+        // assert
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class));
+        assertThat(sql.getValue())
+                .contains("ROW_NUMBER() OVER (PARTITION BY s.emp_id ORDER BY s.year_val DESC)")
+                .contains("r.rn <= 5");
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void latestWeekly_slice_bindsEmployeesAndWindowOfMondays() {
+        // arrange
+        var reader = new StatsReader(jdbcTemplate, false);
+        var slice = new StatsSlice(List.of(4, 7), LocalDate.of(2024, 7, 10), LocalDate.of(2024, 7, 31));
+
+        // act
+        var result = reader.latestWeekly(36, slice);
+
+        // assert
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), params.capture());
+        assertThat(sql.getValue())
+                .contains("WHERE e.employee_id IN (?, ?)")
+                .contains("s2.week_start >= ? AND s2.week_start <= ?")
+                .contains("s.week_start >= ? AND s.week_start <= ?");
+        Timestamp firstMonday = Timestamp.valueOf("2024-07-08 00:00:00");
+        Timestamp lastMonday = Timestamp.valueOf("2024-07-29 00:00:00");
+        assertThat(params.getValue()).containsExactly(firstMonday, lastMonday, 4, 7, firstMonday, lastMonday);
+        assertThat(result).isEmpty();
+    }
+
+    private void stubRows(List<Object[]> rows) throws Exception {
+        var index = new AtomicInteger();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getTimestamp(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getString(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+        when(rs.getDouble(anyInt())).thenAnswer(i -> rows.get(index.get())[(int) i.getArgument(0) - 1]);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < rows.size(); i++) {
+                index.set(i);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+}
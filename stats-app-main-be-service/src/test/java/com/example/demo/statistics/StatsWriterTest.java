@@ -0,0 +1,219 @@
+package com.example.demo.statistics;
+
+import com.example.demo.service.stats.ScorePartials;
+import com.example.demo.service.stats.StatsGeneration;
+import com.example.demo.service.stats.StatsTable;
+import com.example.demo.service.stats.StatsWriter;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StatsWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StatsGeneration statsGeneration = new StatsGeneration();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeScores_flushesInBatchesOfConfiguredSize() {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 2);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1, 1})
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO});
+        var scores = new LinkedHashMap<Integer, Double>();
+        scores.put(1, 0.5);
+        scores.put(2, 0.7);
+        scores.put(3, 1.0);
+
+        // act
+        var result = writer.writeScores(StatsTable.DAY, LocalDate.of(2024, 7, 10), scores);
+
+        // assert
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(sql.capture(), batches.capture());
+        assertThat(sql.getValue()).contains("UPDATE OR INSERT INTO emp_day_stats").contains("MATCHING (emp_id, stat_day)");
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(batches.getAllValues().get(0).get(0)[1]).isEqualTo(Timestamp.valueOf("2024-07-10 00:00:00"));
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(3, 0, 0));
+        assertThat(statsGeneration.current()).isEqualTo(1);
+    }
+
+    @Test
+    void writeScores_skipsInvalidAndNotAffectedRows() {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 10);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+        var scores = new LinkedHashMap<Integer, Double>();
+        scores.put(1, 0.5);
+        scores.put(2, Double.NaN);
+        scores.put(3, 0.9);
+
+        // act
+        var result = writer.writeScores(StatsTable.MONTH, "2024-07", scores);
+
+        // assert
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(1, 0, 2));
+    }
+
+    @Test
+    void writePartials_writesEveryEmployeeOfEveryDay() {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 500);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 1});
+
+        // act
+        var result = writer.writePartials(Map.of(
+                LocalDate.of(2024, 7, 10), Map.of(1, new ScorePartials(30, 60), 2, new ScorePartials(10, 20)),
+                LocalDate.of(2024, 7, 11), Map.of(1, new ScorePartials(5, 10))
+        ));
+
+        // assert
+        verify(jdbcTemplate).batchUpdate(contains("emp_day_partials"), argThat((List<Object[]> rows) -> rows.size() == 3));
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(3, 0, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replacePartials_writesOnlyChangedAndDeletesMissingRows() throws Exception {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 500);
+        LocalDate day = LocalDate.of(2024, 7, 10);
+        LocalDate otherDay = day.plusDays(1);
+        stubStoredPartials(
+                new Object[]{1, day, 30.0, 60.0},
+                new Object[]{2, day, 10.0, 20.0},
+                new Object[]{3, day, 5.0, 10.0},
+                new Object[]{1, otherDay, 5.0, 10.0});
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation ->
+                new int[((List<Object[]>) invocation.getArgument(1)).size()]);
+
+        // act - employee 2 changed, 3 lost its assignments, 4 is new, nothing left on the other day
+        var result = writer.replacePartials(day, otherDay, Map.of(day, Map.of(
+                1, new ScorePartials(30, 60),
+                2, new ScorePartials(15, 20),
+                4, new ScorePartials(1, 2))));
+
+        // assert
+        ArgumentCaptor<List<Object[]>> upserted = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Object[]>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE OR INSERT INTO emp_day_partials"), upserted.capture());
+        verify(jdbcTemplate).batchUpdate(contains("DELETE FROM emp_day_partials"), deleted.capture());
+        assertThat(upserted.getValue()).extracting(row -> row[0]).containsExactlyInAnyOrder(2, 4);
+        assertThat(deleted.getValue()).extracting(row -> List.of(row[0], row[1])).containsExactlyInAnyOrder(
+                List.of(3, Timestamp.valueOf(day.atStartOfDay())),
+                List.of(1, Timestamp.valueOf(otherDay.atStartOfDay())));
+        assertThat(result.unchanged()).isEqualTo(1);
+    }
+
+    @Test
+    void replacePartials_nothingChanged_noBatchIsSent() throws Exception {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 500);
+        LocalDate day = LocalDate.of(2024, 7, 10);
+        stubStoredPartials(new Object[]{1, day, 30.0, 60.0});
+
+        // act
+        var result = writer.replacePartials(day, day, Map.of(day, Map.of(1, new ScorePartials(30, 60))));
+
+        // assert
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(0, 1, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeScores_storedScoreEqual_rowIsNotRewritten() throws Exception {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 10);
+        var storedRow = mock(ResultSet.class);
+        when(storedRow.getInt(1)).thenReturn(1, 2);
+        when(storedRow.getDouble(2)).thenReturn(0.5, 0.4);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(storedRow);
+            handler.processRow(storedRow);
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM emp_week_stats WHERE week_start = ?"), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+        var scores = new LinkedHashMap<Integer, Double>();
+        scores.put(1, 0.5);
+        scores.put(2, 0.45);
+        scores.put(3, 0.9);
+
+        // act
+        var result = writer.writeScores(StatsTable.WEEK, LocalDate.of(2024, 7, 8), scores);
+
+        // assert
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertThat(batch.getValue()).extracting(row -> row[0]).containsExactly(2, 3);
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(2, 1, 0));
+    }
+
+    @Test
+    void writeScores_allUnchanged_noBatchIsSent() {
+        // arrange
+        var writer = new StatsWriter(jdbcTemplate, statsGeneration, 10);
+        doAnswer(invocation -> {
+            ResultSet row = mock(ResultSet.class);
+            when(row.getInt(1)).thenReturn(7);
+            when(row.getDouble(2)).thenReturn(0.25);
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        // act
+        var result = writer.writeScores(StatsTable.YEAR, 2024, Map.of(7, 0.25));
+
+        // assert
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(0, 1, 0));
+        assertThat(statsGeneration.current()).isZero();
+    }
+
+    @Test
+    void writeScores_emptyMap_doesNotTouchDatabase() {
+        var result = new StatsWriter(jdbcTemplate, statsGeneration, 10).writeScores(StatsTable.YEAR, 2024, Map.of());
+
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(result).isEqualTo(new StatsWriter.WriteResult(0, 0, 0));
+    }
+
+    @Test
+    void constructor_nonPositiveBatchSize_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new StatsWriter(jdbcTemplate, statsGeneration, 0));
+    }
+
+    private void stubStoredPartials(Object[]... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt(1)).thenReturn((Integer) row[0]);
+                when(rs.getTimestamp(2)).thenReturn(Timestamp.valueOf(((LocalDate) row[1]).atStartOfDay()));
+                when(rs.getDouble(3)).thenReturn((Double) row[2]);
+                when(rs.getDouble(4)).thenReturn((Double) row[3]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM emp_day_partials"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+}